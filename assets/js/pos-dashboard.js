@@ -0,0 +1,168 @@
+/**
+* Fills the dashboard cards from the POS API's sales summary
+* (GET /api/sales/summary). The API address comes from the data-pos-api
+* attribute on <main>; the figures refresh every 10 seconds.
+*/
+
+(function() {
+  "use strict";
+
+  const REFRESH_MILLIS = 10000
+  const HOUR_MILLIS = 3600000
+
+  const main = document.querySelector('[data-pos-api]')
+  if (!main) {
+    return
+  }
+  const summaryUrl = main.dataset.posApi.replace(/\/$/, '') + '/api/sales/summary'
+
+  const money = cents => '$' + (cents / 100).toLocaleString(undefined, {
+    minimumFractionDigits: 2,
+    maximumFractionDigits: 2
+  })
+
+  const setText = (id, text) => {
+    const el = document.getElementById(id)
+    if (el) {
+      el.textContent = text
+    }
+  }
+
+  const setStatus = text => {
+    document.querySelectorAll('.pos-status').forEach(el => el.textContent = text)
+  }
+
+  let chart = null
+
+  // The last entry is the current hour; label each point with the start of its hour
+  const hourStarts = count => {
+    const current = Math.floor(Date.now() / HOUR_MILLIS) * HOUR_MILLIS
+    return Array.from({ length: count }, (_, i) => current - (count - 1 - i) * HOUR_MILLIS)
+  }
+
+  const renderChart = summary => {
+    const hours = hourStarts(summary.hourlyRevenueCents.length)
+    const series = [{
+      name: 'Revenue',
+      data: summary.hourlyRevenueCents.map((cents, i) => [hours[i], cents / 100])
+    }, {
+      name: 'Orders',
+      data: summary.hourlyOrders.map((orders, i) => [hours[i], orders])
+    }]
+    if (chart) {
+      chart.updateSeries(series)
+      return
+    }
+    const el = document.querySelector('#reportsChart')
+    if (!el || typeof ApexCharts === 'undefined') {
+      return
+    }
+    chart = new ApexCharts(el, {
+      series: series,
+      chart: {
+        height: 350,
+        type: 'area',
+        toolbar: {
+          show: false
+        },
+      },
+      markers: {
+        size: 4
+      },
+      colors: ['#2eca6a', '#4154f1'],
+      fill: {
+        type: "gradient",
+        gradient: {
+          shadeIntensity: 1,
+          opacityFrom: 0.3,
+          opacityTo: 0.4,
+          stops: [0, 90, 100]
+        }
+      },
+      dataLabels: {
+        enabled: false
+      },
+      stroke: {
+        curve: 'smooth',
+        width: 2
+      },
+      xaxis: {
+        type: 'datetime',
+        labels: {
+          datetimeUTC: false
+        }
+      },
+      yaxis: [{
+        title: {
+          text: 'Revenue'
+        },
+        labels: {
+          formatter: value => money(Math.round(value * 100))
+        }
+      }, {
+        opposite: true,
+        title: {
+          text: 'Orders'
+        },
+        labels: {
+          formatter: value => Math.round(value)
+        }
+      }],
+      tooltip: {
+        x: {
+          format: 'dd/MM/yy HH:mm'
+        },
+      }
+    })
+    chart.render()
+  }
+
+  const renderTopSelling = products => {
+    const body = document.getElementById('topSelling')
+    if (!body) {
+      return
+    }
+    body.replaceChildren(...products.map((product, i) => {
+      const row = document.createElement('tr')
+      const rank = document.createElement('th')
+      rank.scope = 'row'
+      rank.textContent = i + 1
+      row.appendChild(rank)
+      const cells = [product.name, money(product.priceCents), product.units, money(product.revenueCents)]
+      cells.forEach((text, column) => {
+        const cell = document.createElement('td')
+        cell.textContent = text
+        if (column === 0) {
+          cell.className = 'text-primary fw-bold'
+        } else if (column === 2) {
+          cell.className = 'fw-bold'
+        }
+        row.appendChild(cell)
+      })
+      return row
+    }))
+  }
+
+  const refresh = () => {
+    fetch(summaryUrl)
+      .then(response => {
+        if (!response.ok) {
+          throw new Error('HTTP ' + response.status)
+        }
+        return response.json()
+      })
+      .then(summary => {
+        setText('todayOrders', summary.todayOrders.toLocaleString())
+        setText('todayRevenue', money(summary.todayRevenueCents))
+        setStatus(summary.ready ? 'live' : 'rebuilding')
+        renderChart(summary)
+        renderTopSelling(summary.topProducts)
+      })
+      .catch(() => setStatus('POS API unreachable'))
+  }
+
+  document.addEventListener('DOMContentLoaded', () => {
+    refresh()
+    setInterval(refresh, REFRESH_MILLIS)
+  })
+})();
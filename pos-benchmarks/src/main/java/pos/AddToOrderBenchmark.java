@@ -0,0 +1,123 @@
+package pos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One "Add to Order" click once the cart already holds its lines, the
+// steady state of a long sale. cart is CartCheckout and Cart alone, with
+// product ids past the Integer cache as in a real catalog. click is the
+// panel's whole handler on the EDT: the hold, the card's stock label, the
+// order table event and the totals. It clicks cards in the first visible
+// section, and edtRoundTrip is the invokeAndWait it is wrapped in. Run with
+// -prof gc; the totals and the stock label change on every click, so their
+// new label text is the floor for click.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Djava.awt.headless=true", "-Dedt.stall.thresholdMs=0" })
+public class AddToOrderBenchmark {
+    private static final int PRODUCTS = 1000;
+
+    @Param({ "1", "8" })
+    public int lines;
+
+    private BenchmarkDatabase db;
+    private Path dir;
+    private POSGridView view;
+    private PosServices services;
+    private int[] visibleIds;
+    private int[] catalogIds;
+    private Cart cart;
+    private CartCheckout checkout;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        // Units never run out over a run, so every click is a successful add
+        StockReservations reservations = new StockReservations();
+        catalogIds = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            catalogIds[i] = 10_000 + 37 * i;
+            reservations.setOnHand(catalogIds[i], Integer.MAX_VALUE);
+        }
+        cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        checkout = new CartCheckout(reservations, null);
+
+        db = new BenchmarkDatabase(PRODUCTS);
+        DBConnection.setConnectionFactory(db::open);
+        dir = Files.createTempDirectory("pos-click");
+        System.setProperty("pos.thumbnail.dir", dir.resolve("thumbnails").toString());
+        System.setProperty("pos.journal.file", dir.resolve("orders.journal").toString());
+        System.setProperty("receipt.printer", dir.resolve("receipts.txt").toString());
+        System.setProperty("catalog.snapshot", dir.resolve("catalog.snap").toString());
+        services = new PosServices();
+        SwingUtilities.invokeAndWait(() -> view = new POSGridView(services));
+        int[] shown = new int[1];
+        while (shown[0] < PRODUCTS) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> shown[0] = view.getShownProductCount());
+        }
+
+        // Product 1 opens the first section, which holds every sixth id
+        visibleIds = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            visibleIds[i] = 1 + 6 * i;
+        }
+        SwingUtilities.invokeAndWait(() -> {
+            view.setSize(1280, 800);
+            view.validate();
+            for (int productId : visibleIds) {
+                services.stockReservations.setOnHand(productId, Integer.MAX_VALUE);
+                view.addToOrder(productId, "Product", 199);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws SQLException, IOException {
+        services.connectionPool.stop();
+        DBConnection.setConnectionFactory(null);
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean cart() {
+        int productId = catalogIds[next++ % lines];
+        return checkout.add(cart, productId, "Product", 199, 1);
+    }
+
+    @Benchmark
+    public void click() throws Exception {
+        int productId = visibleIds[next++ % lines];
+        SwingUtilities.invokeAndWait(() -> view.addToOrder(productId, "Product", 199));
+    }
+
+    @Benchmark
+    public void edtRoundTrip() throws Exception {
+        SwingUtilities.invokeAndWait(() -> next++);
+    }
+}
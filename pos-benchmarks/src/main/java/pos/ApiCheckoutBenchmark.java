@@ -0,0 +1,104 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Load on the web API: each operation is one browser's whole sale over HTTP
+// (create cart, add two lines, checkout and wait for the order), from 32
+// clients at once. Concurrent checkouts share the group committer's
+// transactions, so throughput should climb well past a single client's.
+// Run with -t 1 for the single-client baseline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(32)
+@Fork(1)
+public class ApiCheckoutBenchmark {
+    private static final int PRODUCTS = 1_000;
+    private static final Pattern CART_ID = Pattern.compile("\"cartId\":\"([^\"]+)\"");
+
+    private BenchmarkDatabase db;
+    private ConnectionPool pool;
+    private File journal;
+    private OrderCommitter committer;
+    private PosEngine engine;
+    private PosApiServer server;
+    private HttpClient http;
+    private String base;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        db = new BenchmarkDatabase(PRODUCTS);
+        pool = db.pool(8);
+        PosMetrics metrics = new PosMetrics();
+        journal = Files.createTempFile("pos-journal", ".bench").toFile();
+        committer = new OrderCommitter(journal, pool, metrics, null, null, 16, 30_000);
+        committer.start();
+        engine = new PosEngine(pool, metrics, new StockReservations(), committer, 60_000, 0);
+        engine.loadCatalog();
+        engine.start();
+        PosApiServer.disableNagle(); // as PosServices does; this bypasses it
+        server = new PosApiServer(engine, null, metrics, "127.0.0.1", 0, 64, 30_000);
+        server.start(false);
+        http = HttpClient.newHttpClient();
+        base = "http://127.0.0.1:" + server.getPort() + "/api/carts";
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        server.stop();
+        engine.stop();
+        committer.stop();
+        pool.stop();
+        db.close();
+        Files.deleteIfExists(journal.toPath());
+    }
+
+    @Benchmark
+    public int sale() throws IOException, InterruptedException {
+        Matcher m = CART_ID.matcher(post(base).body());
+        if (!m.find()) {
+            throw new IllegalStateException("No cart created");
+        }
+        String cart = base + "/" + m.group(1);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        post(cart + "/items?productId=" + (1 + random.nextInt(PRODUCTS)) + "&qty=1");
+        post(cart + "/items?productId=" + (1 + random.nextInt(PRODUCTS)) + "&qty=2");
+        HttpResponse<String> paid = post(cart + "/checkout?payment=Card");
+        if (paid.statusCode() != 200) {
+            throw new IllegalStateException("Checkout answered " + paid.statusCode() + ": " + paid.body());
+        }
+        return paid.body().length();
+    }
+
+    private HttpResponse<String> post(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,77 @@
+package pos;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// An in-memory H2 database in MySQL mode with the POS schema and a generated
+// catalog. Good for relative numbers between code paths; absolute numbers
+// against a MySQL server over the network will be higher.
+final class BenchmarkDatabase implements AutoCloseable {
+    private static final AtomicInteger NEXT = new AtomicInteger();
+    private static final String[] CATEGORIES = { "Beverages", "Food", "Snacks", "Dairy", "Bakery", "Frozen" };
+
+    private final String url;
+    private final Connection keepAlive;
+
+    BenchmarkDatabase(int products) throws SQLException {
+        url = "jdbc:h2:mem:bench" + NEXT.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        keepAlive = DriverManager.getConnection(url);
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE category (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL)");
+            stmt.executeUpdate("CREATE TABLE product (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(200) NOT NULL, " +
+                    "price DECIMAL(10, 2) NOT NULL, image VARCHAR(200), stock_qty INT NOT NULL, CatID INT, " +
+                    "barcode VARCHAR(32), " +
+                    "updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3))");
+            stmt.executeUpdate("CREATE TABLE sale (id INT AUTO_INCREMENT PRIMARY KEY, sale_date TIMESTAMP NOT NULL, " +
+                    "payment_method VARCHAR(10) NOT NULL, total_amount DECIMAL(10, 2) NOT NULL, staff_id INT NOT NULL)");
+            stmt.executeUpdate("CREATE TABLE sale_details (id INT AUTO_INCREMENT PRIMARY KEY, qty INT NOT NULL, " +
+                    "unit_price DECIMAL(10, 2) NOT NULL, pid INT NOT NULL, sale_id INT NOT NULL)");
+            for (String category : CATEGORIES) {
+                stmt.executeUpdate("INSERT INTO category (name) VALUES ('" + category + "')");
+            }
+        }
+
+        keepAlive.setAutoCommit(false);
+        try (PreparedStatement stmt = keepAlive.prepareStatement(
+                "INSERT INTO product (name, price, image, stock_qty, CatID) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= products; i++) {
+                stmt.setString(1, CATEGORIES[i % CATEGORIES.length] + " item " + i);
+                stmt.setBigDecimal(2, BigDecimal.valueOf(99 + (i * 37L) % 5000, 2));
+                stmt.setString(3, "product_" + i + ".jpg");
+                stmt.setInt(4, 1_000_000);
+                stmt.setInt(5, 1 + i % CATEGORIES.length);
+                stmt.addBatch();
+                if (i % 1000 == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+        keepAlive.commit();
+        keepAlive.setAutoCommit(true);
+    }
+
+    Connection open() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+
+    ConnectionPool pool(int size) {
+        ConnectionPool pool = new ConnectionPool(this::open, size, 5000, 300_000, 32);
+        pool.start();
+        return pool;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            keepAlive.close();
+        }
+    }
+}
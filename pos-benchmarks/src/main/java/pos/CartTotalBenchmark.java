@@ -0,0 +1,58 @@
+package pos;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The order total after one more unit of a line already in the cart, as on
+// every click. running reads Cart's subtotal, kept as lines change. rescan
+// sums every line first, the way calculateTotal did, for comparison; it
+// grows with the cart while running should not.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartTotalBenchmark {
+    @Param({ "5", "50", "500" })
+    public int lines;
+
+    private Cart cart;
+    private int next;
+
+    // A fresh cart per iteration keeps quantities far from overflowing
+    @Setup(Level.Iteration)
+    public void fillCart() {
+        cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        for (int i = 0; i < lines; i++) {
+            cart.add(10_000 + i, "Item " + i, 99 + 37L * i, 1);
+        }
+    }
+
+    @Benchmark
+    public long running() {
+        cart.add(10_000 + next++ % lines, "Item", 0, 1);
+        return cart.getTotalCents();
+    }
+
+    @Benchmark
+    public long rescan() {
+        cart.add(10_000 + next++ % lines, "Item", 0, 1);
+        long subtotal = 0;
+        for (int row = 0; row < cart.size(); row++) {
+            subtotal += cart.getLine(row).getLineCents();
+        }
+        return subtotal + Cart.taxCents(subtotal, cart.getTaxRateBasisPoints());
+    }
+}
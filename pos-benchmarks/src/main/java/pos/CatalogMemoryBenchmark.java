@@ -0,0 +1,176 @@
+package pos;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+// Heap per product for the catalog, measured with JOL over everything the
+// layout retains, next to the time it takes to build. objects is the
+// layout the till used before CatalogStore: a LinkedHashMap of boxed ids to
+// one object per product, each with its own name, image path and category
+// strings as the JDBC driver hands them out. store is CatalogStore, and
+// indexed adds the ProductSearchIndex the till builds next to it, which is
+// what a till actually retains. Rows are generated the way a grocery
+// catalog reads: a few hundred words recombined into names, images in one
+// folder. Bytes per product are printed at the end of each trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = { "-Djdk.attach.allowAttachSelf=true", "-Djol.magicFieldOffset=true" })
+public class CatalogMemoryBenchmark {
+    private static final String[] BRANDS = {
+        "Nestle", "Coca-Cola", "Pepsi", "Heinz", "Kellogg's", "Danone", "Unilever", "Mars", "Cadbury", "Lipton",
+        "Barilla", "Knorr", "Dove", "Colgate", "Oreo", "Pringles", "Lay's", "Sprite", "Fanta", "Nescafe",
+        "Maggi", "Milo", "Dutch Lady", "Ayam", "Gardenia", "Yeo's", "Tiger", "Ovaltine", "Horlicks", "Quaker"
+    };
+    private static final String[] KINDS = {
+        "Milk", "Chocolate", "Cola", "Ketchup", "Cornflakes", "Yogurt", "Soap", "Biscuits", "Tea", "Pasta",
+        "Soup", "Shampoo", "Toothpaste", "Chips", "Juice", "Coffee", "Noodles", "Sardines", "Bread", "Oats",
+        "Cereal", "Crackers", "Butter", "Cheese", "Jam", "Honey", "Rice", "Flour", "Sugar", "Salt",
+        "Vinegar", "Soy Sauce", "Chilli Sauce", "Mayonnaise", "Peanut Butter", "Ice Cream", "Water", "Soda",
+        "Energy Drink", "Detergent"
+    };
+    private static final String[] VARIANTS = {
+        "Original", "Zero", "Light", "Classic", "Extra", "Strawberry", "Vanilla", "Chocolate", "Mint", "Lemon",
+        "Spicy", "Family Pack", "Value Pack", "Organic", "Low Fat", "Whole Grain", "Honey", "Mango", "Orange", "Plain"
+    };
+    private static final String[] SIZES = {
+        "100g", "200g", "250g", "330ml", "500ml", "1L", "1.5L", "2L", "400g", "1kg", "6 x 330ml", "12 pcs", "24 pcs"
+    };
+    private static final String[] CATEGORIES = { "Beverages", "Food", "Snacks", "Dairy", "Bakery", "Household" };
+    private static final String IMAGE_FOLDER = "D:/Y3S2/javaII/Testing_Java/src/Products/";
+
+    @Param({ "100000" })
+    public int products;
+
+    @Param({ "objects", "store", "indexed" })
+    public String layout;
+
+    private int[] ids;
+    private String[] names;
+    private long[] prices;
+    private String[] images;
+    private int[] stock;
+    private String[] categories;
+    private Object built;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        ids = new int[products];
+        names = new String[products];
+        prices = new long[products];
+        images = new String[products];
+        stock = new int[products];
+        categories = new String[products];
+        for (int i = 0; i < products; i++) {
+            ids[i] = i + 1;
+            names[i] = BRANDS[random.nextInt(BRANDS.length)] + " " + KINDS[random.nextInt(KINDS.length)] + " "
+                + VARIANTS[random.nextInt(VARIANTS.length)] + " " + SIZES[random.nextInt(SIZES.length)];
+            prices[i] = 99 + random.nextInt(200) * 50;
+            images[i] = "product_" + (i + 1) + ".jpg";
+            stock[i] = random.nextInt(500);
+            categories[i] = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        // Strings the store and the index share are counted once
+        long bytes = (built instanceof Object[] ? GraphLayout.parseInstance((Object[]) built)
+                                                : GraphLayout.parseInstance(built)).totalSize();
+        System.out.printf("%n%s: %d bytes for %d products, %.1f bytes per product%n",
+            layout, bytes, products, (double) bytes / products);
+    }
+
+    @Benchmark
+    public Object load() {
+        switch (layout) {
+            case "store":
+                built = loadStore(null);
+                break;
+            case "indexed":
+                ProductSearchIndex index = new ProductSearchIndex();
+                built = new Object[] { loadStore(index), index };
+                index.trimToSize();
+                break;
+            default:
+                built = loadObjects();
+        }
+        return built;
+    }
+
+    // Chunks as CatalogLoader streams them, into the index too when there is one
+    private CatalogStore loadStore(ProductSearchIndex index) {
+        CatalogStore store = new CatalogStore();
+        CatalogStore.Batch batch = new CatalogStore.Batch();
+        for (int i = 0; i < products; i++) {
+            batch.add(ids[i], fresh(names[i]), prices[i], fresh(IMAGE_FOLDER + images[i]), stock[i], fresh(categories[i]));
+            if (batch.size() == CatalogLoader.LOAD_CHUNK_SIZE) {
+                putAll(store, index, batch);
+                batch = new CatalogStore.Batch();
+            }
+        }
+        putAll(store, index, batch);
+        store.trimToSize();
+        return store;
+    }
+
+    private static void putAll(CatalogStore store, ProductSearchIndex index, CatalogStore.Batch batch) {
+        store.putAll(batch);
+        if (index != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                index.put(batch.getProductId(i), batch.getName(i), batch.getCategoryName(i));
+            }
+        }
+    }
+
+    private Map<Integer, LegacyProduct> loadObjects() {
+        Map<Integer, LegacyProduct> map = new LinkedHashMap<>();
+        for (int i = 0; i < products; i++) {
+            map.put(ids[i], new LegacyProduct(ids[i], fresh(names[i]), prices[i], fresh(IMAGE_FOLDER + images[i]),
+                stock[i], fresh(categories[i])));
+        }
+        return map;
+    }
+
+    // A driver returns a new String for every column of every row
+    private static String fresh(String value) {
+        return new String(value.toCharArray());
+    }
+
+    private static final class LegacyProduct {
+        private final int productId;
+        private final String name;
+        private final long priceCents;
+        private final String imagePath;
+        private final String categoryName;
+        private int stockQty;
+
+        LegacyProduct(int productId, String name, long priceCents, String imagePath, int stockQty, String categoryName) {
+            this.productId = productId;
+            this.name = name;
+            this.priceCents = priceCents;
+            this.imagePath = imagePath;
+            this.stockQty = stockQty;
+            this.categoryName = categoryName;
+        }
+    }
+}
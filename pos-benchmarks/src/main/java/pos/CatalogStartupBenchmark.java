@@ -0,0 +1,88 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time until the till has a catalog to show: restoring the local snapshot
+// file against streaming the full product query. The database is in-memory
+// H2, so the query side leaves out the network and is a lower bound.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogStartupBenchmark {
+    @Param({ "10000", "50000" })
+    public int products;
+
+    private BenchmarkDatabase db;
+    private File file;
+    private PosMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void prepare() throws SQLException, IOException {
+        db = new BenchmarkDatabase(products);
+        metrics = new PosMetrics();
+        file = Files.createTempFile("pos-catalog", ".snap").toFile();
+        CatalogStore store = new CatalogStore();
+        loadInto(store);
+        new CatalogSnapshotFile(metrics, file).write(store.snapshot(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws SQLException, IOException {
+        db.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public CatalogStore.Snapshot restoreSnapshot() {
+        return new CatalogSnapshotFile(metrics, file).read(new CatalogStore()).snapshot;
+    }
+
+    @Benchmark
+    public CatalogStore.Snapshot loadFromDatabase() throws SQLException {
+        CatalogStore store = new CatalogStore();
+        loadInto(store);
+        return store.snapshot();
+    }
+
+    private void loadInto(CatalogStore store) throws SQLException {
+        try (Connection con = db.open();
+             PreparedStatement stmt = con.prepareStatement(CatalogLoader.PRODUCTS_SQL)) {
+            stmt.setFetchSize(CatalogLoader.LOAD_CHUNK_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                CatalogStore.Batch batch = new CatalogStore.Batch();
+                while (rs.next()) {
+                    CatalogLoader.readProduct(rs, batch);
+                    if (batch.size() == CatalogLoader.LOAD_CHUNK_SIZE) {
+                        store.putAll(batch);
+                        batch = new CatalogStore.Batch();
+                    }
+                }
+                store.putAll(batch);
+            }
+        }
+        store.trimToSize();
+    }
+}
@@ -0,0 +1,186 @@
+package pos;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Commit latency for a group of orders over a link with a simulated round
+// trip. Every statement execution, batch and commit/rollback waits rttMicros
+// before reaching the in-memory database; a JDBC batch counts as one trip, as
+// it does with rewriteBatchedStatements. perOrder is the old checkout path
+// (sale INSERT, line batch, stock batch, COMMIT for each order); batched is
+// SaleWriter writing the whole group in one transaction. Round trips per
+// operation are printed at the end of each trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommitLatencyBenchmark {
+    private static final int PRODUCTS = 1_000;
+    private static final int LINES_PER_ORDER = 4;
+
+    @Param({ "0", "1000" })
+    public int rttMicros;
+
+    @Param({ "1", "16" })
+    public int orders;
+
+    private BenchmarkDatabase db;
+    private ConnectionPool pool;
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+    private List<OrderSnapshot> group;
+
+    @Setup(Level.Trial)
+    public void prepare() throws SQLException {
+        db = new BenchmarkDatabase(PRODUCTS);
+        pool = new ConnectionPool(() -> withLatency(db.open()), 1, 5000, 300_000, 32);
+        pool.start();
+        group = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                cart.add(1 + (i * LINES_PER_ORDER + line) % PRODUCTS, "Product", 199, 1);
+            }
+            group.add(new OrderSnapshot(cart, "Cash", 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws SQLException {
+        System.out.printf("%n%d orders: %.1f round trips per operation%n", orders,
+            (double) trips.get() / Math.max(1, operations.get()));
+        pool.stop();
+        db.close();
+    }
+
+    @Benchmark
+    public int batched() throws SQLException {
+        operations.incrementAndGet();
+        try (Connection con = pool.getConnection()) {
+            con.setAutoCommit(false);
+            int[] saleIds = SaleWriter.createOrderRecords(con, group);
+            SaleWriter.addOrderItems(con, group, saleIds);
+            SaleWriter.updateProductStocksInDB(con, group, false);
+            con.commit();
+            return saleIds[saleIds.length - 1];
+        }
+    }
+
+    @Benchmark
+    public int perOrder() throws SQLException {
+        operations.incrementAndGet();
+        int saleId = 0;
+        try (Connection con = pool.getConnection()) {
+            for (OrderSnapshot order : group) {
+                con.setAutoCommit(false);
+                try (PreparedStatement stmt = con.prepareStatement(
+                        "INSERT INTO sale (sale_date, payment_method, total_amount, staff_id) VALUES (CURRENT_TIMESTAMP, ?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, "CASH");
+                    stmt.setBigDecimal(2, BigDecimal.valueOf(order.getTotalCents(), 2));
+                    stmt.setInt(3, order.getStaffId());
+                    stmt.executeUpdate();
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        rs.next();
+                        saleId = rs.getInt(1);
+                    }
+                }
+                try (PreparedStatement stmt = con.prepareStatement(
+                        "INSERT INTO sale_details (qty, unit_price, pid, sale_id) VALUES (?, ?, ?, ?)")) {
+                    for (OrderItem item : order.getItems()) {
+                        stmt.setInt(1, item.getQuantity());
+                        stmt.setBigDecimal(2, BigDecimal.valueOf(item.getPriceCents(), 2));
+                        stmt.setInt(3, item.getProductId());
+                        stmt.setInt(4, saleId);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                try (PreparedStatement stmt = con.prepareStatement(
+                        "UPDATE product SET stock_qty = stock_qty - ? WHERE id = ?")) {
+                    for (OrderItem item : order.getItems()) {
+                        stmt.setInt(1, item.getQuantity());
+                        stmt.setInt(2, item.getProductId());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                con.commit();
+            }
+        }
+        return saleId;
+    }
+
+    private Connection withLatency(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, new Delayed(physical, true));
+    }
+
+    private void roundTrip() {
+        trips.incrementAndGet();
+        if (rttMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+        }
+    }
+
+    // Delays the calls that reach the server and wraps the statements it hands out
+    private final class Delayed implements InvocationHandler {
+        private final Object target;
+        private final boolean connection;
+
+        Delayed(Object target, boolean connection) {
+            this.target = target;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean remote = connection
+                ? (name.equals("commit") || name.equals("rollback"))
+                : name.startsWith("execute");
+            if (remote) {
+                roundTrip();
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (connection && result instanceof Statement) {
+                Class<?> type = result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new Delayed(result, false));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package pos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The grid's side of a search, on the EDT of a loaded till panel. filter is
+// filterProducts, the synchronous path run after catalog changes: an index
+// search from scratch plus the render. render is renderProducts alone for
+// the same result, grouping the matches into category sections and handing
+// them to the grid. keystroke is what a cashier waits for: one key typed
+// into the search field, alternately an 's' and a backspace, until its
+// results are rendered, with the index search on a worker thread in between.
+// An empty query shows the whole catalog, "frozen" one section and
+// "item 4242" a handful of cards, none at 1000 products.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Djava.awt.headless=true", "-Dedt.stall.thresholdMs=0" })
+public class GridFilterBenchmark {
+    private static final String[] CATEGORIES = { "Beverages", "Food", "Snacks", "Dairy", "Bakery", "Frozen" };
+
+    @Param({ "1000", "50000" })
+    public int products;
+
+    @Param({ "", "frozen", "item 4242" })
+    public String query;
+
+    private BenchmarkDatabase db;
+    private Path dir;
+    private PosServices services;
+    private POSGridView view;
+    private SearchResult result;
+    private PosMetrics.LatencyTimer renders;
+    private boolean typed;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        db = new BenchmarkDatabase(products);
+        DBConnection.setConnectionFactory(db::open);
+        dir = Files.createTempDirectory("pos-filter");
+        System.setProperty("pos.thumbnail.dir", dir.resolve("thumbnails").toString());
+        System.setProperty("pos.journal.file", dir.resolve("orders.journal").toString());
+        System.setProperty("receipt.printer", dir.resolve("receipts.txt").toString());
+        System.setProperty("catalog.snapshot", dir.resolve("catalog.snap").toString());
+        services = new PosServices();
+        SwingUtilities.invokeAndWait(() -> view = new POSGridView(services));
+        int[] shown = new int[1];
+        while (shown[0] < products) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> shown[0] = view.getShownProductCount());
+        }
+        SwingUtilities.invokeAndWait(() -> {
+            view.setSize(1280, 800);
+            view.validate();
+            view.setSearchText(query);
+            view.filterProducts(); // also drops the searches the text started
+        });
+        renders = services.metrics.timer("ui.render");
+
+        // The same names the panel indexed; render only reads the product ids
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (int i = 1; i <= products; i++) {
+            String category = CATEGORIES[i % CATEGORIES.length];
+            index.put(i, category + " item " + i, category);
+        }
+        result = index.search(query, "All", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws SQLException, IOException {
+        services.connectionPool.stop();
+        DBConnection.setConnectionFactory(null);
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void filter() throws Exception {
+        SwingUtilities.invokeAndWait(view::filterProducts);
+    }
+
+    @Benchmark
+    public void render() throws Exception {
+        SwingUtilities.invokeAndWait(() -> view.renderProducts(result));
+    }
+
+    @Benchmark
+    public long keystroke() throws Exception {
+        long rendered = renders.getCount();
+        char key = typed ? '\b' : 's';
+        typed = !typed;
+        SwingUtilities.invokeAndWait(() -> view.typeSearchKey(key));
+        while (renders.getCount() == rendered) {
+            LockSupport.parkNanos(20_000);
+        }
+        return rendered;
+    }
+}
@@ -0,0 +1,160 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time from building a till panel to a grid the cashier can use, headless.
+// firstRows stops when the grid lays out its first products, fullCatalog
+// when it holds all of them; both include laying out the visible cards.
+// source "database" streams the product query, "snapshot" starts from the
+// local catalog file the way a till does after its first run. The database
+// is in-memory H2, so the query side leaves out the network.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgs = { "-Djava.awt.headless=true", "-Dedt.stall.thresholdMs=0" })
+public class GridStartupBenchmark {
+    @Param({ "1000", "10000", "50000" })
+    public int products;
+
+    @Param({ "database", "snapshot" })
+    public String source;
+
+    private BenchmarkDatabase db;
+    private Path dir;
+    private File snapshot;
+    private int iteration;
+    private Path file;
+    private PosServices services;
+    private POSGridView view;
+
+    @Setup(Level.Trial)
+    public void prepare() throws SQLException, IOException {
+        db = new BenchmarkDatabase(products);
+        DBConnection.setConnectionFactory(db::open);
+        dir = Files.createTempDirectory("pos-grid");
+        System.setProperty("pos.thumbnail.dir", dir.resolve("thumbnails").toString());
+        System.setProperty("pos.journal.file", dir.resolve("orders.journal").toString());
+        System.setProperty("receipt.printer", dir.resolve("receipts.txt").toString());
+
+        // With a watermark, as a till saves it, so the restore is followed by a sync and not a full
+        // reload. The rows were all stamped just now, inside the sync's overlap; age them past it
+        snapshot = dir.resolve("prepared.snap").toFile();
+        CatalogStore store = new CatalogStore();
+        Timestamp watermark;
+        try (Connection con = db.open();
+             Statement age = con.createStatement();
+             PreparedStatement stmt = con.prepareStatement(CatalogLoader.PRODUCTS_SQL)) {
+            age.executeUpdate("UPDATE product SET updated_at = DATEADD('HOUR', -1, updated_at)");
+            watermark = CatalogLoader.readCatalogWatermark(con);
+            try (ResultSet rs = stmt.executeQuery()) {
+                CatalogStore.Batch batch = new CatalogStore.Batch();
+                while (rs.next()) {
+                    CatalogLoader.readProduct(rs, batch);
+                }
+                store.putAll(batch);
+            }
+        }
+        store.trimToSize();
+        new CatalogSnapshotFile(new PosMetrics(), snapshot).write(store.snapshot(), watermark);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws SQLException, IOException {
+        DBConnection.setConnectionFactory(null);
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Each panel gets its own snapshot path, so a database start never finds
+    // the file the previous one saved
+    @Setup(Level.Iteration)
+    public void newServices() throws IOException {
+        file = dir.resolve("catalog-" + (++iteration) + ".snap");
+        if ("snapshot".equals(source)) {
+            Files.copy(snapshot.toPath(), file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.setProperty("catalog.snapshot", file.toString());
+        services = new PosServices();
+    }
+
+    // A panel measured by firstRows is still loading, and a database start
+    // saves its snapshot in the background; let both finish off the clock.
+    // A till starts in a fresh JVM, so the old panel's garbage is collected
+    // here and not in the middle of the next shot
+    @TearDown(Level.Iteration)
+    public void dropPanel() throws Exception {
+        awaitShown(products);
+        while (!Files.exists(file)) {
+            Thread.sleep(1);
+        }
+        view = null;
+        services.connectionPool.stop();
+        System.gc();
+    }
+
+    @Benchmark
+    public POSGridView firstRows() throws Exception {
+        SwingUtilities.invokeAndWait(() -> view = new POSGridView(services));
+        awaitShown(1);
+        layOut();
+        return view;
+    }
+
+    @Benchmark
+    public POSGridView fullCatalog() throws Exception {
+        SwingUtilities.invokeAndWait(() -> view = new POSGridView(services));
+        awaitShown(products);
+        layOut();
+        return view;
+    }
+
+    private void awaitShown(int count) throws Exception {
+        int[] shown = new int[1];
+        while (true) {
+            SwingUtilities.invokeAndWait(() -> shown[0] = view.getShownProductCount());
+            if (shown[0] >= count) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private void layOut() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(() -> {
+            view.setSize(1280, 800);
+            view.validate();
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of making a commit group durable: one framed write plus fsync for the
+// group, then the unforced done records. The per-order share is what group
+// commit buys; the file lives in java.io.tmpdir, so point that at the disk
+// the till actually journals to (-Djava.io.tmpdir=...).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderJournalBenchmark {
+    @Param({ "1", "16", "64" })
+    public int groupSize;
+
+    private File file;
+    private OrderJournal journal;
+    private List<OrderSnapshot> group;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        file = Files.createTempFile("pos-journal", ".bench").toFile();
+        journal = OrderJournal.open(file);
+        group = new ArrayList<>(groupSize);
+        for (int i = 0; i < groupSize; i++) {
+            Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+            for (int line = 0; line < 4; line++) {
+                cart.add(i * 4 + line + 1, "Product " + line, 199 + line * 100, 1 + line % 2);
+            }
+            group.add(new OrderSnapshot(cart, "Cash", 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    // Done records drain the journal so every append starts from an empty file
+    @Benchmark
+    public int appendAndMarkDone() throws IOException {
+        journal.append(group);
+        journal.markDone(group);
+        return journal.pendingCount();
+    }
+}
@@ -0,0 +1,67 @@
+package pos;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Encode plus render of one payment QR code at the till's size. writer is
+// the old path on the EDT: a new QRCodeWriter, a full-size BitMatrix and
+// MatrixToImageWriter's int-RGB image. service is QrCodeService on a cache
+// miss, including the hand-off to its encoder thread; every call uses a new
+// amount, so each one encodes into a new 1-bit image. Run with -prof gc to
+// see the allocation per code.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QrCodeBenchmark {
+    @Param({ "300" })
+    public int size;
+
+    private QrCodeService service;
+    private long amountCents;
+
+    @Setup(Level.Trial)
+    public void start() {
+        service = new QrCodeService(new PosMetrics(), 8);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        service.stop();
+    }
+
+    @Benchmark
+    public BufferedImage writer() throws WriterException {
+        return MatrixToImageWriter.toBufferedImage(
+            new QRCodeWriter().encode(nextPayload(), BarcodeFormat.QR_CODE, size, size));
+    }
+
+    @Benchmark
+    public BufferedImage service() {
+        return service.render(nextPayload(), size).join();
+    }
+
+    private String nextPayload() {
+        amountCents += 5;
+        return "POS Payment\nAmount: " + Money.format(amountCents) + "\nDate: 2026-10-18";
+    }
+}
@@ -0,0 +1,98 @@
+package pos;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Receipts per second at peak. render is ReceiptTemplate into a reused
+// ReceiptBuffer, the CPU side of one receipt. spool hands a rush of BURST
+// orders to a ReceiptSpooler writing to a file and waits for the last one;
+// maxBatch 1 opens the target once per receipt, as a printer device would
+// be without batching. Every third item name is longer than the receipt
+// column, so truncation is included. Run with -prof gc to see the
+// allocation per receipt.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptBenchmark {
+    private static final int BURST = 64;
+
+    @Param({ "5", "30" })
+    public int items;
+
+    @Param({ "1", "16" })
+    public int maxBatch;
+
+    private OrderSnapshot order;
+    private ReceiptTemplate template;
+    private ReceiptBuffer buffer;
+    private File target;
+    private ReceiptSpooler spooler;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        for (int i = 0; i < items; i++) {
+            String name = i % 3 == 0 ? "Organic Free Range Large Brown Eggs " + i : "Item " + i;
+            cart.add(10_000 + i, name, 99 + 37L * i, 1 + i % 4);
+        }
+        order = new OrderSnapshot(cart, "Cash", 1);
+        template = ReceiptTemplate.compile(ReceiptTemplate.DEFAULT_LAYOUT, false);
+        buffer = new ReceiptBuffer();
+        target = Files.createTempFile("pos-receipts", ".txt").toFile();
+        spooler = new ReceiptSpooler(new PosMetrics(), template, target, maxBatch);
+        spooler.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws InterruptedException, IOException {
+        spooler.stop();
+        Files.deleteIfExists(target.toPath());
+    }
+
+    // The file would otherwise grow by hundreds of megabytes over a run
+    @TearDown(Level.Iteration)
+    public void truncate() throws IOException {
+        new FileOutputStream(target).close();
+    }
+
+    @Benchmark
+    public ReceiptBuffer render() {
+        buffer.reset();
+        template.render("T1-000042", order, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public long spool() {
+        long done = spooler.getPrintedCount() + BURST;
+        for (int i = 0; i < BURST; i++) {
+            spooler.submit("T1-000042", order);
+        }
+        while (spooler.getPrintedCount() < done) {
+            LockSupport.parkNanos(20_000);
+        }
+        return done;
+    }
+}
@@ -0,0 +1,123 @@
+package pos;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Barcode scan to cart line on the EDT of a loaded till panel whose products
+// all carry an EAN-13. lookup is scanToCart: the parse, the barcode map and
+// the add with its hold, stock label and totals. wedge is the same scan as
+// a keyboard-wedge scanner sends it, thirteen digit keystrokes and Enter
+// through KeyboardWedgeScanner. Scans cycle over 16 products spread across
+// the catalog, so after warm-up each one adds to a line already in the cart.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Djava.awt.headless=true", "-Dedt.stall.thresholdMs=0" })
+public class ScanBenchmark {
+    private static final int SCANNED = 16;
+
+    @Param({ "100000" })
+    public int products;
+
+    private BenchmarkDatabase db;
+    private Path dir;
+    private PosServices services;
+    private POSGridView view;
+    private KeyboardWedgeScanner scanner;
+    private String[] codes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        db = new BenchmarkDatabase(products);
+        try (Connection con = db.open(); Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("UPDATE product SET barcode = CONCAT('400', LPAD(CAST(id AS VARCHAR), 10, '0'))");
+        }
+        Random random = new Random(42);
+        codes = new String[SCANNED];
+        for (int i = 0; i < SCANNED; i++) {
+            codes[i] = String.format("400%010d", 1 + random.nextInt(products));
+        }
+
+        DBConnection.setConnectionFactory(db::open);
+        dir = Files.createTempDirectory("pos-scan");
+        Path snapshot = dir.resolve("catalog.snap");
+        System.setProperty("pos.thumbnail.dir", dir.resolve("thumbnails").toString());
+        System.setProperty("pos.journal.file", dir.resolve("orders.journal").toString());
+        System.setProperty("receipt.printer", dir.resolve("receipts.txt").toString());
+        System.setProperty("catalog.snapshot", snapshot.toString());
+        services = new PosServices();
+        SwingUtilities.invokeAndWait(() -> {
+            view = new POSGridView(services);
+            scanner = new KeyboardWedgeScanner(view, 6, 40, view::scanToCart);
+        });
+        // Saved once the load is done, barcodes included
+        while (!Files.exists(snapshot)) {
+            Thread.sleep(10);
+        }
+        SwingUtilities.invokeAndWait(() -> {
+            view.setSize(1280, 800);
+            view.validate();
+            for (String code : codes) {
+                view.scanToCart(code);
+            }
+        });
+        if (services.metrics.timer("scan.toCart").getCount() != SCANNED) {
+            throw new IllegalStateException("Scans did not reach the cart; barcodes not loaded");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws SQLException, IOException {
+        services.connectionPool.stop();
+        DBConnection.setConnectionFactory(null);
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void lookup() throws Exception {
+        String code = codes[next++ % SCANNED];
+        SwingUtilities.invokeAndWait(() -> view.scanToCart(code));
+    }
+
+    @Benchmark
+    public void wedge() throws Exception {
+        String code = codes[next++ % SCANNED];
+        SwingUtilities.invokeAndWait(() -> {
+            long when = System.currentTimeMillis();
+            for (int i = 0; i < code.length(); i++) {
+                scanner.dispatchKeyEvent(new KeyEvent(view, KeyEvent.KEY_TYPED, when, 0, KeyEvent.VK_UNDEFINED, code.charAt(i)));
+            }
+            scanner.dispatchKeyEvent(new KeyEvent(view, KeyEvent.KEY_PRESSED, when, 0, KeyEvent.VK_ENTER, '\n'));
+            scanner.dispatchKeyEvent(new KeyEvent(view, KeyEvent.KEY_TYPED, when, 0, KeyEvent.VK_UNDEFINED, '\n'));
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package pos;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Keystroke to results in ProductSearchIndex, the part of a search that runs
+// off the EDT. Each call types one more character of the query, then starts
+// over. narrowed passes the previous keystroke's result as the grid does;
+// fromScratch searches the whole catalog every time. Names are drawn from a
+// small vocabulary, so short prefixes match thousands of products. Run with
+// -prof gc to see the allocation per keystroke.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    private static final String[] WORDS = {
+        "fresh", "orange", "juice", "apple", "milk", "whole", "bread", "rye", "cheddar", "cheese",
+        "frozen", "peas", "sparkling", "water", "dark", "chocolate", "salted", "crisps", "greek", "yogurt",
+        "green", "tea", "coffee", "beans", "organic", "honey", "butter", "pasta", "tomato", "sauce"
+    };
+    private static final String[] CATEGORIES = { "Beverages", "Food", "Snacks", "Dairy", "Bakery", "Frozen" };
+
+    @Param({ "50000" })
+    public int products;
+
+    @Param({ "orange juice", "cheddar cheese 12" })
+    public String query;
+
+    @Param({ "All", "Beverages" })
+    public String category;
+
+    private ProductSearchIndex index;
+    private SearchResult previous;
+    private int typed;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        index = new ProductSearchIndex();
+        Random random = new Random(42);
+        for (int id = 1; id <= products; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int w = 2 + random.nextInt(3); w > 0; w--) {
+                name.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            name.append(id % 100);
+            index.put(id, name.toString(), CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        }
+    }
+
+    @Benchmark
+    public SearchResult narrowed() {
+        previous = index.search(nextKeystroke(), category, previous);
+        return previous;
+    }
+
+    @Benchmark
+    public SearchResult fromScratch() {
+        return index.search(nextKeystroke(), category, null);
+    }
+
+    private String nextKeystroke() {
+        if (typed == query.length()) {
+            typed = 0;
+            previous = null;
+        }
+        return query.substring(0, ++typed);
+    }
+}
@@ -0,0 +1,54 @@
+package pos;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Reads barcodes from still images (product photos, a saved frame or a
+// webcam grab) with ZXing on a background thread, reusing one reader.
+class BarcodeImageReader {
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "barcode-decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final MultiFormatReader reader = new MultiFormatReader();
+
+    public BarcodeImageReader() {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.EAN_8,
+            BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.CODE_128, BarcodeFormat.CODE_39,
+            BarcodeFormat.QR_CODE));
+        reader.setHints(hints);
+    }
+
+    // Completes with null when the image holds no readable code
+    public CompletableFuture<String> decode(BufferedImage image) {
+        return CompletableFuture.supplyAsync(() -> {
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+            try {
+                return reader.decodeWithState(bitmap).getText();
+            } catch (NotFoundException e) {
+                return null;
+            } finally {
+                reader.reset();
+            }
+        }, decoder);
+    }
+
+    public void stop() {
+        decoder.shutdownNow();
+    }
+}
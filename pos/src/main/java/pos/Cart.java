@@ -0,0 +1,79 @@
+package pos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Cart lines keyed by product id, in the order they were first added.
+// Amounts are integer cents and the subtotal is kept as lines change, so
+// totals never need a rescan and never drift through double rounding.
+// Adding to a line already in the cart allocates nothing.
+class Cart {
+    static final int STANDARD_TAX_BASIS_POINTS = 1_000; // 10%
+
+    private final List<OrderItem> lines = new ArrayList<>();
+    private final LongIntMap rowsByProductId = new LongIntMap(16);
+    private final int taxRateBasisPoints;
+    private long subtotalCents;
+
+    public Cart(int taxRateBasisPoints) {
+        this.taxRateBasisPoints = taxRateBasisPoints;
+    }
+
+    // A product already in the cart keeps the price its line was opened at,
+    // even if a catalog sync changed it since; the subtotal follows the line.
+    public OrderItem add(int productId, String name, long priceCents, int quantity) {
+        int row = rowsByProductId.get(productId);
+        OrderItem item;
+        if (row < 0) {
+            item = new OrderItem(productId, name, priceCents, quantity);
+            rowsByProductId.put(productId, lines.size());
+            lines.add(item);
+        } else {
+            item = lines.get(row);
+            item.addQuantity(quantity);
+        }
+        subtotalCents += item.getPriceCents() * quantity;
+        return item;
+    }
+
+    // Later lines shift up rather than the last line being swapped into the
+    // gap: the order table and the receipt list lines as they were rung up.
+    // That reindexes the lines after the removed one, a few dozen at most.
+    public OrderItem remove(int productId) {
+        int row = rowsByProductId.remove(productId);
+        if (row < 0) {
+            return null;
+        }
+        OrderItem item = lines.remove(row);
+        for (int i = row; i < lines.size(); i++) {
+            rowsByProductId.put(lines.get(i).getProductId(), i);
+        }
+        subtotalCents -= item.getLineCents();
+        return item;
+    }
+
+    public int indexOf(int productId) {
+        return rowsByProductId.get(productId);
+    }
+
+    public void clear() {
+        lines.clear();
+        rowsByProductId.clear();
+        subtotalCents = 0;
+    }
+
+    public List<OrderItem> getLines() { return Collections.unmodifiableList(lines); }
+    public OrderItem getLine(int row) { return lines.get(row); }
+    public boolean isEmpty() { return lines.isEmpty(); }
+    public int size() { return lines.size(); }
+    public int getTaxRateBasisPoints() { return taxRateBasisPoints; }
+    public long getSubtotalCents() { return subtotalCents; }
+    public long getTaxCents() { return taxCents(subtotalCents, taxRateBasisPoints); }
+    public long getTotalCents() { return subtotalCents + getTaxCents(); }
+
+    // Tax is charged on the order subtotal, rounded half up to the cent
+    public static long taxCents(long subtotalCents, int taxRateBasisPoints) {
+        return (subtotalCents * taxRateBasisPoints + 5_000) / 10_000;
+    }
+}
@@ -0,0 +1,72 @@
+package pos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// The till's add-to-order and place-order steps without any Swing, so
+// POSGridView, the web engine and the load simulator all sell the same way.
+// Adding an item holds its stock in the reservation cache; the database is
+// only asked at commit. The holds travel with the order and are committed
+// or given back once it settles. After a stock conflict the database's
+// count is adopted, since another terminal sold those units.
+final class CartCheckout {
+    private final StockReservations stockReservations;
+    private final OrderCommitter orderCommitter;
+
+    CartCheckout(StockReservations stockReservations, OrderCommitter orderCommitter) {
+        this.stockReservations = stockReservations;
+        this.orderCommitter = orderCommitter;
+    }
+
+    // False, with the cart untouched, when fewer than quantity units are left to hold
+    boolean add(Cart cart, int productId, String name, long priceCents, int quantity) {
+        if (!stockReservations.hold(productId, quantity)) {
+            return false;
+        }
+        cart.add(productId, name, priceCents, quantity);
+        return true;
+    }
+
+    OrderItem remove(Cart cart, int productId) {
+        OrderItem removed = cart.remove(productId);
+        if (removed != null) {
+            stockReservations.release(productId, removed.getQuantity());
+        }
+        return removed;
+    }
+
+    // Empties the cart and returns the lines whose holds were given back
+    List<OrderItem> clear(Cart cart) {
+        List<OrderItem> released = new ArrayList<>(cart.getLines());
+        for (OrderItem item : released) {
+            stockReservations.release(item.getProductId(), item.getQuantity());
+        }
+        cart.clear();
+        return released;
+    }
+
+    // The returned future settles after the holds do, with the committer's
+    // result or failure. The caller is free to reuse its cart right away.
+    CompletableFuture<OrderResult> placeOrder(OrderSnapshot order) {
+        return orderCommitter.submit(order).whenComplete((result, error) -> settle(order, error));
+    }
+
+    private void settle(OrderSnapshot order, Throwable error) {
+        Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+        for (OrderItem item : order.getItems()) {
+            if (failure == null) {
+                // Recorded in the database or in the journal; either way the goods have left
+                stockReservations.commit(item.getProductId(), item.getQuantity());
+            } else {
+                stockReservations.release(item.getProductId(), item.getQuantity());
+            }
+        }
+        if (failure instanceof StockConflictException) {
+            for (StockConflict line : ((StockConflictException) failure).getConflicts()) {
+                stockReservations.setOnHand(line.getProductId(), line.getAvailable());
+            }
+        }
+    }
+}
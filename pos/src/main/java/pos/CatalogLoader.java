@@ -0,0 +1,89 @@
+package pos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+// Reads the product catalog for the till, the engine and the aggregator
+final class CatalogLoader {
+    static final String PRODUCTS_SQL = "SELECT p.id, p.name, p.price, p.image, p.stock_qty, c.name AS category_name " +
+                                       "FROM product p LEFT JOIN category c ON p.CatID = c.id";
+    static final int LOAD_CHUNK_SIZE = 500;
+
+    private CatalogLoader() {
+    }
+
+    static void readProduct(ResultSet rs, CatalogStore.Batch batch) throws SQLException {
+        int id = rs.getInt("id");
+        String name = rs.getString("name");
+        long priceCents = Money.toCents(rs.getBigDecimal("price"));
+        String imageName = rs.getString("image");
+        int stockQty = rs.getInt("stock_qty");
+        String categoryName = rs.getString("category_name");
+
+        String imagePath = "D:/Y3S2/javaII/Testing_Java/src/Products/" + imageName;
+        batch.add(id, name, priceCents, imagePath, stockQty, categoryName);
+    }
+
+    // Barcodes come from product.barcode when the schema has it; otherwise
+    // scanning falls back to product ids printed as SKU labels. Null only
+    // for a missing column; any other failure is thrown so the caller retries.
+    static LongIntMap readBarcodes(Connection con) throws SQLException {
+        try (PreparedStatement stmt = con.prepareStatement("SELECT id, barcode FROM product WHERE barcode IS NOT NULL");
+             ResultSet rs = stmt.executeQuery()) {
+            LongIntMap index = new LongIntMap(1024);
+            while (rs.next()) {
+                long key = LongIntMap.parse(rs.getString(2).trim());
+                if (key != LongIntMap.EMPTY) {
+                    index.put(key, rs.getInt(1));
+                }
+            }
+            return index;
+        } catch (SQLException e) {
+            if (isMissingColumn(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    // Delta sync relies on product.updated_at (maintained with ON UPDATE
+    // CURRENT_TIMESTAMP and indexed). Without that column there is no
+    // watermark and the terminal keeps the catalog it loaded at start-up.
+    // Any other failure is thrown, so a dropped connection cannot turn sync
+    // off for the life of the process. An empty table syncs from the epoch.
+    static Timestamp readCatalogWatermark(Connection con) throws SQLException {
+        try (PreparedStatement stmt = con.prepareStatement("SELECT MAX(updated_at) FROM product");
+             ResultSet rs = stmt.executeQuery()) {
+            Timestamp latest = rs.next() ? rs.getTimestamp(1) : null;
+            return latest != null ? latest : new Timestamp(0);
+        } catch (SQLException e) {
+            if (isMissingColumn(e) || isMissingTable(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    // Shared by the till and the engine: rows go to the store, on-hand levels and the search index.
+    // refresh is the reservations ticket taken before the rows were read.
+    static void storeBatch(CatalogStore store, ProductSearchIndex index, StockReservations reservations,
+                           CatalogStore.Batch batch, long refresh) {
+        store.putAll(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            reservations.refresh(batch.getProductId(i), batch.getStockQty(i), refresh);
+            index.put(batch.getProductId(i), batch.getName(i), batch.getCategoryName(i));
+        }
+    }
+
+    // SQLState 42S22, column not found, in MySQL and H2 alike
+    static boolean isMissingColumn(SQLException e) {
+        return "42S22".equals(e.getSQLState());
+    }
+
+    static boolean isMissingTable(SQLException e) {
+        return "42S02".equals(e.getSQLState());
+    }
+}
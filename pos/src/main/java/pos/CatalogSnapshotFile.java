@@ -0,0 +1,248 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Local copy of the catalog so a terminal starts from disk, not the database.
+// Layout: [magic][format][payload length][CRC32 of payload][payload], where
+// the payload holds the store version, the sync watermark, the interned
+// tables, the word dictionary, the packed columns as their bit width and
+// words, and the text pool. Readers only accept
+// formats they know; an unknown format or a bad checksum is treated like a
+// missing file and replaced after the next full load. Files are written to a
+// temporary name and moved into place, so a crash leaves the old copy intact.
+class CatalogSnapshotFile {
+    private static final int FILE_MAGIC = 0x504F5343; // "POSC"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 20;
+    private static final long NO_WATERMARK = Long.MIN_VALUE;
+
+    private final PosMetrics metrics;
+    private final File file;
+    private long writtenVersion = -1;
+
+    public CatalogSnapshotFile(PosMetrics metrics, File file) {
+        this.metrics = metrics;
+        this.file = file;
+    }
+
+    // Null when there is no usable file; the store is only touched once the file checks out
+    public Restored read(CatalogStore store) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("truncated header");
+            }
+            // Read into the heap rather than mapped: a mapping stays open until the
+            // buffer is collected, and on Windows that blocks replacing the file
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("file too large");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                // keep reading
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("file shrank while reading");
+            }
+            buffer.flip();
+            if (buffer.getInt() != FILE_MAGIC) {
+                throw new IOException("not a catalog snapshot");
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT_VERSION) {
+                System.err.println("Catalog snapshot format " + format + " ignored, expected " + FORMAT_VERSION);
+                return null;
+            }
+            long length = buffer.getLong();
+            int checksum = buffer.getInt();
+            if (length != channel.size() - HEADER_BYTES) {
+                throw new IOException("payload length " + length + " does not match file size");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("checksum mismatch");
+            }
+
+            long version = buffer.getLong();
+            long watermark = buffer.getLong();
+            int rows = buffer.getInt();
+            String[] categories = readStrings(buffer);
+            String[] folders = readStrings(buffer);
+            String[] words = readStrings(buffer);
+            PackedColumn ids = readColumn(buffer, rows);
+            PackedColumn prices = readColumn(buffer, rows);
+            PackedColumn stock = readColumn(buffer, rows);
+            PackedColumn categoryIds = readColumn(buffer, rows);
+            PackedColumn folderIds = readColumn(buffer, rows);
+            PackedColumn textStart = readColumn(buffer, rows);
+            PackedColumn nameLength = readColumn(buffer, rows);
+            PackedColumn imageLength = readColumn(buffer, rows);
+            byte[] text = new byte[buffer.getInt()];
+            buffer.get(text);
+
+            CatalogStore.Snapshot saved = new CatalogStore.Snapshot(rows, version, ids, prices, stock,
+                categoryIds, folderIds, textStart, nameLength, imageLength, text, words, words.length, null, categories, folders);
+            saved.check();
+            synchronized (this) {
+                writtenVersion = version;
+            }
+            return new Restored(store.restore(saved), watermark == NO_WATERMARK ? null : new Timestamp(watermark));
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException covers underflow and bad counts inside a payload that passed its checksum
+            metrics.count("catalog.snapshotCorrupt");
+            System.err.println("Catalog snapshot " + file + " not used: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Skips snapshots no newer than the last one written or read
+    public synchronized void write(CatalogStore.Snapshot snapshot, Timestamp watermark) {
+        if (snapshot.version <= writtenVersion) {
+            return;
+        }
+        long start = System.nanoTime();
+        int rows = snapshot.size;
+        byte[][] categories = encode(snapshot.categories);
+        byte[][] folders = encode(snapshot.folders);
+        byte[][] words = encode(Arrays.copyOf(snapshot.words, snapshot.wordCount));
+
+        // The pool may hold dead bytes from rewritten names; write the live rows packed
+        PackedColumn packedStart = new PackedColumn(rows);
+        int textBytes = 0;
+        for (int row = 0; row < rows; row++) {
+            packedStart = packedStart.set(row, textBytes);
+            textBytes += (int) (snapshot.nameLength.get(row) + snapshot.imageLength.get(row));
+        }
+        PackedColumn[] columns = {
+            snapshot.ids, snapshot.prices, snapshot.stock, snapshot.categoryIds, snapshot.folderIds,
+            packedStart, snapshot.nameLength, snapshot.imageLength
+        };
+        long columnBytes = 0;
+        for (PackedColumn column : columns) {
+            columnBytes += 4 + 8L * PackedColumn.wordsFor(column.getBits(), rows);
+        }
+
+        long length = 8 + 8 + 4 + sizeOf(categories) + sizeOf(folders) + sizeOf(words) + columnBytes + 4 + textBytes;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_BYTES + length));
+        buffer.position(HEADER_BYTES);
+        buffer.putLong(snapshot.version);
+        buffer.putLong(watermark != null ? watermark.getTime() : NO_WATERMARK);
+        buffer.putInt(rows);
+        writeStrings(buffer, categories);
+        writeStrings(buffer, folders);
+        writeStrings(buffer, words);
+        for (PackedColumn column : columns) {
+            writeColumn(buffer, column, rows);
+        }
+        buffer.putInt(textBytes);
+        for (int row = 0; row < rows; row++) {
+            buffer.put(snapshot.text, (int) snapshot.textStart.get(row),
+                (int) (snapshot.nameLength.get(row) + snapshot.imageLength.get(row)));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, (int) length);
+        buffer.putInt(0, FILE_MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(8, length);
+        buffer.putInt(16, (int) crc.getValue());
+        buffer.flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writtenVersion = snapshot.version;
+            metrics.timer("catalog.snapshotWrite").recordSince(start);
+        } catch (IOException e) {
+            // Keep the previous file; the next catalog change tries again
+            System.err.println("Catalog snapshot not written: " + e.getMessage());
+        }
+    }
+
+    private static PackedColumn readColumn(ByteBuffer buffer, int rows) {
+        int bits = buffer.getInt();
+        if (bits < 0 || bits > 64) {
+            throw new IllegalStateException("column of " + bits + " bits");
+        }
+        long[] words = new long[PackedColumn.wordsFor(bits, rows)];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * 8);
+        return new PackedColumn(bits, rows, words);
+    }
+
+    // Only the words holding the first rows values; a column may have room for more
+    private static void writeColumn(ByteBuffer buffer, PackedColumn column, int rows) {
+        int count = PackedColumn.wordsFor(column.getBits(), rows);
+        buffer.putInt(column.getBits());
+        buffer.asLongBuffer().put(column.getWords(), 0, count);
+        buffer.position(buffer.position() + count * 8);
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static void writeStrings(ByteBuffer buffer, byte[][] values) {
+        buffer.putInt(values.length);
+        for (byte[] value : values) {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static byte[][] encode(String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static long sizeOf(byte[][] values) {
+        long bytes = 4;
+        for (byte[] value : values) {
+            bytes += 4 + value.length;
+        }
+        return bytes;
+    }
+
+    public static final class Restored {
+        final CatalogStore.Snapshot snapshot;
+        final Timestamp watermark;
+
+        public Restored(CatalogStore.Snapshot snapshot, Timestamp watermark) {
+            this.snapshot = snapshot;
+            this.watermark = watermark;
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package pos;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// Catalog held as bit-packed columns rather than one object per product.
+// Names and image file names are dictionary encoded: each is cut into
+// words (a word keeps the space after it) and digit runs, words become
+// ids into a shared dictionary and digit runs are stored as numbers, all
+// as varints in one byte pool. Categories and image folders are interned.
+// While ids arrive in ascending order, as they do from an auto-increment
+// key, they are found by binary search; otherwise through an
+// open-addressing table. Writers publish immutable snapshots: rows and
+// words are only appended past a published size, and a batch that rewrites
+// existing rows copies the columns first, so readers on any thread take
+// snapshot() once and need no locking.
+final class CatalogStore {
+    private int size;
+    private long version;
+    private PackedColumn ids = new PackedColumn(16);
+    private PackedColumn prices = new PackedColumn(16);
+    private PackedColumn stock = new PackedColumn(16);
+    private PackedColumn categoryIds = new PackedColumn(16);
+    private PackedColumn folderIds = new PackedColumn(16);
+    private PackedColumn textStart = new PackedColumn(16);
+    private PackedColumn nameLength = new PackedColumn(16);
+    private PackedColumn imageLength = new PackedColumn(16);
+    private byte[] text = new byte[256];
+    private int textUsed;
+    private int textLive;
+    private int[] slots; // row + 1, 0 when empty; null while ids ascend
+    private String[] words = new String[64];
+    private int wordCount;
+    private int[] wordSlots = new int[128]; // word id + 1, only the writer reads it
+    private byte[] scratch = new byte[64];
+    private String[] categories = new String[0];
+    private String[] folders = new String[0];
+    private final Map<String, Integer> categoryIndex = new HashMap<>();
+    private final Map<String, Integer> folderIndex = new HashMap<>();
+    private volatile Snapshot current = snapshotOf();
+
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    // Inserts new ids and overwrites known ones; returns the snapshot it published
+    public synchronized Snapshot putAll(Batch batch) {
+        int published = size;
+        boolean copied = false;
+
+        for (int i = 0; i < batch.size; i++) {
+            int id = batch.ids[i];
+            int row = find(ids, slots, size, id);
+            if (row < 0) {
+                ensureCapacity(size + 1);
+                row = size++;
+                if (slots == null && row > 0 && id < ids.get(row - 1)) {
+                    slots = buildSlots(ids, row, slotCapacity(row + 1)); // out of order from here on
+                }
+                ids = ids.set(row, id);
+                if (slots != null) {
+                    insertSlot(slots, id, row);
+                }
+                textLive += writeText(row, batch.names[i], batch.imagePaths[i], false);
+            } else {
+                if (row < published && !copied) {
+                    copyColumns(); // published snapshots keep the columns they were given
+                    copied = true;
+                }
+                textLive += writeText(row, batch.names[i], batch.imagePaths[i], true);
+            }
+            prices = prices.set(row, batch.prices[i]);
+            stock = stock.set(row, batch.stock[i]);
+            categoryIds = categoryIds.set(row, categoryIndex.computeIfAbsent(batch.categoryNames[i], name -> {
+                categories = Arrays.copyOf(categories, categories.length + 1);
+                categories[categories.length - 1] = name;
+                return categories.length - 1;
+            }));
+        }
+
+        if (textUsed > 4096 && textLive < textUsed / 2) {
+            compactText(textLive + textLive / 4);
+        }
+        version++;
+        current = snapshotOf();
+        return current;
+    }
+
+    // Drops the given ids and closes up the rows behind them, keeping order.
+    // Ids and the slot table are rebuilt rather than patched, as published
+    // snapshots still hold the old ones.
+    public synchronized Snapshot removeAll(int[] productIds) {
+        BitSet gone = new BitSet(size);
+        for (int id : productIds) {
+            int row = find(ids, slots, size, id);
+            if (row >= 0) {
+                gone.set(row);
+            }
+        }
+        if (gone.isEmpty()) {
+            return current;
+        }
+
+        copyColumns();
+        ids = ids.copy();
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (gone.get(row)) {
+                textLive -= (int) (nameLength.get(row) + imageLength.get(row));
+                continue;
+            }
+            ids = ids.set(kept, ids.get(row));
+            prices = prices.set(kept, prices.get(row));
+            stock = stock.set(kept, stock.get(row));
+            categoryIds = categoryIds.set(kept, categoryIds.get(row));
+            folderIds = folderIds.set(kept, folderIds.get(row));
+            textStart = textStart.set(kept, textStart.get(row));
+            nameLength = nameLength.set(kept, nameLength.get(row));
+            imageLength = imageLength.set(kept, imageLength.get(row));
+            kept++;
+        }
+        size = kept;
+        if (slots != null) {
+            slots = buildSlots(ids, size, slots.length);
+        }
+
+        if (textUsed > 4096 && textLive < textUsed / 2) {
+            compactText(textLive + textLive / 4);
+        }
+        version++;
+        current = snapshotOf();
+        return current;
+    }
+
+    // Drops the growth headroom once a full load is in; the next insert grows again
+    public synchronized Snapshot trimToSize() {
+        ids = ids.withCapacity(size);
+        prices = prices.withCapacity(size);
+        stock = stock.withCapacity(size);
+        categoryIds = categoryIds.withCapacity(size);
+        folderIds = folderIds.withCapacity(size);
+        nameLength = nameLength.withCapacity(size);
+        imageLength = imageLength.withCapacity(size);
+        if (textLive < textUsed) {
+            compactText(textLive);
+        } else {
+            text = Arrays.copyOf(text, textUsed);
+        }
+        textStart = textStart.withCapacity(size);
+        words = Arrays.copyOf(words, wordCount);
+        current = snapshotOf();
+        return current;
+    }
+
+    // Adopts columns read back from disk, which carry no id table; only an
+    // empty store can be restored.
+    public synchronized Snapshot restore(Snapshot saved) {
+        if (size > 0) {
+            throw new IllegalStateException("Catalog already loaded");
+        }
+        int[] table = null;
+        for (int row = 1; row < saved.size && table == null; row++) {
+            if (saved.ids.get(row) <= saved.ids.get(row - 1)) {
+                table = new int[slotCapacity(saved.size)];
+            }
+        }
+        if (table != null) {
+            for (int row = 0; row < saved.size; row++) {
+                int id = (int) saved.ids.get(row);
+                if (find(saved.ids, table, row, id) >= 0) {
+                    throw new IllegalStateException("Duplicate product id " + id);
+                }
+                insertSlot(table, id, row);
+            }
+        }
+
+        size = saved.size;
+        version = saved.version;
+        ids = saved.ids;
+        prices = saved.prices;
+        stock = saved.stock;
+        categoryIds = saved.categoryIds;
+        folderIds = saved.folderIds;
+        textStart = saved.textStart;
+        nameLength = saved.nameLength;
+        imageLength = saved.imageLength;
+        text = saved.text;
+        textUsed = text.length;
+        textLive = text.length;
+        slots = table;
+        words = saved.words;
+        wordCount = saved.wordCount;
+        wordSlots = new int[Math.max(128, Integer.highestOneBit(Math.max(1, wordCount)) << 2)];
+        for (int word = 0; word < wordCount; word++) {
+            insertWordSlot(words[word].hashCode(), word);
+        }
+        categories = saved.categories;
+        folders = saved.folders;
+        for (int i = 0; i < categories.length; i++) {
+            categoryIndex.put(categories[i], i);
+        }
+        for (int i = 0; i < folders.length; i++) {
+            folderIndex.put(folders[i], i);
+        }
+        current = snapshotOf();
+        return current;
+    }
+
+    private Snapshot snapshotOf() {
+        return new Snapshot(size, version, ids, prices, stock, categoryIds, folderIds,
+            textStart, nameLength, imageLength, text, words, wordCount, slots, categories, folders);
+    }
+
+    // Returns the change in live pool bytes; unchanged text keeps its existing range
+    private int writeText(int row, String name, String imagePath, boolean rewrite) {
+        int cut = imagePath.lastIndexOf('/') + 1;
+        int folder = folderIndex.computeIfAbsent(imagePath.substring(0, cut), path -> {
+            folders = Arrays.copyOf(folders, folders.length + 1);
+            folders[folders.length - 1] = path;
+            return folders.length - 1;
+        });
+        folderIds = folderIds.set(row, folder);
+        int nameBytes = encode(name, 0, name.length(), 0);
+        int needed = encode(imagePath, cut, imagePath.length(), nameBytes);
+
+        int previousBytes = 0;
+        if (rewrite) {
+            int start = (int) textStart.get(row);
+            previousBytes = (int) (nameLength.get(row) + imageLength.get(row));
+            if (nameBytes == nameLength.get(row)
+                    && Arrays.equals(text, start, start + previousBytes, scratch, 0, needed)) {
+                return 0;
+            }
+        }
+
+        if (textUsed + needed > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length + text.length / 2, textUsed + needed));
+        }
+        System.arraycopy(scratch, 0, text, textUsed, needed);
+        textStart = textStart.set(row, textUsed);
+        nameLength = nameLength.set(row, nameBytes);
+        imageLength = imageLength.set(row, needed - nameBytes);
+        textUsed += needed;
+        return needed - previousBytes;
+    }
+
+    // Appends the tokens of value[from, to) to scratch at offset; returns the new end.
+    // Digit runs with a leading zero or too long for a long are kept as words.
+    private int encode(String value, int from, int to, int offset) {
+        int i = from;
+        while (i < to) {
+            int end = i;
+            if (isDigit(value.charAt(i))) {
+                while (end < to && isDigit(value.charAt(end))) {
+                    end++;
+                }
+                if ((value.charAt(i) != '0' || end - i == 1) && end - i <= 18) {
+                    offset = writeVarint(Long.parseLong(value, i, end, 10) << 1 | 1, offset);
+                    i = end;
+                    continue;
+                }
+            } else {
+                while (end < to && !isDigit(value.charAt(end)) && value.charAt(end) != ' ') {
+                    end++;
+                }
+                if (end < to && value.charAt(end) == ' ') {
+                    end++;
+                }
+            }
+            offset = writeVarint((long) wordId(value, i, end) << 1, offset);
+            i = end;
+        }
+        return offset;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int writeVarint(long value, int offset) {
+        if (offset + 10 > scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            scratch[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        scratch[offset++] = (byte) value;
+        return offset;
+    }
+
+    // Same hash as String.hashCode, without cutting the word out first
+    private int wordId(String value, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        int mask = wordSlots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int word = wordSlots[slot] - 1;
+            if (word < 0) {
+                break;
+            }
+            if (words[word].length() == to - from && words[word].regionMatches(0, value, from, to - from)) {
+                return word;
+            }
+        }
+
+        if (wordCount == words.length) {
+            words = Arrays.copyOf(words, Math.max(64, wordCount + wordCount / 2));
+        }
+        words[wordCount] = value.substring(from, to);
+        if ((wordCount + 1) * 2 > wordSlots.length) {
+            wordSlots = new int[wordSlots.length * 2];
+            for (int word = 0; word < wordCount; word++) {
+                insertWordSlot(words[word].hashCode(), word);
+            }
+        }
+        insertWordSlot(hash, wordCount);
+        return wordCount++;
+    }
+
+    private void insertWordSlot(int hash, int word) {
+        int mask = wordSlots.length - 1;
+        int slot = mix(hash) & mask;
+        while (wordSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        wordSlots[slot] = word + 1;
+    }
+
+    // Rewritten names leave dead bytes behind; repack once they outweigh the live ones
+    private void compactText(int capacity) {
+        byte[] packed = new byte[capacity];
+        PackedColumn starts = new PackedColumn(textStart.getCapacity());
+        int used = 0;
+        for (int row = 0; row < size; row++) {
+            int length = (int) (nameLength.get(row) + imageLength.get(row));
+            System.arraycopy(text, (int) textStart.get(row), packed, used, length);
+            starts = starts.set(row, used);
+            used += length;
+        }
+        text = packed;
+        textStart = starts;
+        textUsed = used;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows > ids.getCapacity()) {
+            // Half again rather than double keeps the slack small on large catalogs
+            int capacity = Math.max(Math.max(16, rows), ids.getCapacity() + ids.getCapacity() / 2);
+            ids = ids.withCapacity(capacity);
+            prices = prices.withCapacity(capacity);
+            stock = stock.withCapacity(capacity);
+            categoryIds = categoryIds.withCapacity(capacity);
+            folderIds = folderIds.withCapacity(capacity);
+            textStart = textStart.withCapacity(capacity);
+            nameLength = nameLength.withCapacity(capacity);
+            imageLength = imageLength.withCapacity(capacity);
+        }
+        if (slots != null && rows * 2 > slots.length) {
+            // Rehash into a fresh table; the old one stays with the snapshots holding it
+            slots = buildSlots(ids, size, slots.length * 2);
+        }
+    }
+
+    private void copyColumns() {
+        prices = prices.copy();
+        stock = stock.copy();
+        categoryIds = categoryIds.copy();
+        folderIds = folderIds.copy();
+        textStart = textStart.copy();
+        nameLength = nameLength.copy();
+        imageLength = imageLength.copy();
+    }
+
+    private static int slotCapacity(int rows) {
+        int capacity = 32;
+        while (capacity < rows * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int[] buildSlots(PackedColumn ids, int rows, int capacity) {
+        int[] table = new int[Math.max(capacity, slotCapacity(rows))];
+        for (int row = 0; row < rows; row++) {
+            insertSlot(table, (int) ids.get(row), row);
+        }
+        return table;
+    }
+
+    // A reader of an older snapshot may race with this write; find()
+    // ignores rows past its size, so it only ever sees rows it owns.
+    private static void insertSlot(int[] slots, int id, int row) {
+        int mask = slots.length - 1;
+        int slot = mix(id) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    private static int find(PackedColumn ids, int[] slots, int size, int id) {
+        if (slots == null) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = ids.get(mid);
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (row < 0) {
+                return -1;
+            }
+            if (row < size && ids.get(row) == id) {
+                return row;
+            }
+        }
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public static final class Snapshot {
+        final int size;
+        final long version;
+        final PackedColumn ids;
+        final PackedColumn prices;
+        final PackedColumn stock;
+        final PackedColumn categoryIds;
+        final PackedColumn folderIds;
+        final PackedColumn textStart;
+        final PackedColumn nameLength;
+        final PackedColumn imageLength;
+        final byte[] text;
+        final String[] words;
+        final int wordCount;
+        final int[] slots;
+        final String[] categories;
+        final String[] folders;
+
+        Snapshot(int size, long version, PackedColumn ids, PackedColumn prices, PackedColumn stock,
+                 PackedColumn categoryIds, PackedColumn folderIds, PackedColumn textStart, PackedColumn nameLength,
+                 PackedColumn imageLength, byte[] text, String[] words, int wordCount, int[] slots,
+                 String[] categories, String[] folders) {
+            this.size = size;
+            this.version = version;
+            this.ids = ids;
+            this.prices = prices;
+            this.stock = stock;
+            this.categoryIds = categoryIds;
+            this.folderIds = folderIds;
+            this.textStart = textStart;
+            this.nameLength = nameLength;
+            this.imageLength = imageLength;
+            this.text = text;
+            this.words = words;
+            this.wordCount = wordCount;
+            this.slots = slots;
+            this.categories = categories;
+            this.folders = folders;
+        }
+
+        public int size() { return size; }
+        public long getVersion() { return version; }
+        public int getCategoryCount() { return categories.length; }
+
+        public int indexOf(int productId) {
+            return find(ids, slots, size, productId);
+        }
+
+        public Product get(int productId) {
+            int row = indexOf(productId);
+            return row < 0 ? null : new Product(this, row);
+        }
+
+        public Product row(int row) {
+            return new Product(this, row);
+        }
+
+        public int getProductId(int row) { return (int) ids.get(row); }
+        public long getPriceCents(int row) { return prices.get(row); }
+        public int getStockQty(int row) { return (int) stock.get(row); }
+        public int getCategoryId(int row) { return (int) categoryIds.get(row); }
+        public String getCategoryName(int row) { return categories[getCategoryId(row)]; }
+        public String getCategoryNameById(int categoryId) { return categories[categoryId]; }
+
+        public String getName(int row) {
+            return decode(new StringBuilder(32), (int) textStart.get(row), (int) nameLength.get(row)).toString();
+        }
+
+        public String getImagePath(int row) {
+            StringBuilder path = new StringBuilder(folders[(int) folderIds.get(row)]);
+            int start = (int) (textStart.get(row) + nameLength.get(row));
+            return decode(path, start, (int) imageLength.get(row)).toString();
+        }
+
+        private StringBuilder decode(StringBuilder out, int start, int length) {
+            int pos = start;
+            int end = start + length;
+            while (pos < end) {
+                long code = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = text[pos++];
+                    code |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                if ((code & 1) != 0) {
+                    out.append(code >>> 1);
+                } else {
+                    out.append(words[(int) (code >>> 1)]);
+                }
+            }
+            return out;
+        }
+
+        // For columns read back from disk: every row must decode within the
+        // tables and pool it came with. Throws IllegalStateException if not.
+        void check() {
+            for (int row = 0; row < size; row++) {
+                long start = textStart.get(row);
+                long name = nameLength.get(row);
+                long image = imageLength.get(row);
+                long category = categoryIds.get(row);
+                long folder = folderIds.get(row);
+                if (category < 0 || category >= categories.length || folder < 0 || folder >= folders.length
+                        || start < 0 || name < 0 || image < 0 || start + name + image > text.length) {
+                    throw new IllegalStateException("Row " + row + " out of range");
+                }
+                checkTokens((int) start, (int) name, row);
+                checkTokens((int) (start + name), (int) image, row);
+            }
+        }
+
+        private void checkTokens(int start, int length, int row) {
+            int pos = start;
+            int end = start + length;
+            while (pos < end) {
+                long code = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if (pos == end || shift > 63) {
+                        throw new IllegalStateException("Row " + row + " has a broken token");
+                    }
+                    b = text[pos++];
+                    code |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                if ((code & 1) == 0 && (code >>> 1) >= wordCount) {
+                    throw new IllegalStateException("Row " + row + " names an unknown word");
+                }
+            }
+        }
+    }
+
+    // Rows staged for putAll, e.g. one fetch chunk or a sync delta
+    public static final class Batch {
+        private int size;
+        private int[] ids = new int[16];
+        private long[] prices = new long[16];
+        private int[] stock = new int[16];
+        private String[] names = new String[16];
+        private String[] imagePaths = new String[16];
+        private String[] categoryNames = new String[16];
+
+        public void add(int productId, String name, long priceCents, String imagePath, int stockQty, String categoryName) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+                names = Arrays.copyOf(names, capacity);
+                imagePaths = Arrays.copyOf(imagePaths, capacity);
+                categoryNames = Arrays.copyOf(categoryNames, capacity);
+            }
+            ids[size] = productId;
+            prices[size] = priceCents;
+            stock[size] = stockQty;
+            names[size] = name != null ? name : "";
+            imagePaths[size] = imagePath != null ? imagePath : "";
+            categoryNames[size] = categoryName != null ? categoryName : "Uncategorized";
+            size++;
+        }
+
+        public int size() { return size; }
+        public int getProductId(int i) { return ids[i]; }
+        public int getStockQty(int i) { return stock[i]; }
+        public String getName(int i) { return names[i]; }
+        public String getCategoryName(int i) { return categoryNames[i]; }
+    }
+}
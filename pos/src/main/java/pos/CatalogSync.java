@@ -0,0 +1,195 @@
+package pos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Keeps a local catalog in step with the product table, shared by the till
+// and the engine. Each round fetches rows whose updated_at is at or after
+// the watermark minus an overlap: updated_at is stamped when a statement
+// runs, not when it commits, so a slow transaction can surface a row older
+// than one already seen. Rows re-read inside the overlap are dropped unless
+// their stamp moved.
+//
+// updated_at says nothing about deleted rows or renamed categories, so each
+// round also compares the product count and the (small) category table.
+// A count below what the terminal holds triggers an id scan to find the
+// deletions; a renamed category refetches just its products.
+final class CatalogSync {
+    static final long OVERLAP_MILLIS = 60_000;
+
+    private static final String CHANGED_SQL =
+        "SELECT p.id, p.name, p.price, p.image, p.stock_qty, p.updated_at, c.name AS category_name " +
+        "FROM product p LEFT JOIN category c ON p.CatID = c.id WHERE p.updated_at >= ? ORDER BY p.updated_at";
+
+    private Timestamp watermark;
+    private final Map<Integer, Timestamp> recentlyApplied = new HashMap<>(); // stamps inside the overlap
+    private Map<Integer, String> categoryNames; // null until the first round
+
+    CatalogSync(Timestamp watermark) {
+        this.watermark = watermark;
+    }
+
+    synchronized Timestamp getWatermark() {
+        return watermark;
+    }
+
+    // One round against the catalog the caller currently holds. The caller
+    // applies changed rows with putAll and then removed ids with removeAll;
+    // a row fetched this round can already be among the removed.
+    synchronized Delta poll(Connection con, CatalogStore.Snapshot local) throws SQLException {
+        CatalogStore.Batch changed = new CatalogStore.Batch();
+        Set<Integer> seen = new HashSet<>();
+        Timestamp newest = watermark;
+
+        try (PreparedStatement stmt = con.prepareStatement(CHANGED_SQL)) {
+            stmt.setTimestamp(1, new Timestamp(watermark.getTime() - OVERLAP_MILLIS));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    Timestamp updatedAt = rs.getTimestamp("updated_at");
+                    if (updatedAt == null || updatedAt.equals(recentlyApplied.get(id))) {
+                        continue; // re-read inside the overlap and not touched since
+                    }
+                    CatalogLoader.readProduct(rs, changed);
+                    seen.add(id);
+                    recentlyApplied.put(id, updatedAt);
+                    if (updatedAt.after(newest)) {
+                        newest = updatedAt;
+                    }
+                }
+            }
+        }
+        watermark = newest;
+        long cutoff = watermark.getTime() - OVERLAP_MILLIS;
+        recentlyApplied.values().removeIf(stamp -> stamp.getTime() < cutoff);
+
+        List<Integer> renamed = renamedCategories(con, local);
+        if (!renamed.isEmpty()) {
+            readCategoryProducts(con, renamed, changed, seen);
+        }
+
+        int expected = local.size();
+        for (int id : seen) {
+            if (local.indexOf(id) < 0) {
+                expected++;
+            }
+        }
+        int[] removed = productCount(con) < expected ? removedIds(con, local, seen) : new int[0];
+        return new Delta(changed, removed, watermark);
+    }
+
+    // Ids of categories whose name changed since the last round. On the first
+    // round there is nothing to compare with, so any name the local catalog
+    // does not know counts as a rename made while the terminal was down.
+    private List<Integer> renamedCategories(Connection con, CatalogStore.Snapshot local) throws SQLException {
+        Map<Integer, String> current = new HashMap<>();
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM category")) {
+            while (rs.next()) {
+                current.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+
+        Set<String> known = new HashSet<>();
+        if (categoryNames == null) {
+            for (int category = 0; category < local.getCategoryCount(); category++) {
+                known.add(local.getCategoryNameById(category));
+            }
+        }
+        List<Integer> renamed = new ArrayList<>();
+        for (Map.Entry<Integer, String> category : current.entrySet()) {
+            boolean changed = categoryNames == null
+                ? !known.contains(category.getValue())
+                : categoryNames.containsKey(category.getKey())
+                    && !categoryNames.get(category.getKey()).equals(category.getValue());
+            if (changed) {
+                renamed.add(category.getKey());
+            }
+        }
+        categoryNames = current;
+        return renamed;
+    }
+
+    private static void readCategoryProducts(Connection con, List<Integer> categoryIds, CatalogStore.Batch changed,
+                                             Set<Integer> seen) throws SQLException {
+        StringBuilder sql = new StringBuilder(CatalogLoader.PRODUCTS_SQL).append(" WHERE p.CatID IN (");
+        for (int i = 0; i < categoryIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        try (PreparedStatement stmt = con.prepareStatement(sql.append(')').toString())) {
+            for (int i = 0; i < categoryIds.size(); i++) {
+                stmt.setInt(i + 1, categoryIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (seen.add(rs.getInt("id"))) {
+                        CatalogLoader.readProduct(rs, changed);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int productCount(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM product")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Only ids travel, so this stays cheap next to a full reload
+    private static int[] removedIds(Connection con, CatalogStore.Snapshot local, Set<Integer> fetched) throws SQLException {
+        BitSet present = new BitSet();
+        Set<Integer> presentOutsideRows = new HashSet<>();
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM product")) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                int row = local.indexOf(id);
+                if (row >= 0) {
+                    present.set(row);
+                } else {
+                    presentOutsideRows.add(id);
+                }
+            }
+        }
+
+        List<Integer> removed = new ArrayList<>();
+        for (int row = present.nextClearBit(0); row < local.size(); row = present.nextClearBit(row + 1)) {
+            removed.add(local.getProductId(row));
+        }
+        for (int id : fetched) {
+            if (local.indexOf(id) < 0 && !presentOutsideRows.contains(id)) {
+                removed.add(id); // fetched this round and deleted since
+            }
+        }
+        return removed.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    static final class Delta {
+        final CatalogStore.Batch changed;
+        final int[] removed;
+        final Timestamp watermark;
+
+        Delta(CatalogStore.Batch changed, int[] removed, Timestamp watermark) {
+            this.changed = changed;
+            this.removed = removed;
+            this.watermark = watermark;
+        }
+
+        boolean isEmpty() {
+            return changed.size() == 0 && removed.length == 0;
+        }
+    }
+}
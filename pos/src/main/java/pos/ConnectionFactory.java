@@ -0,0 +1,9 @@
+package pos;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Opens one physical connection; the pool and DBConnection both go through it
+interface ConnectionFactory {
+    Connection open() throws SQLException;
+}
@@ -0,0 +1,483 @@
+package pos;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded JDBC pool in front of DBConnection. Callers keep the usual
+// try-with-resources pattern: closing a pooled connection returns it, and
+// closing a prepared statement leaves it in the connection's statement cache.
+// Connections and statements are handed out as proxies bound to one
+// checkout; none of them unwraps to the physical connection.
+class ConnectionPool {
+    private static final long[] CHECKOUT_BUCKETS_MICROS = {
+        50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 1_000_000
+    };
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long checkoutTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int statementCacheSize;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int active;
+    private ScheduledExecutorService evictor;
+    private boolean stopped;
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder checkoutTimeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsEvicted = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final AtomicLongArray checkoutHistogram = new AtomicLongArray(CHECKOUT_BUCKETS_MICROS.length + 1);
+
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long checkoutTimeoutMillis,
+                          long idleTimeoutMillis, int statementCacheSize) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.checkoutTimeoutMillis = checkoutTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public synchronized void start() {
+        if (evictor != null) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, idleTimeoutMillis / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Closes the idle connections; ones still checked out close when they are returned
+    public void stop() {
+        List<PooledConnection> closing;
+        synchronized (this) {
+            if (evictor != null) {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+            stopped = true;
+            closing = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : closing) {
+            pooled.closePhysical();
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(checkoutTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                checkoutTimeouts.increment();
+                throw new SQLTransientConnectionException(
+                    "Timed out after " + checkoutTimeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a database connection", e);
+        }
+        waitNanos.add(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.open());
+                connectionsOpened.increment();
+            }
+            synchronized (this) {
+                active++;
+            }
+            checkouts.increment();
+            recordCheckout(System.nanoTime() - start);
+            return pooled.checkout();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (pooled.validate()) {
+                return pooled;
+            }
+            pooled.closePhysical();
+            connectionsEvicted.increment();
+        }
+    }
+
+    private void release(PooledConnection pooled, boolean reusable) {
+        synchronized (this) {
+            active--;
+            reusable &= !stopped;
+            if (reusable) {
+                idle.addFirst(pooled);
+            }
+        }
+        if (!reusable) {
+            pooled.closePhysical();
+            connectionsEvicted.increment();
+        }
+        permits.release();
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (this) {
+            // The deque is LIFO, so the longest-idle connections sit at the tail
+            while (!idle.isEmpty() && idle.peekLast().lastReturned < cutoff) {
+                expired.add(idle.pollLast());
+            }
+        }
+        for (PooledConnection pooled : expired) {
+            pooled.closePhysical();
+            connectionsEvicted.increment();
+        }
+    }
+
+    private void recordCheckout(long nanos) {
+        long micros = nanos / 1_000;
+        int bucket = 0;
+        while (bucket < CHECKOUT_BUCKETS_MICROS.length && micros > CHECKOUT_BUCKETS_MICROS[bucket]) {
+            bucket++;
+        }
+        checkoutHistogram.incrementAndGet(bucket);
+    }
+
+    public synchronized int getActiveCount() { return active; }
+    public synchronized int getIdleCount() { return idle.size(); }
+    public int getMaxSize() { return maxSize; }
+    public int getWaitingCount() { return permits.getQueueLength(); }
+    public long getCheckoutCount() { return checkouts.sum(); }
+    public long getCheckoutTimeoutCount() { return checkoutTimeouts.sum(); }
+    public long getTotalWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum()); }
+    public long getConnectionsOpened() { return connectionsOpened.sum(); }
+    public long getConnectionsEvicted() { return connectionsEvicted.sum(); }
+    public long getStatementCacheHits() { return statementCacheHits.sum(); }
+    public long getStatementCacheMisses() { return statementCacheMisses.sum(); }
+
+    // Upper bounds in microseconds; the last count is everything above the last bound
+    public long[] getCheckoutBucketsMicros() { return CHECKOUT_BUCKETS_MICROS.clone(); }
+
+    public long[] getCheckoutHistogram() {
+        long[] counts = new long[checkoutHistogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = checkoutHistogram.get(i);
+        }
+        return counts;
+    }
+
+    private class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final Map<String, CachedStatement> statements;
+        private final List<StatementHandle> openStatements = new ArrayList<>();
+        private volatile long lastReturned = System.currentTimeMillis();
+        private boolean checkedOut;
+        private boolean broken;
+        // Whether the open transaction may hold work; lets a committed connection skip the return rollback
+        private boolean pendingWork;
+        private Connection proxy;
+
+        public PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= statementCacheSize || eldest.getValue().inUse) {
+                        return false;
+                    }
+                    eldest.getValue().closePhysical();
+                    return true;
+                }
+            };
+        }
+
+        public Connection checkout() {
+            checkedOut = true;
+            broken = false;
+            pendingWork = false;
+            // A fresh proxy per checkout so a stale reference cannot reach the next borrower
+            proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, this);
+            return proxy;
+        }
+
+        public boolean validate() {
+            if (System.currentTimeMillis() - lastReturned < VALIDATE_AFTER_IDLE_MILLIS) {
+                return true;
+            }
+            try {
+                return physical.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            if (target != proxy) {
+                // Proxy from an earlier checkout
+                if (method.getName().equals("close")) return null;
+                if (method.getName().equals("isClosed")) return true;
+                throw new SQLException("Connection has been returned to the pool");
+            }
+
+            if (method.getName().equals("close")) {
+                returnToPool();
+                return null;
+            }
+            if (method.getName().equals("isClosed")) {
+                return !checkedOut;
+            }
+            if (!checkedOut) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement")
+                    && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer))) {
+                return prepareCached(args);
+            }
+            switch (method.getName()) {
+                case "commit":
+                case "rollback":
+                    Object result = invokePhysical(physical, method, args);
+                    if (args == null) {
+                        pendingWork = false;
+                    }
+                    return result;
+                case "createStatement":
+                case "prepareStatement":
+                case "prepareCall":
+                    Statement statement = (Statement) invokePhysical(physical, method, args);
+                    return new StatementHandle(statement, method.getReturnType(), null).proxy;
+                case "getMetaData":
+                    return shieldMetaData((DatabaseMetaData) invokePhysical(physical, method, args));
+                case "unwrap":
+                    return unwrap(proxy, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    return invokePhysical(physical, method, args);
+            }
+        }
+
+        private Object invokePhysical(Object delegate, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        broken = true; // connection exception class; do not hand it out again
+                    }
+                }
+                throw cause;
+            }
+        }
+
+        // Borrowers only ever see proxies; the physical connection stays with the pool
+        private Object unwrap(Object wrapper, Class<?> iface) throws SQLException {
+            if (iface.isInstance(wrapper)) {
+                return wrapper;
+            }
+            throw new SQLException("Pooled connection does not expose " + iface.getName());
+        }
+
+        private DatabaseMetaData shieldMetaData(DatabaseMetaData metaData) {
+            Connection owner = proxy;
+            return (DatabaseMetaData) Proxy.newProxyInstance(DatabaseMetaData.class.getClassLoader(),
+                new Class<?>[] { DatabaseMetaData.class }, (target, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConnection":
+                            return owner;
+                        case "unwrap":
+                            return unwrap(target, (Class<?>) args[0]);
+                        case "isWrapperFor":
+                            return ((Class<?>) args[0]).isInstance(target);
+                        default:
+                            return invokePhysical(metaData, method, args);
+                    }
+                });
+        }
+
+        private PreparedStatement prepareCached(Object[] args) throws Throwable {
+            String sql = (String) args[0];
+            int generatedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+            String key = generatedKeys + ":" + sql;
+
+            CachedStatement cached = statements.get(key);
+            if (cached == null || cached.inUse) {
+                statementCacheMisses.increment();
+                PreparedStatement statement = args.length == 2
+                    ? physical.prepareStatement(sql, generatedKeys)
+                    : physical.prepareStatement(sql);
+                if (cached != null) {
+                    // Same SQL already open on this connection; hand out an uncached one
+                    return (PreparedStatement) new StatementHandle(statement, PreparedStatement.class, null).proxy;
+                }
+                cached = new CachedStatement(statement);
+                statements.put(key, cached);
+            } else {
+                statementCacheHits.increment();
+            }
+            cached.inUse = true;
+            return (PreparedStatement) new StatementHandle(cached.physicalStatement, PreparedStatement.class, cached).proxy;
+        }
+
+        private void returnToPool() {
+            if (!checkedOut) {
+                return;
+            }
+            checkedOut = false;
+            boolean reusable = !broken;
+            try {
+                // Statements the borrower left open go with the checkout
+                while (!openStatements.isEmpty()) {
+                    openStatements.get(openStatements.size() - 1).release();
+                }
+                if (reusable && !physical.getAutoCommit()) {
+                    if (pendingWork) {
+                        physical.rollback(); // discard anything the borrower left uncommitted
+                    }
+                    physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+            lastReturned = System.currentTimeMillis();
+            release(this, reusable);
+        }
+
+        public void closePhysical() {
+            for (CachedStatement cached : statements.values()) {
+                cached.closePhysical();
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // already unusable
+            }
+        }
+
+        private class CachedStatement {
+            private final PreparedStatement physicalStatement;
+            private boolean inUse;
+
+            public CachedStatement(PreparedStatement physicalStatement) {
+                this.physicalStatement = physicalStatement;
+            }
+
+            public void closePhysical() {
+                try {
+                    physicalStatement.close();
+                } catch (SQLException e) {
+                    // ignore, the connection is going away or the statement was evicted
+                }
+            }
+        }
+
+        // One per statement handed out. It stops working when the borrower
+        // closes it or returns the connection, so a stale reference cannot
+        // run on the next borrower's checkout. Closing gives a cached
+        // statement back to the cache and closes any other.
+        private class StatementHandle implements InvocationHandler {
+            private final Statement physicalStatement;
+            private final CachedStatement cached;
+            private final Connection owner = PooledConnection.this.proxy;
+            private final Statement proxy;
+            private boolean closed;
+
+            public StatementHandle(Statement physicalStatement, Class<?> type, CachedStatement cached) {
+                this.physicalStatement = physicalStatement;
+                this.cached = cached;
+                this.proxy = (Statement) Proxy.newProxyInstance(
+                    Statement.class.getClassLoader(), new Class<?>[] { type }, this);
+                openStatements.add(this);
+            }
+
+            @Override
+            public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        release();
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException(checkedOut && owner == PooledConnection.this.proxy
+                        ? "Statement is closed" : "Connection has been returned to the pool");
+                }
+                switch (method.getName()) {
+                    case "getConnection":
+                        return owner;
+                    case "unwrap":
+                        return unwrap(proxy, (Class<?>) args[0]);
+                    case "isWrapperFor":
+                        return ((Class<?>) args[0]).isInstance(proxy);
+                    default:
+                        if (method.getName().startsWith("execute")) {
+                            pendingWork = true;
+                        }
+                        return invokePhysical(physicalStatement, method, args);
+                }
+            }
+
+            public void release() throws SQLException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                openStatements.remove(this);
+                if (cached == null) {
+                    physicalStatement.close();
+                } else {
+                    cached.inUse = false;
+                    cached.physicalStatement.clearParameters();
+                    cached.physicalStatement.clearBatch();
+                }
+            }
+        }
+    }
+}
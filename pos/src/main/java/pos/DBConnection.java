@@ -0,0 +1,31 @@
+package pos;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+// Where every physical database connection comes from. By default the URL and
+// credentials are read from db.url, db.user and db.password; tests, benchmarks
+// and the load simulator install their own factory instead, e.g. an embedded H2.
+// Keep rewriteBatchedStatements in a custom db.url: without it each row of a
+// commit batch is its own round trip.
+public final class DBConnection {
+    private static final ConnectionFactory FROM_PROPERTIES = () -> DriverManager.getConnection(
+        System.getProperty("db.url", "jdbc:mysql://localhost:3306/pos?rewriteBatchedStatements=true"),
+        System.getProperty("db.user", "root"),
+        System.getProperty("db.password", ""));
+
+    private static volatile ConnectionFactory factory = FROM_PROPERTIES;
+
+    private DBConnection() {
+    }
+
+    public static Connection getConnection() throws SQLException {
+        return factory.open();
+    }
+
+    // Null goes back to the system-property connection
+    static void setConnectionFactory(ConnectionFactory replacement) {
+        factory = replacement != null ? replacement : FROM_PROPERTIES;
+    }
+}
@@ -0,0 +1,202 @@
+package pos;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+// Watches the event dispatch thread. An event queue pushed in front of the
+// system one stamps the start of every dispatch; once the running one is past
+// the threshold the EDT's stack is sampled until it returns. A heartbeat is
+// also posted to the EDT and timed until it runs, which gives queue latency.
+// Each stall is then written as a short report (duration plus the most
+// frequent sampled stacks) to a size-capped rolling log.
+class EdtWatchdog {
+    private static final int REPORT_STACKS = 3;
+    private static final int REPORT_FRAMES = 15;
+    private static final long LOG_MAX_BYTES = 1_000_000;
+    private static final int LOG_GENERATIONS = 3;
+
+    private final PosMetrics metrics;
+    private final long thresholdNanos;
+    private final long sampleMillis;
+    private final long heartbeatNanos;
+    private final File logFile;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "edt-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TimedEventQueue queue;
+    private volatile long postedNanos;
+    private long lastPostNanos;
+    private long stallStartNanos;
+    private int stallSamples;
+    private final Map<List<StackTraceElement>, Integer> stallStacks = new HashMap<>();
+
+    public EdtWatchdog(PosMetrics metrics, long thresholdMillis, long sampleMillis, File logFile) {
+        this.metrics = metrics;
+        this.sampleMillis = sampleMillis;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(sampleMillis, 100));
+        this.logFile = logFile;
+    }
+
+    public void start() {
+        queue = TimedEventQueue.install();
+        timer.scheduleAtFixedRate(this::tick, sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        timer.shutdownNow();
+    }
+
+    // Runs on the EDT
+    private void beat() {
+        metrics.timer("edt.dispatch").recordSince(postedNanos);
+        postedNanos = 0;
+    }
+
+    // Runs on the watchdog thread only
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            if (postedNanos == 0 && now - lastPostNanos >= heartbeatNanos) {
+                lastPostNanos = now;
+                postedNanos = now;
+                SwingUtilities.invokeLater(this::beat);
+            }
+
+            // A different start, or none, means the stalled dispatch returned
+            long started = queue.startedNanos;
+            if (stallSamples > 0 && started != stallStartNanos) {
+                finishStall(queue.endedNanos);
+            }
+
+            Thread dispatcher = queue.dispatcher;
+            if (started != 0 && now - started >= thresholdNanos && dispatcher != null) {
+                if (stallSamples == 0) {
+                    stallStartNanos = started;
+                }
+                stallSamples++;
+                StackTraceElement[] stack = dispatcher.getStackTrace();
+                List<StackTraceElement> top = Arrays.asList(stack).subList(0, Math.min(stack.length, REPORT_FRAMES));
+                stallStacks.merge(top, 1, Integer::sum);
+            }
+        } catch (RuntimeException e) {
+            // Never let one bad tick cancel the schedule
+        }
+    }
+
+    private void finishStall(long endNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(endNanos - stallStartNanos);
+
+        List<Map.Entry<List<StackTraceElement>, Integer>> ranked = new ArrayList<>(stallStacks.entrySet());
+        ranked.sort((a, b) -> b.getValue() - a.getValue());
+
+        StringBuilder report = new StringBuilder(1024);
+        report.append(LocalDateTime.now()).append(" EDT stall ").append(millis)
+              .append(" ms, ").append(stallSamples).append(" samples\n");
+        for (int i = 0; i < Math.min(REPORT_STACKS, ranked.size()); i++) {
+            Map.Entry<List<StackTraceElement>, Integer> entry = ranked.get(i);
+            report.append("  ").append(entry.getValue() * 100 / stallSamples).append("% (")
+                  .append(entry.getValue()).append(")\n");
+            for (StackTraceElement frame : entry.getKey()) {
+                report.append("      at ").append(frame).append('\n');
+            }
+        }
+        report.append('\n');
+
+        stallSamples = 0;
+        stallStacks.clear();
+        write(report.toString());
+        // Counted last, so a stall that shows in the metrics is already in the log
+        metrics.count("edt.stalls");
+        metrics.timer("edt.stall").record(endNanos - stallStartNanos);
+    }
+
+    private void write(String report) {
+        try {
+            File dir = logFile.getAbsoluteFile().getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+            if (logFile.length() > LOG_MAX_BYTES) {
+                roll();
+            }
+            Files.write(logFile.toPath(), report.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("EDT stall log unavailable: " + e.getMessage());
+        }
+    }
+
+    // edt-stalls.log -> .1 -> .2 ..., dropping the oldest
+    private void roll() {
+        File oldest = new File(logFile.getPath() + "." + LOG_GENERATIONS);
+        oldest.delete();
+        for (int i = LOG_GENERATIONS - 1; i >= 1; i--) {
+            new File(logFile.getPath() + "." + i).renameTo(new File(logFile.getPath() + "." + (i + 1)));
+        }
+        logFile.renameTo(new File(logFile.getPath() + ".1"));
+    }
+
+    // One per JVM, shared by every watchdog. A dispatch that opens a modal
+    // dialog waits in getNextEvent while the dialog's events are pumped, and
+    // counts as idle there; the enclosing dispatch restarts its clock when a
+    // nested one returns.
+    private static final class TimedEventQueue extends EventQueue {
+        private static TimedEventQueue installed;
+
+        volatile Thread dispatcher;
+        volatile long startedNanos; // 0 while waiting for an event
+        volatile long endedNanos;
+        private int depth;
+
+        static synchronized TimedEventQueue install() {
+            if (installed == null) {
+                installed = new TimedEventQueue();
+                Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+            }
+            return installed;
+        }
+
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException {
+            if (startedNanos != 0) {
+                endedNanos = System.nanoTime();
+                startedNanos = 0;
+            }
+            return super.getNextEvent();
+        }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            dispatcher = Thread.currentThread();
+            depth++;
+            startedNanos = System.nanoTime();
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long now = System.nanoTime();
+                endedNanos = now;
+                startedNanos = --depth > 0 ? now : 0;
+            }
+        }
+    }
+}
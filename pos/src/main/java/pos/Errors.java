@@ -0,0 +1,15 @@
+package pos;
+
+final class Errors {
+    private Errors() {
+    }
+
+    // The innermost cause usually carries the message worth showing
+    static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
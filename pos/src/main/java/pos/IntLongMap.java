@@ -0,0 +1,78 @@
+package pos;
+
+import java.util.Arrays;
+
+// Open-addressing int -> long map with linear probing, so per-product and
+// per-staff totals are kept without boxing. Missing keys read as 0.
+final class IntLongMap {
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    public IntLongMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int h = key * 0x9E3779B9;
+        int i = (h ^ h >>> 16) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    public long get(int key) {
+        int i = slot(key);
+        return keys[i] == key ? values[i] : 0;
+    }
+
+    // Adds delta and returns the new total
+    public long add(int key, long delta) {
+        int i = slot(key);
+        if (keys[i] != key) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                i = slot(key);
+            }
+            keys[i] = key;
+            size++;
+        }
+        return values[i] += delta;
+    }
+
+    public int[] keys() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                out[n++] = key;
+            }
+        }
+        return out;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
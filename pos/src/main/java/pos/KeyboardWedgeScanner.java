@@ -0,0 +1,94 @@
+package pos;
+
+import java.awt.Component;
+import java.awt.KeyEventDispatcher;
+import java.awt.KeyboardFocusManager;
+import java.awt.event.KeyEvent;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.text.JTextComponent;
+
+// Tells keyboard-wedge scanner bursts apart from typing. Digit keystrokes
+// inside the panel are held back instead of reaching the focused field;
+// if Enter follows a long enough run of digits that arrived no more than
+// maxGap apart, the run is a scan and goes to onScan. Otherwise the held
+// digits are typed into the focused text field after maxGap, which a person
+// typing does not notice.
+class KeyboardWedgeScanner implements KeyEventDispatcher {
+    private final Component scope;
+    private final int minLength;
+    private final long maxGapMillis;
+    private final Consumer<String> onScan;
+    private final StringBuilder held = new StringBuilder(32);
+    private final javax.swing.Timer flushTimer;
+    private long lastKeyMillis;
+    private boolean swallowEnter;
+
+    public KeyboardWedgeScanner(Component scope, int minLength, long maxGapMillis, Consumer<String> onScan) {
+        this.scope = scope;
+        this.minLength = minLength;
+        this.maxGapMillis = maxGapMillis;
+        this.onScan = onScan;
+        this.flushTimer = new javax.swing.Timer((int) maxGapMillis, e -> flush());
+        this.flushTimer.setRepeats(false);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent e) {
+        if (e.getComponent() == null || !SwingUtilities.isDescendingFrom(e.getComponent(), scope)) {
+            return false;
+        }
+
+        if (e.getID() == KeyEvent.KEY_TYPED) {
+            char c = e.getKeyChar();
+            if (c == '\n' && swallowEnter) {
+                swallowEnter = false;
+                return true;
+            }
+            if (c >= '0' && c <= '9' && e.getModifiersEx() == 0) {
+                if (held.length() > 0 && e.getWhen() - lastKeyMillis > maxGapMillis) {
+                    flush();
+                }
+                held.append(c);
+                lastKeyMillis = e.getWhen();
+                flushTimer.restart();
+                return true;
+            }
+            flush();
+            return false;
+        }
+
+        if (e.getID() == KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_ENTER && held.length() > 0) {
+            if (held.length() >= minLength && e.getWhen() - lastKeyMillis <= maxGapMillis) {
+                flushTimer.stop();
+                String code = held.toString();
+                held.setLength(0);
+                swallowEnter = true;
+                onScan.accept(code);
+                return true;
+            }
+            flush();
+        }
+        return false;
+    }
+
+    // Drops a half-read burst, e.g. when the panel goes away mid-scan
+    public void reset() {
+        flushTimer.stop();
+        held.setLength(0);
+        swallowEnter = false;
+    }
+
+    // Hands held digits to whatever text field has focus, as if typed normally
+    private void flush() {
+        flushTimer.stop();
+        if (held.length() == 0) {
+            return;
+        }
+        Component owner = KeyboardFocusManager.getCurrentKeyboardFocusManager().getFocusOwner();
+        if (owner instanceof JTextComponent && ((JTextComponent) owner).isEditable()) {
+            ((JTextComponent) owner).replaceSelection(held.toString());
+        }
+        held.setLength(0);
+    }
+}
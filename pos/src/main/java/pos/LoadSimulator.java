@@ -0,0 +1,384 @@
+package pos;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Replays a busy shop against the database behind the pool it is given.
+// Each simulated terminal sells through CartCheckout, the same add-to-order
+// and place-order steps as the till, with its own reservation cache and
+// order committer as separate tills would have, so contention on product
+// rows is left to the database. Nothing is shared with PosServices.
+// Sales are really written: run it against a scratch copy of the schema.
+class LoadSimulator {
+    private static final String[] PAYMENT_METHODS = { "Cash", "Card", "QRCode" };
+    private static final long PROGRESS_INTERVAL_MS = 10_000;
+
+    private final ConnectionPool connectionPool;
+    private final PosMetrics metrics;
+    private final int terminals;
+    private final long durationMillis;
+    private final double cartSizeMean;
+    private final int cartSizeMax;
+    private final int quantityMax;
+    private final double zipfExponent;
+    private final long scanPauseMillis;
+    private final int staffId;
+    private final long seed;
+    private final int maxBatch;
+    private final PrintStream out;
+
+    private final CatalogStore catalog = new CatalogStore();
+    private CatalogStore.Snapshot snapshot;
+    private double[] popularity; // cumulative share by popularity rank
+    private int[] rankToRow;
+    private AtomicLongArray soldByRow;
+
+    private final PosMetrics.LatencyTimer checkoutLatency = new PosMetrics.LatencyTimer();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder refusedScans = new LongAdder();
+    private final LongAdder units = new LongAdder();
+
+    public LoadSimulator(ConnectionPool connectionPool, PosMetrics metrics, int terminals, long durationMillis, double cartSizeMean, int cartSizeMax,
+                         int quantityMax, double zipfExponent, long scanPauseMillis, int staffId, long seed, int maxBatch,
+                         PrintStream out) {
+        this.connectionPool = connectionPool;
+        this.metrics = metrics;
+        this.terminals = Math.max(1, terminals);
+        this.durationMillis = durationMillis;
+        this.cartSizeMean = Math.max(1, cartSizeMean);
+        this.cartSizeMax = Math.max(1, cartSizeMax);
+        this.quantityMax = Math.max(1, quantityMax);
+        this.zipfExponent = Math.max(0, zipfExponent);
+        this.scanPauseMillis = scanPauseMillis;
+        this.staffId = staffId;
+        this.seed = seed;
+        this.maxBatch = maxBatch;
+        this.out = out;
+    }
+
+    public static LoadSimulator fromSystemProperties(ConnectionPool connectionPool, PosMetrics metrics) {
+        return new LoadSimulator(connectionPool, metrics,
+            Integer.getInteger("sim.terminals", 8),
+            Long.getLong("sim.seconds", 60) * 1000,
+            Double.parseDouble(System.getProperty("sim.cartSize", "4")),
+            Integer.getInteger("sim.cartSizeMax", 40),
+            Integer.getInteger("sim.qtyMax", 2),
+            Double.parseDouble(System.getProperty("sim.zipf", "1.0")),
+            Long.getLong("sim.scanMs", 0),
+            Integer.getInteger("sim.staffId", 1),
+            Long.getLong("sim.seed", 42),
+            Integer.getInteger("order.commit.maxBatch", 16),
+            System.out);
+    }
+
+    public Result run() throws SQLException, InterruptedException {
+        loadCatalog();
+        if (snapshot.size() == 0) {
+            throw new SQLException("No products to sell");
+        }
+        if (terminals > connectionPool.getMaxSize()) {
+            out.println("Note: " + terminals + " terminals share a pool of " + connectionPool.getMaxSize()
+                + " connections; raise -Ddb.pool.size to give each its own");
+        }
+
+        long[] locksBefore = readRowLockStatus();
+        long poolWaitBefore = connectionPool.getTotalWaitMillis();
+        long start = System.currentTimeMillis();
+        long deadline = start + durationMillis;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < terminals; i++) {
+            Thread thread = new Thread(new Terminal(new Random(seed + i), deadline), "sim-terminal-" + (i + 1));
+            thread.start();
+            threads.add(thread);
+        }
+        long lastCheckouts = 0;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(PROGRESS_INTERVAL_MS);
+                if (thread.isAlive()) {
+                    long done = checkouts.sum();
+                    out.printf("%5ds  %8d checkouts  %7.1f/s%n", (System.currentTimeMillis() - start) / 1000,
+                        done, (done - lastCheckouts) * 1000.0 / PROGRESS_INTERVAL_MS);
+                    lastCheckouts = done;
+                }
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        return report(elapsed, locksBefore, readRowLockStatus(), connectionPool.getTotalWaitMillis() - poolWaitBefore);
+    }
+
+    private void loadCatalog() throws SQLException {
+        try (Connection con = connectionPool.getConnection();
+             PreparedStatement stmt = con.prepareStatement(CatalogLoader.PRODUCTS_SQL)) {
+            stmt.setFetchSize(CatalogLoader.LOAD_CHUNK_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                CatalogStore.Batch batch = new CatalogStore.Batch();
+                while (rs.next()) {
+                    CatalogLoader.readProduct(rs, batch);
+                    if (batch.size() == CatalogLoader.LOAD_CHUNK_SIZE) {
+                        catalog.putAll(batch);
+                        batch = new CatalogStore.Batch();
+                    }
+                }
+                catalog.putAll(batch);
+            }
+            snapshot = catalog.trimToSize();
+        }
+        soldByRow = new AtomicLongArray(snapshot.size());
+
+        // Popularity follows Zipf over a shuffled catalog, so best sellers are not simply the lowest ids
+        int rows = snapshot.size();
+        rankToRow = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            rankToRow[i] = i;
+        }
+        Random shuffle = new Random(seed);
+        for (int i = rows - 1; i > 0; i--) {
+            int j = shuffle.nextInt(i + 1);
+            int swap = rankToRow[i];
+            rankToRow[i] = rankToRow[j];
+            rankToRow[j] = swap;
+        }
+        popularity = new double[rows];
+        double total = 0;
+        for (int rank = 0; rank < rows; rank++) {
+            total += 1 / Math.pow(rank + 1, zipfExponent);
+            popularity[rank] = total;
+        }
+        for (int rank = 0; rank < rows; rank++) {
+            popularity[rank] /= total;
+        }
+    }
+
+    private int pickRow(Random random) {
+        int rank = Arrays.binarySearch(popularity, random.nextDouble());
+        rank = rank >= 0 ? rank : Math.min(-rank - 1, popularity.length - 1);
+        return rankToRow[rank];
+    }
+
+    // Geometric with the configured mean, at least one line
+    private int cartSize(Random random) {
+        if (cartSizeMean <= 1) {
+            return 1;
+        }
+        double p = 1 / cartSizeMean;
+        int extra = (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+        return Math.min(cartSizeMax, 1 + extra);
+    }
+
+    private final class Terminal implements Runnable {
+        private final Random random;
+        private final long deadline;
+        private final StockReservations reservations = new StockReservations();
+        private final BitSet seeded = new BitSet();
+        private final OrderCommitter committer = new OrderCommitter(
+            null, connectionPool, metrics, null, null, maxBatch, 1000);
+        private final CartCheckout checkout = new CartCheckout(reservations, committer);
+
+        public Terminal(Random random, long deadline) {
+            this.random = random;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            committer.start();
+            try {
+                runSales();
+            } finally {
+                try {
+                    committer.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void runSales() {
+            CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+            while (System.currentTimeMillis() < deadline) {
+                Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+                for (int lines = cartSize(random); lines > 0; lines--) {
+                    scan(cart, pickRow(random), 1 + random.nextInt(quantityMax));
+                }
+                if (cart.isEmpty()) {
+                    continue;
+                }
+
+                // The next sale goes in once the last one settled, as at a till where
+                // the commit finishes while the next customer is being scanned
+                previous.join();
+                OrderSnapshot order = new OrderSnapshot(cart, PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)], staffId);
+                long start = System.nanoTime();
+                previous = checkout.placeOrder(order).handle((result, error) -> {
+                    record(order, error, start);
+                    return null;
+                });
+            }
+            previous.join();
+        }
+
+        // A terminal learns a product's stock the first time it sells one, as a till loads its catalog
+        private void scan(Cart cart, int row, int quantity) {
+            int productId = snapshot.getProductId(row);
+            if (!seeded.get(row)) {
+                reservations.setOnHand(productId, snapshot.getStockQty(row));
+                seeded.set(row);
+            }
+            if (!checkout.add(cart, productId, snapshot.getName(row), snapshot.getPriceCents(row), quantity)) {
+                refusedScans.increment();
+                return;
+            }
+            if (scanPauseMillis > 0) {
+                try {
+                    Thread.sleep(scanPauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        // CartCheckout has settled the holds by now; this only counts
+        private void record(OrderSnapshot order, Throwable error, long startNanos) {
+            checkoutLatency.recordSince(startNanos);
+            Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+            if (failure == null) {
+                for (OrderItem item : order.getItems()) {
+                    soldByRow.addAndGet(snapshot.indexOf(item.getProductId()), item.getQuantity());
+                    units.add(item.getQuantity());
+                }
+                checkouts.increment();
+            } else if (failure instanceof StockConflictException) {
+                conflicts.increment();
+            } else {
+                failures.increment();
+            }
+        }
+    }
+
+    // Oversold rows are negative in the database; drift is any row whose
+    // stock moved by something other than the units this run sold, such
+    // as another till or this JVM replaying its order journal.
+    private Result report(long elapsedMillis, long[] locksBefore, long[] locksAfter, long poolWaitMillis) throws SQLException {
+        int oversold = 0;
+        int driftRows = 0;
+        long driftUnits = 0;
+        try (Connection con = connectionPool.getConnection();
+             PreparedStatement stmt = con.prepareStatement("SELECT id, stock_qty FROM product");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int row = snapshot.indexOf(rs.getInt(1));
+                int stockQty = rs.getInt(2);
+                if (stockQty < 0) {
+                    oversold++;
+                }
+                if (row >= 0) {
+                    long expected = snapshot.getStockQty(row) - soldByRow.get(row);
+                    if (stockQty != expected) {
+                        driftRows++;
+                        driftUnits += Math.abs(stockQty - expected);
+                    }
+                }
+            }
+        }
+        Result result = new Result(checkouts.sum(), units.sum(), conflicts.sum(), failures.sum(), oversold,
+            driftRows, driftUnits);
+
+        double seconds = elapsedMillis / 1000.0;
+        out.printf("%nSimulated %d terminals for %.1f s over %d products (zipf %.2f, mean cart %.1f lines)%n",
+            terminals, seconds, snapshot.size(), zipfExponent, cartSizeMean);
+        out.printf("checkouts        %d  (%.1f/s, %d units)%n", result.checkouts, result.checkouts / seconds, result.units);
+        out.printf("checkout latency p50 %s  p90 %s  p99 %s  max %s%n",
+            millis(checkoutLatency.getPercentileMicros(0.5)), millis(checkoutLatency.getPercentileMicros(0.9)),
+            millis(checkoutLatency.getPercentileMicros(0.99)), millis(checkoutLatency.getMaxMicros()));
+        PosMetrics.LatencyTimer commits = metrics.timer("db.commit");
+        out.printf("commit txn       p50 %s  p99 %s  (%d transactions)%n",
+            millis(commits.getPercentileMicros(0.5)), millis(commits.getPercentileMicros(0.99)), commits.getCount());
+        // The stock UPDATE is where this run's transactions queue on each other's product row locks
+        PosMetrics.LatencyTimer stockUpdates = metrics.timer("db.stockUpdate");
+        out.printf("stock row locks  p50 %s  p99 %s  max %s  (%d ms in the stock update, waits included)%n",
+            millis(stockUpdates.getPercentileMicros(0.5)), millis(stockUpdates.getPercentileMicros(0.99)),
+            millis(stockUpdates.getMaxMicros()), TimeUnit.NANOSECONDS.toMillis(stockUpdates.getTotalNanos()));
+        out.printf("stock conflicts  %d orders rejected at commit, %d scans refused by the local cache%n",
+            result.stockConflicts, refusedScans.sum());
+        out.printf("failed orders    %d%n", result.failures);
+        if (locksBefore != null && locksAfter != null) {
+            long waits = locksAfter[0] - locksBefore[0];
+            long waitMillis = locksAfter[1] - locksBefore[1];
+            out.printf("server row locks %d waits, %d ms  (InnoDB, every client and table on the server)%n",
+                waits, waitMillis);
+        }
+        out.printf("pool wait        %d ms%n", poolWaitMillis);
+        out.printf("oversold rows    %d%n", result.oversoldRows);
+        out.printf("stock drift      %d rows, %d units%n", result.driftRows, result.driftUnits);
+        return result;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f ms", micros / 1000.0);
+    }
+
+    // Server-wide InnoDB counters, only shown as context since other clients
+    // and tables count too; null when not MySQL.
+    private long[] readRowLockStatus() {
+        try (Connection con = connectionPool.getConnection();
+             PreparedStatement stmt = con.prepareStatement("SHOW GLOBAL STATUS LIKE 'Innodb_row_lock_%'");
+             ResultSet rs = stmt.executeQuery()) {
+            long waits = -1;
+            long waitMillis = -1;
+            while (rs.next()) {
+                switch (rs.getString(1)) {
+                    case "Innodb_row_lock_waits":
+                        waits = Long.parseLong(rs.getString(2));
+                        break;
+                    case "Innodb_row_lock_time":
+                        waitMillis = Long.parseLong(rs.getString(2));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return waits < 0 || waitMillis < 0 ? null : new long[] { waits, waitMillis };
+        } catch (SQLException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static final class Result {
+        final long checkouts;
+        final long units;
+        final long stockConflicts;
+        final long failures;
+        final int oversoldRows;
+        final int driftRows;
+        final long driftUnits;
+
+        Result(long checkouts, long units, long stockConflicts, long failures, int oversoldRows, int driftRows,
+               long driftUnits) {
+            this.checkouts = checkouts;
+            this.units = units;
+            this.stockConflicts = stockConflicts;
+            this.failures = failures;
+            this.oversoldRows = oversoldRows;
+            this.driftRows = driftRows;
+            this.driftUnits = driftUnits;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package pos;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts are carried as whole cents everywhere; these convert at the edges
+final class Money {
+    private Money() {
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    static String format(long cents) {
+        long units = Math.abs(cents) / 100;
+        long fraction = Math.abs(cents) % 100;
+        return (cents < 0 ? "-$" : "$") + units + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
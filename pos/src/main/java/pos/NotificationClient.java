@@ -0,0 +1,7 @@
+package pos;
+
+import java.io.IOException;
+
+interface NotificationClient {
+    void send(String text) throws IOException;
+}
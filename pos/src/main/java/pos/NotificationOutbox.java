@@ -0,0 +1,256 @@
+package pos;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Sale notifications via a transactional outbox. Each sale inserts its
+// message into pos_notification_outbox inside the sale's own transaction,
+// so a notification exists exactly when the sale does, and checkout never
+// waits on the internet. A dispatcher thread claims unsent rows under a
+// lease (so several terminals can share one table), folds them into one
+// digest message, spends a token from a rate-limit bucket and sends. On
+// failure the claim is released and retried with exponential backoff, or
+// after Telegram's retry_after on a 429.
+class NotificationOutbox {
+    private static final int MAX_ATTEMPTS = 20;
+    private static final int LEASE_SECONDS = 60;
+    private static final int MAX_MESSAGE_CHARS = 4000;
+    private static final long MAX_BACKOFF_MILLIS = 300_000;
+
+    private final ConnectionPool connectionPool;
+    private final PosMetrics metrics;
+    private final NotificationClient client;
+    private final TokenBucket bucket;
+    private final int maxDigest;
+    private final long pollMillis;
+    private final long coalesceMillis;
+    private volatile boolean tableReady;
+    private boolean wakeRequested;
+    private Thread worker;
+
+    NotificationOutbox(ConnectionPool connectionPool, PosMetrics metrics, NotificationClient client,
+                       TokenBucket bucket, int maxDigest, long pollMillis, long coalesceMillis) {
+        this.connectionPool = connectionPool;
+        this.metrics = metrics;
+        this.client = client;
+        this.bucket = bucket;
+        this.maxDigest = Math.max(1, maxDigest);
+        this.pollMillis = pollMillis;
+        this.coalesceMillis = coalesceMillis;
+    }
+
+    // Without a client this terminal only writes rows, so there is nothing to start
+    public synchronized void start() {
+        if (client != null && worker == null) {
+            worker = new Thread(this::dispatchLoop, "notification-dispatcher");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    // The bot token and chat id only ever come from system properties. With
+    // notify.outbox=true but no token, this terminal writes rows for another
+    // terminal to send. With neither, there is no outbox.
+    public static NotificationOutbox fromSystemProperties(ConnectionPool connectionPool, PosMetrics metrics) {
+        String token = System.getProperty("telegram.bot.token");
+        String chatId = System.getProperty("telegram.chat.id");
+        NotificationClient client = null;
+        if (token != null && chatId != null) {
+            client = new TelegramClient(System.getProperty("telegram.api.url", "https://api.telegram.org"), token, chatId);
+        } else if (!Boolean.getBoolean("notify.outbox")) {
+            return null;
+        }
+        return new NotificationOutbox(connectionPool, metrics, client,
+            new TokenBucket(Integer.getInteger("notify.ratePerMinute", 20), Integer.getInteger("notify.burst", 3)),
+            Integer.getInteger("notify.maxDigest", 20),
+            Long.getLong("notify.pollMs", 5000),
+            Long.getLong("notify.coalesceMs", 2000));
+    }
+
+    // Runs inside the sale transaction, one row per sale in a single batch.
+    // The caller creates the table with ensureTable before opening the transaction.
+    public void record(Connection con, List<OrderSnapshot> orders, int[] saleIds) throws SQLException {
+        String sql = "INSERT INTO pos_notification_outbox (sale_id, total_cents, message) VALUES (?, ?, ?)";
+
+        try (PreparedStatement stmt = con.prepareStatement(sql)) {
+            for (int i = 0; i < orders.size(); i++) {
+                OrderSnapshot order = orders.get(i);
+                int units = 0;
+                for (OrderItem item : order.getItems()) {
+                    units += item.getQuantity();
+                }
+                stmt.setInt(1, saleIds[i]);
+                stmt.setLong(2, order.getTotalCents());
+                stmt.setString(3, "Sale #" + saleIds[i] + ": " + Money.format(order.getTotalCents()) + " by "
+                    + order.getPaymentMethod() + ", " + units + (units == 1 ? " item" : " items")
+                    + ", staff " + order.getStaffId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // DDL commits implicitly on MySQL, so this runs before the sale transaction opens
+    public void ensureTable(Connection con) throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        try (Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS pos_notification_outbox (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "sale_id INT NOT NULL, " +
+                    "total_cents BIGINT NOT NULL, " +
+                    "message VARCHAR(500) NOT NULL, " +
+                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "claimed_by VARCHAR(36) NULL, " +
+                    "claimed_at TIMESTAMP NULL, " +
+                    "attempts INT NOT NULL DEFAULT 0, " +
+                    "sent_at TIMESTAMP NULL, " +
+                    "KEY idx_outbox_unsent (sent_at, id))");
+        }
+        tableReady = true;
+    }
+
+    // Called after a local sale commits so the digest goes out without waiting for the next poll
+    public void wake() {
+        synchronized (this) {
+            wakeRequested = true;
+            notifyAll();
+        }
+    }
+
+    private void dispatchLoop() {
+        int failures = 0;
+        while (true) {
+            try {
+                synchronized (this) {
+                    if (!wakeRequested) {
+                        wait(pollMillis);
+                    }
+                    wakeRequested = false;
+                }
+                // Let the rest of a burst land so it goes out as one message
+                Thread.sleep(coalesceMillis);
+
+                long delay;
+                try {
+                    while (dispatchOnce() == maxDigest) {
+                        // A full digest means more are probably waiting
+                    }
+                    failures = 0;
+                    continue;
+                } catch (RateLimitedException e) {
+                    delay = TimeUnit.SECONDS.toMillis(e.getRetryAfterSeconds());
+                } catch (IOException | SQLException e) {
+                    failures++;
+                    delay = Math.min(MAX_BACKOFF_MILLIS, 1000L << Math.min(failures, 16));
+                    delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+                }
+                metrics.count("notify.failures");
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Claims, sends and marks one digest; returns how many rows it covered
+    private int dispatchOnce() throws IOException, SQLException, InterruptedException {
+        String claim = UUID.randomUUID().toString();
+        List<Long> ids = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+        long totalCents = 0;
+
+        try (Connection con = connectionPool.getConnection()) {
+            ensureTable(con);
+            String claimSql = "UPDATE pos_notification_outbox " +
+                    "SET claimed_by = ?, claimed_at = CURRENT_TIMESTAMP, attempts = attempts + 1 " +
+                    "WHERE sent_at IS NULL AND attempts < ? " +
+                    "AND (claimed_at IS NULL OR claimed_at < CURRENT_TIMESTAMP - INTERVAL " + LEASE_SECONDS + " SECOND) " +
+                    "ORDER BY id LIMIT ?";
+            try (PreparedStatement stmt = con.prepareStatement(claimSql)) {
+                stmt.setString(1, claim);
+                stmt.setInt(2, MAX_ATTEMPTS);
+                stmt.setInt(3, maxDigest);
+                if (stmt.executeUpdate() == 0) {
+                    return 0;
+                }
+            }
+            String readSql = "SELECT id, total_cents, message FROM pos_notification_outbox " +
+                    "WHERE claimed_by = ? AND sent_at IS NULL ORDER BY id";
+            try (PreparedStatement stmt = con.prepareStatement(readSql)) {
+                stmt.setString(1, claim);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                        totalCents += rs.getLong(2);
+                        messages.add(rs.getString(3));
+                    }
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        bucket.acquire();
+        long start = System.nanoTime();
+        try {
+            client.send(digest(messages, totalCents));
+        } catch (IOException e) {
+            settle(claim, false);
+            throw e;
+        }
+        metrics.timer("notify.send").recordSince(start);
+        metrics.count("notify.messages");
+        metrics.count("notify.sales", ids.size());
+        settle(claim, true);
+        return ids.size();
+    }
+
+    // A sent digest is marked; an unsent one is handed back for the next attempt.
+    // If marking fails after a send the lease expires and the digest may repeat,
+    // which is the outbox's at-least-once trade-off.
+    private void settle(String claim, boolean sent) throws SQLException {
+        String sql = sent
+            ? "UPDATE pos_notification_outbox SET sent_at = CURRENT_TIMESTAMP WHERE claimed_by = ?"
+            : "UPDATE pos_notification_outbox SET claimed_by = NULL, claimed_at = NULL WHERE claimed_by = ?";
+        try (Connection con = connectionPool.getConnection();
+             PreparedStatement stmt = con.prepareStatement(sql)) {
+            stmt.setString(1, claim);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String digest(List<String> messages, long totalCents) {
+        if (messages.size() == 1) {
+            return messages.get(0);
+        }
+        StringBuilder text = new StringBuilder(64 + messages.size() * 64);
+        text.append(messages.size()).append(" new sales, ").append(Money.format(totalCents)).append(" total\n");
+        for (String message : messages) {
+            if (text.length() + message.length() + 1 > MAX_MESSAGE_CHARS) {
+                text.append("...");
+                break;
+            }
+            text.append(message).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,409 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Single background thread that drains submitted orders, makes them durable
+// in the local journal with one fsync, acknowledges them and then commits
+// everything in one transaction. If a group fails, its orders are retried
+// one by one so a bad order cannot sink the others. Orders that fail
+// because the database is unreachable stay in the journal and are replayed
+// on a fixed interval between batches. Deadlocks and lock wait timeouts are
+// not offline: the database is up, so those are written again right away
+// with the stock check still on.
+class OrderCommitter {
+    private static final int LATENCY_WINDOW = 4096;
+    private static final int WRITE_ATTEMPTS = 3;
+
+    private final File journalFile;
+    private final ConnectionPool connectionPool;
+    private final PosMetrics metrics;
+    private final SalesAggregator salesAggregator;
+    private final NotificationOutbox notificationOutbox;
+    private volatile OrderJournal journal;
+    private Thread worker;
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final long replayIntervalMillis;
+    private boolean journalTableReady;
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder transactions = new LongAdder();
+    private final long[] recentLatencies = new long[LATENCY_WINDOW];
+    private long latencySamples;
+
+    // Without a journal file orders are not kept across restarts; the aggregator
+    // and outbox are optional too
+    public OrderCommitter(File journalFile, ConnectionPool connectionPool, PosMetrics metrics,
+                          SalesAggregator salesAggregator, NotificationOutbox notificationOutbox,
+                          int maxBatch, long replayIntervalMillis) {
+        this.journalFile = journalFile;
+        this.connectionPool = connectionPool;
+        this.metrics = metrics;
+        this.salesAggregator = salesAggregator;
+        this.notificationOutbox = notificationOutbox;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.replayIntervalMillis = replayIntervalMillis;
+    }
+
+    // Opens the journal and starts the commit thread, which replays it first
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        if (journalFile != null) {
+            try {
+                journal = OrderJournal.open(journalFile);
+            } catch (IOException e) {
+                System.err.println("Order journal unavailable, orders will not survive a restart: " + e.getMessage());
+            }
+        }
+        worker = new Thread(this::commitLoop, "order-committer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Lets the batch in hand finish; orders still queued are failed, journaled ones replay on the next start
+    public void stop() throws InterruptedException {
+        Thread stopping;
+        synchronized (this) {
+            stopping = worker;
+            worker = null;
+        }
+        if (stopping == null) {
+            return;
+        }
+        stopping.interrupt();
+        stopping.join();
+        List<PendingOrder> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (PendingOrder pending : left) {
+            fail(pending, new IllegalStateException("Order committer stopped"));
+        }
+        OrderJournal closing = journal;
+        if (closing != null) {
+            try {
+                closing.close();
+            } catch (IOException e) {
+                // Every record that matters was forced when it was appended
+            }
+        }
+    }
+
+    public CompletableFuture<OrderResult> submit(OrderSnapshot order) {
+        PendingOrder pending = new PendingOrder(order);
+        queue.add(pending);
+        return pending.result;
+    }
+
+    private void commitLoop() {
+        // Anything left from a previous run goes first
+        replayJournal();
+        long nextReplay = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(replayIntervalMillis);
+
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            // Replay runs on its interval between batches, so a till that never
+            // goes idle still pushes its offline orders once the database is back
+            if (System.nanoTime() - nextReplay >= 0) {
+                replayJournal();
+                nextReplay = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(replayIntervalMillis);
+            }
+            try {
+                PendingOrder first = queue.poll(Math.max(0, nextReplay - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+
+            try {
+                process(batch);
+            } catch (RuntimeException e) {
+                for (PendingOrder pending : batch) {
+                    if (!pending.result.isDone()) {
+                        fail(pending, e);
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void process(List<PendingOrder> batch) {
+        List<OrderSnapshot> orders = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            orders.add(pending.order);
+        }
+
+        if (journal != null) {
+            try {
+                journal.append(orders);
+            } catch (IOException e) {
+                for (PendingOrder pending : batch) {
+                    fail(pending, e);
+                }
+                return;
+            }
+        }
+
+        try {
+            complete(batch, writeOnline(orders));
+        } catch (SQLException e) {
+            if (isOffline(e) || batch.size() == 1) {
+                for (PendingOrder pending : batch) {
+                    settle(pending, e);
+                }
+                return;
+            }
+            for (PendingOrder pending : batch) {
+                try {
+                    complete(Collections.singletonList(pending), writeOnline(Collections.singletonList(pending.order)));
+                } catch (SQLException single) {
+                    settle(pending, single);
+                }
+            }
+        }
+    }
+
+    // The victim of a deadlock or lock wait timeout was rolled back whole, so
+    // it is simply written again
+    private int[] writeOnline(List<OrderSnapshot> orders) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write(orders, true);
+            } catch (SQLException e) {
+                if (!isRollback(e) || attempt == WRITE_ATTEMPTS) {
+                    throw e;
+                }
+                metrics.count("order.writeRetries");
+            }
+        }
+    }
+
+    // Writes the orders in one transaction and returns their sale ids
+    private int[] write(List<OrderSnapshot> orders, boolean enforceStock) throws SQLException {
+        int[] orderIds;
+        long start = System.nanoTime();
+        try (Connection con = connectionPool.getConnection()) {
+            ensureJournalTable(con);
+            if (notificationOutbox != null) {
+                notificationOutbox.ensureTable(con);
+            }
+            con.setAutoCommit(false);
+
+            // A fixed number of statements per batch however many orders and lines it holds
+            orderIds = SaleWriter.createOrderRecords(con, orders);
+            SaleWriter.addOrderItems(con, orders, orderIds);
+            // Includes any wait for product row locks another till's transaction holds
+            long stockStart = System.nanoTime();
+            SaleWriter.updateProductStocksInDB(con, orders, enforceStock);
+            metrics.timer("db.stockUpdate").recordSince(stockStart);
+            recordJournalEntries(con, orders, orderIds);
+            if (notificationOutbox != null) {
+                notificationOutbox.record(con, orders, orderIds);
+            }
+
+            con.commit();
+        }
+        metrics.timer("db.commit").recordSince(start);
+        transactions.increment();
+        if (notificationOutbox != null) {
+            notificationOutbox.wake();
+        }
+        if (salesAggregator != null) {
+            salesAggregator.wake();
+        }
+        markDone(orders);
+        return orderIds;
+    }
+
+    private void complete(List<PendingOrder> batch, int[] orderIds) {
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingOrder pending = batch.get(i);
+            recordLatency(now - pending.submittedNanos);
+            metrics.timer("order.latency").record(now - pending.submittedNanos);
+            metrics.mark("order.placed");
+            committed.increment();
+            pending.result.complete(new OrderResult(orderIds[i], false));
+        }
+    }
+
+    private void settle(PendingOrder pending, SQLException e) {
+        if (isOffline(e) && journal != null) {
+            // Durable locally; the replayer will push it once the database is back
+            deferred.increment();
+            pending.result.complete(new OrderResult(0, true));
+            return;
+        }
+
+        Integer saleId = findAppliedSale(pending.order);
+        if (saleId != null) {
+            markDone(Collections.singletonList(pending.order));
+            committed.increment();
+            pending.result.complete(new OrderResult(saleId, false));
+        } else {
+            markDone(Collections.singletonList(pending.order));
+            fail(pending, e);
+        }
+    }
+
+    private void replayJournal() {
+        OrderJournal journal = this.journal;
+        if (journal == null) {
+            return;
+        }
+        for (OrderSnapshot order : journal.pendingOrders()) {
+            try {
+                // The goods already left the store, so replay records the sale even if stock went short
+                write(Collections.singletonList(order), false);
+                replayed.increment();
+            } catch (SQLException e) {
+                if (isOffline(e) || isRollback(e)) {
+                    return; // still offline or lost a lock, try again next interval
+                }
+                if (findAppliedSale(order) == null) {
+                    System.err.println("Discarding journaled order " + order.getJournalId()
+                            + " rejected by the database: " + e.getMessage());
+                }
+                markDone(Collections.singletonList(order));
+            }
+        }
+    }
+
+    // The journal id is stored with the sale in the same transaction, so an
+    // order applied just before a crash is recognised instead of duplicated
+    private Integer findAppliedSale(OrderSnapshot order) {
+        String sql = "SELECT sale_id FROM pos_order_journal WHERE journal_id = ?";
+        try (Connection con = connectionPool.getConnection();
+             PreparedStatement stmt = con.prepareStatement(sql)) {
+            stmt.setString(1, order.getJournalId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private void ensureJournalTable(Connection con) throws SQLException {
+        if (journalTableReady) {
+            return;
+        }
+        try (Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS pos_order_journal (" +
+                    "journal_id VARCHAR(36) PRIMARY KEY, " +
+                    "sale_id INT NOT NULL, " +
+                    "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+        journalTableReady = true;
+    }
+
+    private static void recordJournalEntries(Connection con, List<OrderSnapshot> orders, int[] saleIds) throws SQLException {
+        String sql = "INSERT INTO pos_order_journal (journal_id, sale_id) VALUES (?, ?)";
+
+        // A batch of one statement text, like the sale rows (see SaleWriter)
+        try (PreparedStatement stmt = con.prepareStatement(sql)) {
+            for (int i = 0; i < orders.size(); i++) {
+                stmt.setString(1, orders.get(i).getJournalId());
+                stmt.setInt(2, saleIds[i]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void markDone(List<OrderSnapshot> orders) {
+        OrderJournal journal = this.journal;
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.markDone(orders);
+        } catch (IOException e) {
+            // Replaying these later is harmless, pos_order_journal makes it a no-op
+        }
+    }
+
+    // Only a lost connection counts; other transient errors come from a live database
+    private static boolean isOffline(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientConnectionException
+                || e instanceof SQLRecoverableException
+                || (state != null && state.startsWith("08"));
+    }
+
+    // Deadlock victims and lock or statement timeouts, SQLState class 40 included
+    private static boolean isRollback(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransactionRollbackException
+                || e instanceof SQLTimeoutException
+                || (state != null && state.startsWith("40"));
+    }
+
+    private void fail(PendingOrder pending, Exception e) {
+        failed.increment();
+        pending.result.completeExceptionally(e);
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        recentLatencies[(int) (latencySamples++ % LATENCY_WINDOW)] = nanos;
+    }
+
+    public long getCommittedCount() { return committed.sum(); }
+    public long getFailedCount() { return failed.sum(); }
+    public long getDeferredCount() { return deferred.sum(); }
+    public long getReplayedCount() { return replayed.sum(); }
+    public long getTransactionCount() { return transactions.sum(); }
+    public int getQueueDepth() { return queue.size(); }
+    public int getJournalBacklog() {
+        OrderJournal journal = this.journal;
+        return journal != null ? journal.pendingCount() : 0;
+    }
+
+    // Submit-to-commit latency over the most recent commits, e.g. 0.99 for p99
+    public synchronized long getLatencyPercentileMillis(double percentile) {
+        int n = (int) Math.min(latencySamples, LATENCY_WINDOW);
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(recentLatencies, n);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(n - 1, Math.ceil(percentile * n) - 1);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+
+    private static final class PendingOrder {
+        private final OrderSnapshot order;
+        private final long submittedNanos = System.nanoTime();
+        private final CompletableFuture<OrderResult> result = new CompletableFuture<>();
+
+        public PendingOrder(OrderSnapshot order) {
+            this.order = order;
+        }
+    }
+}
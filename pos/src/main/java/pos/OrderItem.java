@@ -0,0 +1,27 @@
+package pos;
+
+class OrderItem {
+    private int productId;
+    private String name;
+    private long priceCents;
+    private int quantity;
+
+    public OrderItem(int productId, String name, long priceCents) {
+        this(productId, name, priceCents, 1);
+    }
+
+    public OrderItem(int productId, String name, long priceCents, int quantity) {
+        this.productId = productId;
+        this.name = name;
+        this.priceCents = priceCents;
+        this.quantity = quantity;
+    }
+
+    public int getProductId() { return productId; }
+    public String getName() { return name; }
+    public long getPriceCents() { return priceCents; }
+    public int getQuantity() { return quantity; }
+    public long getLineCents() { return priceCents * quantity; }
+
+    public void addQuantity(int amount) { quantity += amount; }
+}
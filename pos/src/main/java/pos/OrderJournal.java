@@ -0,0 +1,190 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Append-only local log of orders. Each record is framed as
+// [magic][payload length][CRC32 of type + payload][type][payload]; an order
+// record is forced to disk before the sale is acknowledged and a done record
+// follows once the database has it. On open the log is scanned and cut at
+// the first damaged record, which after a crash can only be a torn tail.
+class OrderJournal {
+    private static final int RECORD_MAGIC = 0x504F534A; // "POSJ"
+    private static final int HEADER_BYTES = 13;
+    private static final byte ORDER_RECORD = 1;
+    private static final byte DONE_RECORD = 2;
+
+    private final FileChannel channel;
+    private final Map<String, OrderSnapshot> pending = new LinkedHashMap<>();
+    private final CRC32 crc = new CRC32();
+
+    private OrderJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static OrderJournal open(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        return open(FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    static OrderJournal open(FileChannel channel) throws IOException {
+        OrderJournal journal = new OrderJournal(channel);
+        journal.recover();
+        return journal;
+    }
+
+    private synchronized void recover() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading
+        }
+        buffer.flip();
+
+        long validEnd = 0;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            if (buffer.getInt() != RECORD_MAGIC) break;
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            byte type = buffer.get();
+            if (length < 0 || length > buffer.remaining()) break;
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+
+            if (type == ORDER_RECORD) {
+                OrderSnapshot order = OrderSnapshot.decode(payload);
+                pending.put(order.getJournalId(), order);
+            } else if (type == DONE_RECORD) {
+                pending.remove(new String(payload, StandardCharsets.UTF_8));
+            }
+            validEnd = buffer.position();
+        }
+
+        if (validEnd < size) {
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        compactIfDrained();
+    }
+
+    // One write and one fsync for the whole group
+    public synchronized void append(List<OrderSnapshot> orders) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(orders.size());
+        int bytes = 0;
+        for (OrderSnapshot order : orders) {
+            byte[] payload = order.encode();
+            payloads.add(payload);
+            bytes += HEADER_BYTES + payload.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        for (byte[] payload : payloads) {
+            frame(buffer, ORDER_RECORD, payload);
+        }
+        writeRecords(buffer, true);
+
+        for (OrderSnapshot order : orders) {
+            pending.put(order.getJournalId(), order);
+        }
+    }
+
+    // Not forced: a lost done record only means a harmless replay
+    public synchronized void markDone(List<OrderSnapshot> orders) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(orders.size());
+        int bytes = 0;
+        for (OrderSnapshot order : orders) {
+            if (pending.containsKey(order.getJournalId())) {
+                byte[] payload = order.getJournalId().getBytes(StandardCharsets.UTF_8);
+                payloads.add(payload);
+                bytes += HEADER_BYTES + payload.length;
+            }
+        }
+        if (payloads.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        for (byte[] payload : payloads) {
+            frame(buffer, DONE_RECORD, payload);
+        }
+        writeRecords(buffer, false);
+
+        for (OrderSnapshot order : orders) {
+            pending.remove(order.getJournalId());
+        }
+        compactIfDrained();
+    }
+
+    public synchronized List<OrderSnapshot> pendingOrders() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void compactIfDrained() throws IOException {
+        if (pending.isEmpty() && channel.size() > 0) {
+            channel.truncate(0);
+            channel.position(0);
+        }
+    }
+
+    private void frame(ByteBuffer buffer, byte type, byte[] payload) {
+        crc.reset();
+        crc.update(type);
+        crc.update(payload);
+        buffer.putInt(RECORD_MAGIC);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(type);
+        buffer.put(payload);
+    }
+
+    // If the write or the fsync fails the log is cut back to where it was, so
+    // a half-written record can neither be replayed nor sit in front of the
+    // next append, which recovery would then drop along with it
+    private void writeRecords(ByteBuffer buffer, boolean force) throws IOException {
+        long end = channel.position();
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(end);
+                channel.position(end);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+    }
+}
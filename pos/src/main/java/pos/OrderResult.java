@@ -0,0 +1,14 @@
+package pos;
+
+final class OrderResult {
+    private final int orderId;
+    private final boolean offline;
+
+    public OrderResult(int orderId, boolean offline) {
+        this.orderId = orderId;
+        this.offline = offline;
+    }
+
+    public int getOrderId() { return orderId; }
+    public boolean isOffline() { return offline; }
+}
@@ -0,0 +1,85 @@
+package pos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+// Immutable copy of the cart taken when the cashier presses Place Order
+final class OrderSnapshot {
+    private final String journalId;
+    private final List<OrderItem> items;
+    private final String paymentMethod;
+    private final int staffId;
+    private final int taxRateBasisPoints;
+    private final long subtotalCents;
+    private final long taxCents;
+    private final long totalCents;
+
+    public OrderSnapshot(Cart cart, String paymentMethod, int staffId) {
+        this(UUID.randomUUID().toString(), cart.getLines(), paymentMethod, staffId, cart.getTaxRateBasisPoints());
+    }
+
+    private OrderSnapshot(String journalId, List<OrderItem> lines, String paymentMethod, int staffId, int taxRateBasisPoints) {
+        this.journalId = journalId;
+        List<OrderItem> copy = new ArrayList<>(lines.size());
+        long sum = 0;
+        for (OrderItem item : lines) {
+            copy.add(new OrderItem(item.getProductId(), item.getName(), item.getPriceCents(), item.getQuantity()));
+            sum += item.getLineCents();
+        }
+        this.items = Collections.unmodifiableList(copy);
+        this.paymentMethod = paymentMethod;
+        this.staffId = staffId;
+        this.taxRateBasisPoints = taxRateBasisPoints;
+        this.subtotalCents = sum;
+        this.taxCents = Cart.taxCents(sum, taxRateBasisPoints);
+        this.totalCents = sum + taxCents;
+    }
+
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + items.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(journalId);
+        out.writeUTF(paymentMethod);
+        out.writeInt(staffId);
+        out.writeInt(taxRateBasisPoints);
+        out.writeInt(items.size());
+        for (OrderItem item : items) {
+            out.writeInt(item.getProductId());
+            out.writeUTF(item.getName());
+            out.writeLong(item.getPriceCents());
+            out.writeInt(item.getQuantity());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static OrderSnapshot decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String journalId = in.readUTF();
+        String paymentMethod = in.readUTF();
+        int staffId = in.readInt();
+        int taxRateBasisPoints = in.readInt();
+        int count = in.readInt();
+        List<OrderItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new OrderItem(in.readInt(), in.readUTF(), in.readLong(), in.readInt()));
+        }
+        return new OrderSnapshot(journalId, items, paymentMethod, staffId, taxRateBasisPoints);
+    }
+
+    public String getJournalId() { return journalId; }
+    public List<OrderItem> getItems() { return items; }
+    public String getPaymentMethod() { return paymentMethod; }
+    public int getStaffId() { return staffId; }
+    public long getSubtotalCents() { return subtotalCents; }
+    public long getTaxCents() { return taxCents; }
+    public long getTotalCents() { return totalCents; }
+    public int getTaxRateBasisPoints() { return taxRateBasisPoints; }
+}
@@ -0,0 +1,1420 @@
+package pos;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+public class POSGridView extends JPanel {
+    private VirtualProductGrid productGrid;
+    private JPanel orderPanel;
+    private JTable orderTable;
+    private OrderTableModel orderTableModel;
+    private long displayedSubtotalCents = -1;
+    private JLabel subtotalLabel, taxLabel, totalLabel;
+    private final Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+    private JButton placeOrderButton;
+    private JLabel orderStatusLabel;
+    private LongIntMap barcodeIndex = new LongIntMap(16);
+    private boolean barcodesLoaded;
+    private final CatalogStore catalog = new CatalogStore();
+    private String currentPaymentMethod = "Cash";
+    private JTextField searchField;
+    private Map<Integer, String> categories = new HashMap<>();
+    private JPanel categoryButtonPanel;
+    private Map<String, JButton> categoryButtons = new LinkedHashMap<>();
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private SearchResult lastSearchResult;
+    private int searchSequence;
+    private boolean searchRunning;
+    private boolean searchPending;
+    private KeyboardWedgeScanner wedgeScanner; // registered only while the panel is displayable
+    private JPanel loadPanel;
+    private JProgressBar loadProgressBar;
+    private SwingWorker<Map<Integer, String>, Void> categoryLoader;
+    private SwingWorker<Integer, CatalogStore.Batch> productLoader;
+    private CatalogSync catalogSync;
+    private javax.swing.Timer catalogSyncTimer;
+    private SwingWorker<CatalogSync.Delta, Void> catalogSyncWorker;
+    private static final int CATALOG_SYNC_INTERVAL_MS = Integer.getInteger("catalog.sync.intervalMs", 30_000);
+    private static final int GRID_COLUMNS = 4;
+    private static final int GRID_GAP = 15;
+    private static final int CARD_HEIGHT = 240;
+    private static final int HEADER_HEIGHT = 40;
+    private static final int SECTION_GAP = 20;
+    private static final int PREFETCH_PER_CATEGORY = 64;
+    private static final int QR_SIZE = 300;
+
+    private final PosMetrics metrics;
+    private final ConnectionPool connectionPool;
+    private final StockReservations stockReservations;
+    private final ThumbnailCache thumbnails;
+    private final CatalogSnapshotFile catalogFile;
+    private final QrCodeService qrCodes;
+    private final BarcodeImageReader barcodeImages;
+    private final CartCheckout checkout;
+    private final ReceiptSpooler receiptSpooler;
+
+    public POSGridView() {
+        this(PosServices.shared());
+    }
+
+    POSGridView(PosServices services) {
+        this.metrics = services.metrics;
+        this.connectionPool = services.connectionPool;
+        this.stockReservations = services.stockReservations;
+        this.thumbnails = services.thumbnails;
+        this.catalogFile = services.catalogFile;
+        this.qrCodes = services.qrCodes;
+        this.barcodeImages = services.barcodeImages;
+        this.checkout = new CartCheckout(services.stockReservations, services.orderCommitter);
+        this.receiptSpooler = services.receiptSpooler;
+        services.startEdtWatchdog();
+        initializeUI();
+        loadCategoriesFromDatabase();
+        if (!restoreCatalogSnapshot()) {
+            loadProductsFromDatabase();
+        }
+    }
+    
+    // The focus manager is global; a panel that was closed or replaced must not keep scanning into its cart.
+    // A running timer is reachable from the timer queue, so the sync timer only runs while shown too,
+    // or a replaced panel would keep its whole catalog alive and syncing
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(wedgeScanner);
+        if (catalogSyncTimer != null) {
+            catalogSyncTimer.start();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().removeKeyEventDispatcher(wedgeScanner);
+        wedgeScanner.reset();
+        if (catalogSyncTimer != null) {
+            catalogSyncTimer.stop();
+        }
+        super.removeNotify();
+    }
+
+    private void initializeUI() {
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Create control panel at the top
+        JPanel controlPanel = new JPanel(new BorderLayout(10, 10));
+        controlPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+        
+        // Search panel
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
+        searchField = new JTextField();
+        searchField.setPreferredSize(new Dimension(200, 30));
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { searchTextChanged(); }
+            @Override public void removeUpdate(DocumentEvent e) { searchTextChanged(); }
+            @Override public void changedUpdate(DocumentEvent e) { searchTextChanged(); }
+        });
+        
+        JLabel searchLabel = new JLabel("Search:");
+        searchPanel.add(searchLabel, BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+
+        JButton scanImageButton = new JButton("Scan Image...");
+        scanImageButton.addActionListener(e -> scanImageFile());
+        searchPanel.add(scanImageButton, BorderLayout.EAST);
+
+        // Scanner bursts go straight to the cart instead of into the search field
+        wedgeScanner = new KeyboardWedgeScanner(
+            this, Integer.getInteger("scan.minLength", 6), Long.getLong("scan.maxGapMs", 40), this::scanToCart);
+        
+        // Category filter panel - now using buttons
+        categoryButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 5));
+        categoryButtonPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        
+        // Add "All" button by default
+        JButton allButton = createCategoryButton("All");
+        allButton.setSelected(true);
+        categoryButtonPanel.add(allButton);
+        categoryButtons.put("All", allButton);
+        
+        // Catalog load progress, hidden once both loaders have finished
+        loadPanel = new JPanel(new BorderLayout(5, 5));
+        loadProgressBar = new JProgressBar();
+        loadProgressBar.setIndeterminate(true);
+        loadProgressBar.setStringPainted(true);
+        loadProgressBar.setString("Loading products...");
+        JButton cancelLoadButton = new JButton("Cancel");
+        cancelLoadButton.addActionListener(e -> cancelCatalogLoad());
+        loadPanel.add(loadProgressBar, BorderLayout.CENTER);
+        loadPanel.add(cancelLoadButton, BorderLayout.EAST);
+
+        // Add components to control panel
+        controlPanel.add(searchPanel, BorderLayout.WEST);
+        controlPanel.add(categoryButtonPanel, BorderLayout.CENTER);
+        controlPanel.add(loadPanel, BorderLayout.EAST);
+        
+        // Product grid setup - only the rows inside the viewport get card components
+        productGrid = new VirtualProductGrid();
+        productGrid.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        productGrid.setBackground(Color.WHITE);
+
+        JScrollPane productScrollPane = new JScrollPane(productGrid);
+        productScrollPane.getVerticalScrollBar().setUnitIncrement(20);
+        productScrollPane.setPreferredSize(new Dimension(900, 650));
+        productScrollPane.getViewport().addChangeListener(e -> productGrid.layoutVisibleRows());
+
+        // Order summary panel
+        orderPanel = createOrderPanel();
+
+        // Add components to main panel
+        add(controlPanel, BorderLayout.NORTH);
+        add(productScrollPane, BorderLayout.CENTER);
+        add(new JScrollPane(orderPanel), BorderLayout.EAST);
+    }
+
+    private JButton createCategoryButton(String categoryName) {
+        JButton button = new JButton(categoryName);
+        button.setOpaque(true);
+        button.setBorderPainted(false);
+        button.setFocusPainted(false);
+        button.setContentAreaFilled(false);
+        button.setBackground(new Color(240, 240, 240));
+        button.setForeground(new Color(70, 70, 70));
+        button.setFont(new Font("Arial", Font.PLAIN, 14));
+        button.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(200, 200, 200)),
+            BorderFactory.createEmptyBorder(5, 15, 5, 15)
+        ));
+        
+        // Add icon if available
+        String iconText = getCategoryIcon(categoryName);
+        if (!iconText.isEmpty()) {
+            button.setText(iconText + " " + categoryName);
+        }
+        
+        button.addActionListener(e -> {
+            // Deselect all buttons
+            for (JButton btn : categoryButtons.values()) {
+                btn.setSelected(false);
+                btn.setBackground(new Color(240, 240, 240));
+                btn.setForeground(new Color(70, 70, 70));
+            }
+            
+            // Select current button
+            button.setSelected(true);
+            button.setBackground(new Color(50, 120, 200));
+            button.setForeground(Color.WHITE);
+            
+            searchProductsAsync();
+            prefetchAdjacentCategories(categoryName);
+        });
+        
+        return button;
+    }
+
+    // Warm the thumbnail cache for the categories either side of the selected one
+    private void prefetchAdjacentCategories(String categoryName) {
+        List<String> names = new ArrayList<>(categoryButtons.keySet());
+        names.remove("All");
+        int index = names.indexOf(categoryName);
+        if (index < 0) {
+            return;
+        }
+
+        Set<String> adjacent = new HashSet<>();
+        if (index > 0) adjacent.add(names.get(index - 1));
+        if (index < names.size() - 1) adjacent.add(names.get(index + 1));
+
+        Map<String, Integer> queued = new HashMap<>();
+        CatalogStore.Snapshot snapshot = catalog.snapshot();
+        for (int row = 0; row < snapshot.size(); row++) {
+            String category = snapshot.getCategoryName(row);
+            if (adjacent.contains(category)
+                    && queued.merge(category, 1, Integer::sum) <= PREFETCH_PER_CATEGORY) {
+                thumbnails.prefetch(snapshot.getImagePath(row));
+            }
+        }
+    }
+
+    private String getCategoryIcon(String categoryName) {
+        // Map categories to appropriate icons (using emojis as placeholders)
+        switch(categoryName.toLowerCase()) {
+            case "beverages": return "🥤";
+            case "food": return "🍔";
+            case "snacks": return "🍪";
+            case "all": return "🛒";
+            default: return "";
+        }
+    }
+
+    void filterProducts() {
+        long start = System.nanoTime();
+        searchRunning = false;
+        searchPending = false;
+        searchSequence++; // a query still running is for older text
+        lastSearchResult = searchIndex.search(searchField.getText().toLowerCase(), getSelectedCategory(), null);
+        renderProducts(lastSearchResult);
+        metrics.timer("ui.filter").recordSince(start);
+    }
+
+    // A keystroke searches at once rather than after a fixed debounce, which
+    // alone would cost more than a frame. Keystrokes that land while a query
+    // runs are coalesced into one query for the latest text when it ends.
+    private void searchTextChanged() {
+        if (searchRunning) {
+            searchPending = true;
+        } else {
+            searchProductsAsync();
+        }
+    }
+
+    // Not a SwingWorker: its done() is delivered by a 33 ms coalescing timer,
+    // twice the frame budget before the grid could even start rendering
+    private void searchProductsAsync() {
+        searchPending = false;
+        searchRunning = true;
+        String searchText = searchField.getText().toLowerCase();
+        String selectedCategory = getSelectedCategory();
+        SearchResult previous = lastSearchResult;
+        int sequence = ++searchSequence;
+
+        CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            SearchResult result = searchIndex.search(searchText, selectedCategory, previous);
+            metrics.timer("search.index").recordSince(start);
+            return result;
+        }).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            // Drop results overtaken by a newer query, which owns searchRunning
+            if (sequence != searchSequence) {
+                return;
+            }
+            searchRunning = false;
+            if (searchPending) {
+                searchProductsAsync();
+            } else if (error == null) {
+                lastSearchResult = result;
+                renderProducts(result);
+            } else {
+                filterProducts();
+            }
+        }));
+    }
+
+    void renderProducts(SearchResult result) {
+        long start = System.nanoTime();
+        CatalogStore.Snapshot snapshot = catalog.snapshot();
+        int[] rows = new int[result.productIds.length];
+        int[] counts = new int[snapshot.getCategoryCount()];
+        List<Integer> order = new ArrayList<>();
+        int matched = 0;
+        for (int productId : result.productIds) {
+            int row = snapshot.indexOf(productId);
+            if (row >= 0) {
+                int category = snapshot.getCategoryId(row);
+                if (counts[category]++ == 0) {
+                    order.add(category);
+                }
+                rows[matched++] = row;
+            }
+        }
+
+        // Group rows by category, sections in order of first appearance
+        int[][] grouped = new int[counts.length][];
+        Map<String, int[]> sections = new LinkedHashMap<>();
+        for (int category : order) {
+            grouped[category] = new int[counts[category]];
+            sections.put(snapshot.getCategoryNameById(category), grouped[category]);
+            counts[category] = 0;
+        }
+        for (int i = 0; i < matched; i++) {
+            int category = snapshot.getCategoryId(rows[i]);
+            grouped[category][counts[category]++] = rows[i];
+        }
+
+        productGrid.setSections(snapshot, sections);
+        metrics.timer("ui.render").recordSince(start);
+    }
+
+    private String getSelectedCategory() {
+        for (Map.Entry<String, JButton> entry : categoryButtons.entrySet()) {
+            if (entry.getValue().isSelected()) {
+                return entry.getKey();
+            }
+        }
+        return "All";
+    }
+
+    private JPanel createCategoryHeader(String categoryName) {
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.setBackground(new Color(230, 230, 250));
+        headerPanel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(200, 200, 220)),
+            BorderFactory.createEmptyBorder(8, 15, 8, 15)
+        ));
+        
+        JLabel nameLabel = new JLabel(categoryName);
+        nameLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        nameLabel.setForeground(new Color(70, 70, 70));
+        
+        // Icon - using emoji as placeholder
+        JLabel iconLabel = new JLabel(getCategoryIcon(categoryName));
+        iconLabel.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 20));
+        
+        headerPanel.add(iconLabel, BorderLayout.WEST);
+        headerPanel.add(nameLabel, BorderLayout.CENTER);
+        
+        return headerPanel;
+    }
+
+    // Both loaders run on SwingWorker threads at the same time; only the
+    // done()/process() callbacks touch Swing components.
+    private void loadCategoriesFromDatabase() {
+        categoryLoader = new SwingWorker<Map<Integer, String>, Void>() {
+            @Override
+            protected Map<Integer, String> doInBackground() throws SQLException {
+                String query = "SELECT id, name FROM category";
+                Map<Integer, String> loaded = new LinkedHashMap<>();
+                long start = System.nanoTime();
+
+                try (Connection con = connectionPool.getConnection();
+                     PreparedStatement stmt = con.prepareStatement(query);
+                     ResultSet rs = stmt.executeQuery()) {
+
+                    while (rs.next() && !isCancelled()) {
+                        loaded.put(rs.getInt("id"), rs.getString("name"));
+                    }
+                }
+                metrics.timer("db.query.categories").recordSince(start);
+                return loaded;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    updateLoadProgress();
+                    return;
+                }
+                try {
+                    for (Map.Entry<Integer, String> entry : get().entrySet()) {
+                        categories.put(entry.getKey(), entry.getValue());
+                        addCategoryButton(entry.getValue());
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    metrics.count("db.errors");
+                    if (catalog.snapshot().size() > 0) {
+                        // Restored from the local snapshot; its categories are already on screen
+                        showOrderStatus("Database unreachable, using the saved catalog", new Color(186, 4, 65));
+                    } else {
+                        JOptionPane.showMessageDialog(POSGridView.this, "Error loading categories: " + Errors.rootMessage(e));
+                        // Load sample categories if database fails
+                        loadSampleCategories();
+                    }
+                }
+
+                categoryButtonPanel.revalidate();
+                categoryButtonPanel.repaint();
+                updateLoadProgress();
+            }
+        };
+        categoryLoader.execute();
+    }
+
+    private void loadSampleCategories() {
+        categories.put(1, "Beverages");
+        categories.put(2, "Food");
+        categories.put(3, "Snacks");
+        
+        // Add buttons for sample categories
+        for (String category : new String[]{"Beverages", "Food", "Snacks"}) {
+            addCategoryButton(category);
+        }
+    }
+
+    private void addCategoryButton(String categoryName) {
+        if (!categoryButtons.containsKey(categoryName)) {
+            JButton button = createCategoryButton(categoryName);
+            categoryButtonPanel.add(button);
+            categoryButtons.put(categoryName, button);
+        }
+    }
+
+    // A catalog saved by an earlier run is on screen before any query runs.
+    // The search index is rebuilt off the EDT and only then is the database
+    // asked, for the rows changed since the saved watermark or, when the file
+    // has none, for the whole catalog.
+    private boolean restoreCatalogSnapshot() {
+        long start = System.nanoTime();
+        CatalogSnapshotFile.Restored restored = catalogFile.read(catalog);
+        if (restored == null) {
+            return false;
+        }
+
+        CatalogStore.Snapshot snapshot = restored.snapshot;
+        int[] productIds = new int[snapshot.size()];
+        for (int row = 0; row < snapshot.size(); row++) {
+            productIds[row] = snapshot.getProductId(row);
+            stockReservations.setOnHand(productIds[row], snapshot.getStockQty(row));
+        }
+        for (int category = 0; category < snapshot.getCategoryCount(); category++) {
+            addCategoryButton(snapshot.getCategoryNameById(category));
+        }
+        categoryButtonPanel.revalidate();
+        // Until the index is ready the grid shows the whole catalog
+        renderProducts(new SearchResult("", "All", new BitSet(), productIds, -1));
+        metrics.timer("catalog.restore").recordSince(start);
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                for (int row = 0; row < snapshot.size(); row++) {
+                    searchIndex.put(snapshot.getProductId(row), snapshot.getName(row), snapshot.getCategoryName(row));
+                }
+                searchIndex.trimToSize();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                filterProducts();
+                if (restored.watermark != null) {
+                    startCatalogSync(restored.watermark);
+                    syncCatalog();
+                    loadBarcodes();
+                } else {
+                    loadProductsFromDatabase();
+                }
+            }
+        }.execute();
+        return true;
+    }
+
+    private void loadBarcodes() {
+        new SwingWorker<LongIntMap, Void>() {
+            @Override
+            protected LongIntMap doInBackground() throws SQLException {
+                try (Connection con = connectionPool.getConnection()) {
+                    return CatalogLoader.readBarcodes(con);
+                }
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    LongIntMap barcodes = get();
+                    if (barcodes != null) {
+                        barcodeIndex = barcodes;
+                    }
+                    barcodesLoaded = true; // null only means the schema has no barcode column
+                } catch (InterruptedException | ExecutionException e) {
+                    // Retried after the next successful catalog sync
+                    metrics.count("db.errors");
+                }
+            }
+        }.execute();
+    }
+
+    // Written off the EDT; the file only moves forward to newer store versions
+    private void saveCatalogSnapshot(Timestamp watermark) {
+        CatalogStore.Snapshot snapshot = catalog.snapshot();
+        CompletableFuture.runAsync(() -> catalogFile.write(snapshot, watermark));
+    }
+
+    private void loadProductsFromDatabase() {
+        productLoader = new SwingWorker<Integer, CatalogStore.Batch>() {
+            private int received;
+            private Timestamp watermark;
+            private volatile long refresh;
+            private LongIntMap barcodes;
+            private boolean barcodesRead;
+
+            @Override
+            protected Integer doInBackground() throws SQLException {
+                int rows = 0;
+                long start = System.nanoTime();
+                // A restored catalog is already on screen; apply the reload as one batch
+                int chunkSize = catalog.snapshot().size() > 0 ? Integer.MAX_VALUE : CatalogLoader.LOAD_CHUNK_SIZE;
+
+                try (Connection con = connectionPool.getConnection()) {
+                    // Taken before the full read so nothing changed during it is missed
+                    watermark = CatalogLoader.readCatalogWatermark(con);
+                    refresh = stockReservations.beginRefresh();
+
+                    try (PreparedStatement stmt = con.prepareStatement(CatalogLoader.PRODUCTS_SQL)) {
+                        stmt.setFetchSize(CatalogLoader.LOAD_CHUNK_SIZE);
+
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            CatalogStore.Batch chunk = new CatalogStore.Batch();
+                            while (rs.next() && !isCancelled()) {
+                                CatalogLoader.readProduct(rs, chunk);
+                                rows++;
+
+                                // Stream rows to the grid instead of waiting for the whole result set
+                                if (chunk.size() == chunkSize) {
+                                    publish(chunk);
+                                    chunk = new CatalogStore.Batch();
+                                }
+                            }
+                            if (chunk.size() > 0) {
+                                publish(chunk);
+                            }
+                        }
+                    }
+                    try {
+                        barcodes = CatalogLoader.readBarcodes(con);
+                        barcodesRead = true;
+                    } catch (SQLException e) {
+                        // The catalog is in; the barcodes are retried after the next catalog sync
+                        metrics.count("db.errors");
+                    }
+                }
+                metrics.timer("db.query.products").recordSince(start);
+                return rows;
+            }
+
+            @Override
+            protected void process(List<CatalogStore.Batch> chunks) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (CatalogStore.Batch chunk : chunks) {
+                    received += chunk.size();
+                }
+                addProducts(chunks, refresh);
+                loadProgressBar.setString("Loaded " + received + " products...");
+            }
+
+            @Override
+            protected void done() {
+                if (!isCancelled()) {
+                    try {
+                        get();
+                        if (barcodes != null) {
+                            barcodeIndex = barcodes;
+                        }
+                        barcodesLoaded = barcodesRead;
+                        catalog.trimToSize();
+                        searchIndex.trimToSize();
+                        saveCatalogSnapshot(watermark);
+                        startCatalogSync(watermark);
+                    } catch (InterruptedException | ExecutionException e) {
+                        metrics.count("db.errors");
+                        // Keep whatever streamed in or was restored; samples only replace an empty catalog
+                        if (catalog.snapshot().size() == 0) {
+                            JOptionPane.showMessageDialog(POSGridView.this, "Error loading products: " + Errors.rootMessage(e));
+                            loadSampleProducts();
+                        } else {
+                            showOrderStatus("Catalog not refreshed: " + Errors.rootMessage(e), new Color(186, 4, 65));
+                        }
+                    }
+                }
+                updateLoadProgress();
+            }
+        };
+        productLoader.execute();
+    }
+
+    private void startCatalogSync(Timestamp watermark) {
+        if (watermark == null || catalogSyncTimer != null) {
+            return;
+        }
+        catalogSync = new CatalogSync(watermark);
+        catalogSyncTimer = new javax.swing.Timer(CATALOG_SYNC_INTERVAL_MS, e -> syncCatalog());
+        if (isDisplayable()) {
+            catalogSyncTimer.start();
+        }
+    }
+
+    // Fetches only what changed since the last round; see CatalogSync
+    private void syncCatalog() {
+        if (catalogSync == null || (catalogSyncWorker != null && !catalogSyncWorker.isDone())) {
+            return;
+        }
+        CatalogStore.Snapshot local = catalog.snapshot();
+        long refresh = stockReservations.beginRefresh();
+
+        catalogSyncWorker = new SwingWorker<CatalogSync.Delta, Void>() {
+            @Override
+            protected CatalogSync.Delta doInBackground() throws SQLException {
+                long start = System.nanoTime();
+                try (Connection con = connectionPool.getConnection()) {
+                    return catalogSync.poll(con, local);
+                } finally {
+                    metrics.timer("db.query.catalogSync").recordSince(start);
+                }
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    CatalogSync.Delta delta = get();
+                    if (!delta.isEmpty()) {
+                        applyCatalogDelta(delta, refresh);
+                        saveCatalogSnapshot(delta.watermark);
+                    }
+                    if (!barcodesLoaded) {
+                        loadBarcodes();
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    // Offline or transient; the next tick retries from the same watermark
+                    metrics.count("db.errors");
+                }
+            }
+        };
+        catalogSyncWorker.execute();
+    }
+
+    private void applyCatalogDelta(CatalogSync.Delta delta, long refresh) {
+        CatalogStore.Batch changed = delta.changed;
+        CatalogStore.Snapshot before = catalog.snapshot();
+        CatalogStore.Snapshot after = catalog.putAll(changed);
+        boolean regroup = false;
+
+        for (int i = 0; i < changed.size(); i++) {
+            int productId = changed.getProductId(i);
+            Product previous = before.get(productId);
+            stockReservations.refresh(productId, changed.getStockQty(i), refresh);
+
+            if (previous == null
+                    || !previous.getName().equals(changed.getName(i))
+                    || !previous.getCategoryName().equals(changed.getCategoryName(i))) {
+                // New product, or its search match / section may have moved
+                searchIndex.put(productId, changed.getName(i), changed.getCategoryName(i));
+                regroup = true;
+            }
+        }
+
+        if (delta.removed.length > 0) {
+            after = catalog.removeAll(delta.removed);
+            for (int productId : delta.removed) {
+                searchIndex.remove(productId);
+                stockReservations.setOnHand(productId, 0);
+            }
+            regroup = true;
+        }
+
+        if (regroup) {
+            filterProducts();
+        } else {
+            productGrid.setSnapshot(after);
+        }
+    }
+
+    private void cancelCatalogLoad() {
+        if (categoryLoader != null) {
+            categoryLoader.cancel(true);
+        }
+        if (productLoader != null) {
+            productLoader.cancel(true);
+        }
+    }
+
+    private void updateLoadProgress() {
+        boolean loading = (categoryLoader != null && !categoryLoader.isDone())
+                || (productLoader != null && !productLoader.isDone());
+        loadPanel.setVisible(loading);
+    }
+
+    // Products the grid lays out after filtering; call on the EDT
+    int getShownProductCount() {
+        return productGrid.items.length;
+    }
+
+    // As if pasted; the field's change events start a search as typing does
+    void setSearchText(String text) {
+        searchField.setText(text);
+    }
+
+    // One keystroke at the end of the search field, '\b' deleting the last character
+    void typeSearchKey(char key) {
+        Document document = searchField.getDocument();
+        try {
+            if (key == '\b') {
+                document.remove(document.getLength() - 1, 1);
+            } else {
+                document.insertString(document.getLength(), String.valueOf(key), null);
+            }
+        } catch (BadLocationException e) {
+            throw new IllegalStateException("Nothing to delete", e);
+        }
+    }
+
+    private void loadSampleProducts() {
+        CatalogStore.Batch samples = new CatalogStore.Batch();
+        samples.add(1, "Original Count Next Buyer With One New Veg", 2399, "no_image.jpg", 5, "Food");
+        samples.add(2, "Fresh Orange Juice With Real Food", 2399, "no_image.jpg", 10, "Beverages");
+        samples.add(3, "Hard Sun/Head With Truck Shop", 0, "no_image.jpg", 8, "Snacks");
+        samples.add(4, "Focus Sales With Chicken", 1600, "no_image.jpg", 7, "Food");
+        samples.add(5, "Trading Vegetable Sales - Happy Fruit", 100, "no_image.jpg", 15, "Food");
+        samples.add(6, "Orange Juice With Real Food on Sugar", 599, "no_image.jpg", 20, "Beverages");
+        samples.add(7, "Orange Cream Buyer With Fresh Green", 0, "no_image.jpg", 5, "Snacks");
+        samples.add(8, "Apple &Farm", 299, "no_image.jpg", 50, "Food");
+        addProducts(Collections.singletonList(samples), stockReservations.beginRefresh());
+    }
+
+    private void addProducts(List<CatalogStore.Batch> loaded, long refresh) {
+        for (CatalogStore.Batch batch : loaded) {
+            CatalogLoader.storeBatch(catalog, searchIndex, stockReservations, batch, refresh);
+        }
+        filterProducts(); // Single re-render for the whole batch
+    }
+
+    private JPanel createOrderPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBorder(BorderFactory.createTitledBorder("Order Summary"));
+        panel.setPreferredSize(new Dimension(350, getHeight()));
+
+        // Order items display
+        orderTableModel = new OrderTableModel(cart);
+        orderTable = new JTable(orderTableModel);
+        orderTable.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        orderTable.setRowHeight(22);
+        orderTable.setFillsViewportHeight(true);
+        orderTable.setFocusable(false);
+        orderTable.setRowSelectionAllowed(false);
+        orderTable.getTableHeader().setReorderingAllowed(false);
+        orderTable.getColumnModel().getColumn(0).setPreferredWidth(200);
+        orderTable.getColumnModel().getColumn(1).setPreferredWidth(40);
+        orderTable.getColumnModel().getColumn(2).setPreferredWidth(80);
+        orderTable.getColumnModel().getColumn(2).setCellRenderer(new MoneyCellRenderer());
+        orderTable.setPreferredScrollableViewportSize(new Dimension(320, 15 * 22));
+        panel.add(new JScrollPane(orderTable));
+
+        // Totals panel
+        panel.add(createTotalsPanel());
+
+        // Payment methods
+        panel.add(createPaymentPanel());
+
+        // Action buttons
+        panel.add(createActionPanel());
+
+        // Outcome of the last sale; replaces the modal receipt so the next sale can start at once
+        orderStatusLabel = new JLabel(" ", JLabel.CENTER);
+        orderStatusLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        orderStatusLabel.setBorder(BorderFactory.createEmptyBorder(8, 5, 0, 5));
+        panel.add(orderStatusLabel);
+
+        return panel;
+    }
+
+    private JPanel createTotalsPanel() {
+        JPanel panel = new JPanel(new GridLayout(3, 2, 5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 5, 10, 5));
+
+        subtotalLabel = new JLabel("$0.00", JLabel.RIGHT);
+        taxLabel = new JLabel("$0.00", JLabel.RIGHT);
+        totalLabel = new JLabel("$0.00", JLabel.RIGHT);
+
+        subtotalLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        taxLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        totalLabel.setFont(new Font("Arial", Font.BOLD, 16));
+
+        panel.add(new JLabel("Subtotal:"));
+        panel.add(subtotalLabel);
+        panel.add(new JLabel("Tax (10%):"));
+        panel.add(taxLabel);
+        panel.add(new JLabel("Total:"));
+        panel.add(totalLabel);
+
+        return panel;
+    }
+    
+    private JPanel createPaymentPanel() {
+        JPanel panel = new JPanel(new GridLayout(1, 3, 5, 5));
+        panel.setBorder(BorderFactory.createTitledBorder("Payment Method"));
+
+        JButton cashButton = new JButton("Cash");
+        JButton cardButton = new JButton("Card");
+        JButton qrButton = new JButton("QR Code");
+
+        cashButton.setBackground(new Color(220, 220, 255));
+        cardButton.setBackground(new Color(220, 220, 255));
+        qrButton.setBackground(new Color(220, 220, 255));
+
+        cashButton.addActionListener(e -> setPaymentMethod("Cash"));
+        cardButton.addActionListener(e -> setPaymentMethod("Card"));
+        qrButton.addActionListener(e -> {
+            setPaymentMethod("QRCode");
+            generateAndShowQRCode(cart.getTotalCents());
+        });
+
+        panel.add(cashButton);
+        panel.add(cardButton);
+        panel.add(qrButton);
+
+        return panel;
+    }
+
+    private JPanel createActionPanel() {
+        JPanel panel = new JPanel(new GridLayout(1, 2, 5, 5));
+
+        placeOrderButton = new JButton("Place Order");
+        JButton clearButton = new JButton("Clear Order");
+
+        placeOrderButton.setBackground(new Color(9, 214, 39));
+        clearButton.setBackground(new Color(186, 4, 65));
+
+        placeOrderButton.addActionListener(e -> placeOrder());
+        clearButton.addActionListener(e -> {
+            refreshProducts(checkout.clear(cart));
+            updateOrderDisplay();
+        });
+
+        panel.add(placeOrderButton);
+        panel.add(clearButton);
+
+        return panel;
+    }
+
+    // What an "Add to Order" click runs; call on the EDT
+    void addToOrder(int productId, String name, long priceCents) {
+        long start = System.nanoTime();
+        if (catalog.snapshot().indexOf(productId) < 0) {
+            JOptionPane.showMessageDialog(this, "Product not found!", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Hold the unit in the shared reservation cache; the database is only asked at commit time
+        int row = cart.indexOf(productId);
+        if (!checkout.add(cart, productId, name, priceCents, 1)) {
+            JOptionPane.showMessageDialog(this, "Product out of stock!", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        productGrid.refreshProduct(productId);
+        if (stockReservations.available(productId) == 0) {
+            JOptionPane.showMessageDialog(this, "Product out of stock!", "Info", JOptionPane.INFORMATION_MESSAGE);
+        }
+
+        // Only the touched row and the totals repaint
+        if (row < 0) {
+            orderTableModel.fireTableRowsInserted(cart.size() - 1, cart.size() - 1);
+        } else {
+            orderTableModel.fireTableRowsUpdated(row, row);
+        }
+        updateTotals();
+        metrics.timer("cart.add").recordSince(start);
+    }
+
+    // Straight from a scan to the cart: one primitive lookup, no search or grid rebuild
+    void scanToCart(String code) {
+        long start = System.nanoTime();
+        long key = LongIntMap.parse(code);
+        int productId = key == LongIntMap.EMPTY ? -1 : barcodeIndex.get(key);
+        CatalogStore.Snapshot snapshot = catalog.snapshot();
+        if (productId < 0 && key != LongIntMap.EMPTY && key <= Integer.MAX_VALUE && snapshot.indexOf((int) key) >= 0) {
+            productId = (int) key;
+        }
+
+        Product product = productId < 0 ? null : snapshot.get(productId);
+        if (product == null) {
+            Toolkit.getDefaultToolkit().beep();
+            showOrderStatus("Unknown barcode " + code, new Color(186, 4, 65));
+            metrics.count("scan.unknown");
+            return;
+        }
+        addToOrder(product.getProductId(), product.getName(), product.getPriceCents());
+        metrics.timer("scan.toCart").recordSince(start);
+    }
+
+    private void scanImageFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return ImageIO.read(file);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }).thenCompose(image -> image == null
+                ? CompletableFuture.completedFuture((String) null)
+                : barcodeImages.decode(image))
+          .whenComplete((code, error) -> SwingUtilities.invokeLater(() -> {
+              if (error == null && code != null) {
+                  scanToCart(code);
+              } else {
+                  Toolkit.getDefaultToolkit().beep();
+                  showOrderStatus("No barcode found in " + file.getName(), new Color(186, 4, 65));
+              }
+          }));
+    }
+
+    private void updateOrderDisplay() {
+        long start = System.nanoTime();
+        orderTableModel.fireTableDataChanged();
+        updateTotals();
+        metrics.timer("cart.display").recordSince(start);
+    }
+
+    private void updateTotals() {
+        // Labels are only touched when the amount actually changed
+        if (cart.getSubtotalCents() != displayedSubtotalCents) {
+            displayedSubtotalCents = cart.getSubtotalCents();
+            subtotalLabel.setText(Money.format(cart.getSubtotalCents()));
+            taxLabel.setText(Money.format(cart.getTaxCents()));
+            totalLabel.setText(Money.format(cart.getTotalCents()));
+        }
+        placeOrderButton.setEnabled(!cart.isEmpty());
+    }
+
+    private void placeOrder() {
+        if (cart.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No items in order!", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Freeze the cart and hand it to the committer; the till is free for the next sale right away.
+        // The cart's stock holds travel with the order until it settles.
+        OrderSnapshot order = new OrderSnapshot(cart, currentPaymentMethod, getLoggedInStaffId());
+        clearOrder();
+
+        checkout.placeOrder(order).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+            if (failure == null && result.isOffline()) {
+                String orderNumber = "PENDING-" + order.getJournalId().substring(0, 8);
+                printReceipt(orderNumber, order);
+                showOrderStatus("Order " + orderNumber + " saved offline, will sync automatically", new Color(200, 120, 0));
+            } else if (failure == null) {
+                String orderNumber = String.valueOf(result.getOrderId());
+                printReceipt(orderNumber, order);
+                showOrderStatus("Order #" + orderNumber + " placed, " + Money.format(order.getTotalCents()), new Color(0, 130, 40));
+            } else if (failure instanceof StockConflictException) {
+                refreshProducts(order.getItems());
+                showStockConflicts((StockConflictException) failure);
+            } else {
+                refreshProducts(order.getItems());
+                JOptionPane.showMessageDialog(this, "Error processing order: " + Errors.rootMessage(failure),
+                        "Database Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+    }
+
+    // Holds given back change what the grid shows as available
+    private void refreshProducts(List<OrderItem> items) {
+        for (OrderItem item : items) {
+            productGrid.refreshProduct(item.getProductId());
+        }
+    }
+
+    // CartCheckout has already adopted the database's counts
+    private void showStockConflicts(StockConflictException conflict) {
+        StringBuilder message = new StringBuilder("Not enough stock, the order was not placed:\n");
+        for (StockConflict line : conflict.getConflicts()) {
+            productGrid.refreshProduct(line.getProductId());
+            message.append(String.format("%-25s requested %d, available %d\n",
+                    truncateName(line.getName()), line.getRequested(), line.getAvailable()));
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "Stock Conflict", JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void generateAndShowQRCode(long amountCents) {
+        // Dated by day rather than by instant so a re-press for the same total hits the cache
+        String qrContent = "POS Payment\nAmount: " + Money.format(amountCents) +
+                         "\nDate: " + LocalDate.now();
+
+        JLabel qrLabel = new JLabel("Generating QR code...", JLabel.CENTER);
+        qrLabel.setPreferredSize(new Dimension(QR_SIZE, QR_SIZE));
+        JDialog dialog = new JOptionPane(qrLabel, JOptionPane.PLAIN_MESSAGE)
+            .createDialog(this, "Scan QR Code to Pay " + Money.format(amountCents));
+
+        // The modal dialog keeps pumping events, so the code is swapped in while it is open
+        qrCodes.render(qrContent, QR_SIZE).whenComplete((image, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                qrLabel.setText(null);
+                qrLabel.setIcon(new ImageIcon(image));
+            } else {
+                dialog.dispose();
+                JOptionPane.showMessageDialog(this, 
+                    "Failed to generate QR code: " + Errors.rootMessage(error),
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+
+        dialog.setVisible(true);
+        dialog.dispose();
+    }
+
+    private void setPaymentMethod(String method) {
+        currentPaymentMethod = method;
+        JOptionPane.showMessageDialog(this, "Payment method set to: " + method, 
+            "Payment Method", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private int getLoggedInStaffId() {
+        if (System.getProperty("staff.id") != null) {
+            return Integer.parseInt(System.getProperty("staff.id"));
+        }
+        return 1; // default staff ID if not set
+    }
+
+    private void printReceipt(String orderNumber, OrderSnapshot order) {
+        receiptSpooler.submit(orderNumber, order);
+    }
+
+    private void showOrderStatus(String message, Color color) {
+        orderStatusLabel.setForeground(color);
+        orderStatusLabel.setText(message);
+    }
+
+    private void clearOrder() {
+        cart.clear();
+        updateOrderDisplay();
+    }
+
+    private String truncateName(String name) {
+        return name.length() > 30 ? name.substring(0, 27) + "..." : name;
+    }
+
+    // Row view over the cart for the order summary table
+    private static class OrderTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = { "Item", "Qty", "Price" };
+        private final Cart cart;
+
+        public OrderTableModel(Cart cart) {
+            this.cart = cart;
+        }
+
+        @Override public int getRowCount() { return cart.size(); }
+        @Override public int getColumnCount() { return COLUMNS.length; }
+        @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 ? Integer.class : column == 2 ? OrderItem.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            OrderItem item = cart.getLine(row);
+            switch (column) {
+                case 0: return item.getName();
+                case 1: return item.getQuantity();
+                default: return item;
+            }
+        }
+    }
+
+    // Formats the unit price straight from the line's cents
+    private static class MoneyCellRenderer extends DefaultTableCellRenderer {
+        public MoneyCellRenderer() {
+            setHorizontalAlignment(JLabel.RIGHT);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof OrderItem ? Money.format(((OrderItem) value).getPriceCents()) : "");
+        }
+    }
+
+    // Scrollable panel that lays out category headers and 4-column product rows
+    // itself and only keeps ProductCards for the rows inside the viewport.
+    // Cards scrolled out of view are hidden and rebound to other products.
+    private class VirtualProductGrid extends JPanel implements Scrollable {
+        private CatalogStore.Snapshot snapshot;
+        private int[] items = new int[0]; // catalog rows in display order
+        private String[] rowHeaders = new String[0];
+        private int[] rowFirstItem = new int[0];
+        private int[] rowItemCount = new int[0];
+        private int[] rowTop = new int[0];
+        private int contentHeight;
+        private Map<Integer, ProductCard> boundCards = new HashMap<>();
+        private final Deque<ProductCard> spareCards = new ArrayDeque<>();
+        private final Map<String, JPanel> headers = new HashMap<>();
+
+        public VirtualProductGrid() {
+            super(null);
+        }
+
+        public void setSections(CatalogStore.Snapshot snapshot, Map<String, int[]> sections) {
+            this.snapshot = snapshot;
+            int rowCount = 0;
+            int itemCount = 0;
+            for (int[] section : sections.values()) {
+                rowCount += 1 + (section.length + GRID_COLUMNS - 1) / GRID_COLUMNS;
+                itemCount += section.length;
+            }
+            items = new int[itemCount];
+
+            rowHeaders = new String[rowCount];
+            rowFirstItem = new int[rowCount];
+            rowItemCount = new int[rowCount];
+            rowTop = new int[rowCount];
+
+            int row = 0;
+            int item = 0;
+            int y = getInsets().top;
+            for (Map.Entry<String, int[]> entry : sections.entrySet()) {
+                rowHeaders[row] = entry.getKey();
+                rowTop[row++] = y;
+                y += HEADER_HEIGHT;
+
+                int[] section = entry.getValue();
+                for (int i = 0; i < section.length; i += GRID_COLUMNS) {
+                    rowFirstItem[row] = item + i;
+                    rowItemCount[row] = Math.min(GRID_COLUMNS, section.length - i);
+                    rowTop[row++] = y;
+                    y += CARD_HEIGHT + (i + GRID_COLUMNS < section.length ? GRID_GAP : 0);
+                }
+                System.arraycopy(section, 0, items, item, section.length);
+                item += section.length;
+                y += SECTION_GAP;
+            }
+            contentHeight = y + getInsets().bottom;
+
+            revalidate();
+            repaint();
+        }
+
+        public void refreshProduct(int productId) {
+            ProductCard card = boundCards.get(productId);
+            if (card != null) {
+                card.refresh();
+            }
+        }
+
+        // Rows keep their index across catalog versions, so a delta that moves
+        // nothing only rebinds the visible cards to the newer snapshot
+        public void setSnapshot(CatalogStore.Snapshot snapshot) {
+            if (this.snapshot != null) {
+                this.snapshot = snapshot;
+                layoutVisibleRows();
+            }
+        }
+
+        @Override
+        public void doLayout() {
+            layoutVisibleRows();
+        }
+
+        public void layoutVisibleRows() {
+            Rectangle view = getVisibleRect();
+            Insets insets = getInsets();
+            int innerWidth = getWidth() - insets.left - insets.right;
+            int cardWidth = Math.max(0, (innerWidth - GRID_GAP * (GRID_COLUMNS - 1)) / GRID_COLUMNS);
+
+            Map<Integer, ProductCard> stillBound = new HashMap<>();
+            Set<String> visibleHeaders = new HashSet<>();
+
+            for (int row = firstRowBelow(view.y); row < rowTop.length && rowTop[row] < view.y + view.height; row++) {
+                if (rowHeaders[row] != null) {
+                    JPanel header = headers.computeIfAbsent(rowHeaders[row], name -> {
+                        JPanel created = createCategoryHeader(name);
+                        add(created);
+                        return created;
+                    });
+                    header.setBounds(insets.left, rowTop[row], innerWidth, HEADER_HEIGHT);
+                    header.setVisible(true);
+                    visibleHeaders.add(rowHeaders[row]);
+                    continue;
+                }
+
+                for (int col = 0; col < rowItemCount[row]; col++) {
+                    Product product = snapshot.row(items[rowFirstItem[row] + col]);
+                    ProductCard card = boundCards.remove(product.getProductId());
+                    if (card == null) {
+                        card = spareCards.poll();
+                    }
+                    if (card == null) {
+                        card = new ProductCard();
+                        add(card);
+                    }
+                    card.bind(product);
+                    card.setBounds(insets.left + col * (cardWidth + GRID_GAP), rowTop[row], cardWidth, CARD_HEIGHT);
+                    card.setVisible(true);
+                    stillBound.put(product.getProductId(), card);
+                }
+            }
+
+            // Recycle whatever scrolled out of view
+            for (ProductCard card : boundCards.values()) {
+                card.setVisible(false);
+                spareCards.push(card);
+            }
+            boundCards = stillBound;
+
+            for (Map.Entry<String, JPanel> entry : headers.entrySet()) {
+                if (!visibleHeaders.contains(entry.getKey())) {
+                    entry.getValue().setVisible(false);
+                }
+            }
+        }
+
+        private int firstRowBelow(int y) {
+            // Last row starting at or above y; rows are sorted by rowTop
+            int low = 0, high = rowTop.length - 1, found = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (rowTop[mid] <= y) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(super.getPreferredSize().width, contentHeight);
+        }
+
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return 20;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
+        }
+    }
+
+    private class ProductCard extends JPanel {
+        private Product product;
+        private JLabel imgLabel;
+        private JLabel nameLabel;
+        private JLabel priceLabel;
+        private JLabel stockLabel;
+        private JLabel categoryLabel;
+        private JButton addButton;
+
+        public ProductCard() {
+            initializeUI();
+        }
+
+        private void initializeUI() {
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+            setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
+            setBackground(Color.WHITE);
+            setPreferredSize(new Dimension(200, 240));
+
+            // Product image
+            imgLabel = new JLabel();
+            imgLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            add(Box.createVerticalStrut(5));
+            add(imgLabel);
+
+            // Product info
+            JPanel infoPanel = new JPanel();
+            infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
+            infoPanel.setBackground(Color.WHITE);
+            infoPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            nameLabel = new JLabel("", JLabel.CENTER);
+            priceLabel = new JLabel("", JLabel.CENTER);
+            stockLabel = new JLabel("", JLabel.CENTER);
+            categoryLabel = new JLabel("", JLabel.CENTER);
+
+            nameLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            priceLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            stockLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            categoryLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            priceLabel.setFont(new Font("Arial", Font.BOLD, 14));
+            stockLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+            categoryLabel.setFont(new Font("Arial", Font.ITALIC, 11));
+            categoryLabel.setForeground(Color.GRAY);
+
+            infoPanel.add(Box.createVerticalStrut(5));
+            infoPanel.add(nameLabel);
+            infoPanel.add(priceLabel);
+            infoPanel.add(stockLabel);
+            infoPanel.add(categoryLabel);
+            infoPanel.add(Box.createVerticalStrut(5));
+
+            // Add button
+            addButton = new JButton("Add to Order");
+            addButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+            addButton.setBackground(new Color(2, 240, 90));
+            addButton.setForeground(Color.WHITE);
+            addButton.setPreferredSize(new Dimension(150, 80));
+            
+            addButton.addActionListener(e -> {
+                POSGridView.this.addToOrder(product.getProductId(), product.getName(), product.getPriceCents());
+            });
+
+            add(infoPanel);
+            add(Box.createVerticalStrut(5));
+            add(addButton);
+            add(Box.createVerticalStrut(5));
+        }
+
+        public void bind(Product product) {
+            if (!product.isSameAs(this.product)) {
+                boolean imageChanged = this.product == null
+                        || !this.product.getImagePath().equals(product.getImagePath());
+                this.product = product;
+                if (imageChanged) {
+                    showImage(product.getImagePath());
+                }
+                nameLabel.setText("<html><center>" + product.getName() + "</center></html>");
+                priceLabel.setText(Money.format(product.getPriceCents()));
+                categoryLabel.setText(product.getCategoryName());
+            }
+            refresh();
+        }
+
+        public void refresh() {
+            int available = stockReservations.available(product.getProductId());
+            boolean inStock = available > 0;
+            stockLabel.setText("Stock: " + available);
+            setEnabled(inStock);
+            addButton.setEnabled(inStock);
+        }
+
+        private void showImage(String imgPath) {
+            ImageIcon cached = thumbnails.getIfCached(imgPath);
+            if (cached != null) {
+                imgLabel.setIcon(cached);
+                return;
+            }
+
+            // Show the placeholder now and swap in the thumbnail unless the card was rebound meanwhile
+            imgLabel.setIcon(ThumbnailCache.LOADING_ICON);
+            thumbnails.load(imgPath, icon -> {
+                if (product != null && product.getImagePath().equals(imgPath)) {
+                    imgLabel.setIcon(icon);
+                }
+            });
+        }
+    }
+
+}
+
@@ -0,0 +1,100 @@
+package pos;
+
+import java.util.Arrays;
+
+// A column of longs stored zig-zag encoded in as many bits as its widest
+// value needs, so ids, prices and stock levels of a catalog take a few
+// bytes a row rather than a full int or long each. A write that fits goes
+// in place; a wider value returns a re-packed copy. Like an array appended
+// past a published size, a reader only ever decodes indexes it owns: the
+// bits of other indexes sharing a word are rewritten with the same values.
+final class PackedColumn {
+    private final int bits; // 0 while every value is zero
+    private final int capacity;
+    private final long[] words;
+
+    PackedColumn(int capacity) {
+        this(0, capacity, new long[0]);
+    }
+
+    PackedColumn(int bits, int capacity, long[] words) {
+        if (bits < 0 || bits > 64 || words.length < wordsFor(bits, capacity)) {
+            throw new IllegalArgumentException("Bad column: " + bits + " bits, " + capacity + " values");
+        }
+        this.bits = bits;
+        this.capacity = capacity;
+        this.words = words;
+    }
+
+    static int wordsFor(int bits, int count) {
+        return (int) (((long) bits * count + 63) >>> 6);
+    }
+
+    int getBits() { return bits; }
+    int getCapacity() { return capacity; }
+    long[] getWords() { return words; }
+
+    long get(int index) {
+        if (bits == 0) {
+            return 0;
+        }
+        long bitIndex = (long) index * bits;
+        int word = (int) (bitIndex >>> 6);
+        int shift = (int) (bitIndex & 63);
+        long encoded = words[word] >>> shift;
+        if (shift + bits > 64) {
+            encoded |= words[word + 1] << (64 - shift);
+        }
+        if (bits < 64) {
+            encoded &= (1L << bits) - 1;
+        }
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    // Returns the column to keep using: this one, or a wider copy
+    PackedColumn set(int index, long value) {
+        long encoded = (value << 1) ^ (value >> 63);
+        int needed = 64 - Long.numberOfLeadingZeros(encoded);
+        if (needed > bits) {
+            PackedColumn wider = repack(needed, capacity);
+            wider.write(index, encoded);
+            return wider;
+        }
+        write(index, encoded);
+        return this;
+    }
+
+    PackedColumn withCapacity(int newCapacity) {
+        return new PackedColumn(bits, newCapacity, Arrays.copyOf(words, wordsFor(bits, newCapacity)));
+    }
+
+    PackedColumn copy() {
+        return new PackedColumn(bits, capacity, words.clone());
+    }
+
+    private void write(int index, long encoded) {
+        if (bits == 0) {
+            return;
+        }
+        long bitIndex = (long) index * bits;
+        int word = (int) (bitIndex >>> 6);
+        int shift = (int) (bitIndex & 63);
+        long mask = bits == 64 ? -1L : (1L << bits) - 1;
+        words[word] = (words[word] & ~(mask << shift)) | (encoded << shift);
+        if (shift + bits > 64) {
+            int spill = 64 - shift;
+            words[word + 1] = (words[word + 1] & ~(mask >>> spill)) | (encoded >>> spill);
+        }
+    }
+
+    private PackedColumn repack(int newBits, int newCapacity) {
+        PackedColumn wider = new PackedColumn(newBits, newCapacity, new long[wordsFor(newBits, newCapacity)]);
+        if (bits > 0) {
+            for (int i = 0, n = Math.min(capacity, newCapacity); i < n; i++) {
+                long value = get(i);
+                wider.write(i, (value << 1) ^ (value >> 63));
+            }
+        }
+        return wider;
+    }
+}
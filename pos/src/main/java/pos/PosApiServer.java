@@ -0,0 +1,342 @@
+package pos;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// JSON over HTTP for PosEngine on the JDK's built-in server. Requests take
+// query or form parameters; responses are JSON with money in integer cents.
+//
+//   GET    /api/products?q=&category=&limit=     GET /api/products/{id}
+//   POST   /api/carts                            GET /api/carts/{id}
+//   POST   /api/carts/{id}/items?productId=&qty=
+//   DELETE /api/carts/{id}/items/{productId}
+//   POST   /api/carts/{id}/checkout?payment=&staffId=
+//   GET    /api/checkouts/{cartId}
+//   GET    /api/sales/summary
+//
+// Handlers run on a fixed pool; a checkout thread parks until the group
+// committer settles its order, so concurrent checkouts share transactions.
+// An order not settled within the wait is answered 202 with a Location to
+// poll. The cart id doubles as the idempotency key: posting the checkout
+// again returns the same order instead of placing a second one.
+class PosApiServer {
+    // The JDK server writes headers and body separately; with Nagle on, every
+    // small response waits out the client's delayed ACK (~40 ms). The setting
+    // is read once per JVM, when the first server (often metrics) is created.
+    static void disableNagle() {
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final PosEngine engine;
+    private final SalesAggregator salesAggregator;
+    private final PosMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final long checkoutWaitMillis;
+
+    // There is no authentication, so only loopback is served unless api.bind says otherwise
+    public PosApiServer(PosEngine engine, SalesAggregator salesAggregator, PosMetrics metrics,
+                        String bindAddress, int port, int threads, long checkoutWaitMillis) throws IOException {
+        this.engine = engine;
+        this.salesAggregator = salesAggregator;
+        this.metrics = metrics;
+        this.checkoutWaitMillis = checkoutWaitMillis;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(bindAddress), port), 256);
+        this.handlers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "pos-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/api/", this::handle);
+        server.setExecutor(handlers);
+    }
+
+    // As with the metrics endpoint, the dispatcher's daemon flag follows the starting thread
+    public void start(boolean keepJvmAlive) {
+        Thread starter = new Thread(server::start, "pos-api-start");
+        starter.setDaemon(!keepJvmAlive);
+        starter.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int status;
+        String body;
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            if (path[0].equals("sales")) {
+                // The dashboard pages are opened from disk or another server; the
+                // summary is read-only, so any origin may read it
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            }
+            Map<String, String> params = readParams(exchange);
+            body = route(exchange.getRequestMethod(), path, params);
+            status = exchange.getRequestMethod().equals("POST") && path.length == 1 ? 201 : 200;
+        } catch (NoSuchElementException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (IllegalStateException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (StockConflictException e) {
+            status = 409;
+            body = conflicts(e);
+        } catch (CheckoutPending e) {
+            status = 202;
+            body = pending(e.cartId);
+            exchange.getResponseHeaders().set("Location", "/api/checkouts/" + e.cartId);
+            metrics.count("api.checkoutsPending");
+        } catch (Exception e) {
+            status = 500;
+            body = error(Errors.rootMessage(e));
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        metrics.timer("api.request").recordSince(start);
+        if (status >= 500) {
+            metrics.count("api.errors");
+        }
+    }
+
+    private String route(String method, String[] path, Map<String, String> params) throws Exception {
+        String resource = path[0];
+        if (resource.equals("products") && method.equals("GET")) {
+            if (path.length == 2) {
+                return product(new JsonWriter(), engine.getProduct(parseInt(path[1], "id"))).toString();
+            }
+            List<Product> found = engine.search(params.getOrDefault("q", ""),
+                params.getOrDefault("category", "All"), parseInt(params.getOrDefault("limit", "100"), "limit"));
+            JsonWriter json = new JsonWriter().beginArray();
+            for (Product p : found) {
+                product(json, p);
+            }
+            return json.endArray().toString();
+        }
+
+        if (resource.equals("carts")) {
+            if (path.length == 1 && method.equals("POST")) {
+                String cartId = engine.createCart();
+                return cart(new JsonWriter(), cartId, engine.getCart(cartId)).toString();
+            }
+            if (path.length < 2) {
+                throw new NoSuchElementException("No route");
+            }
+            String cartId = path[1];
+            if (path.length == 2 && method.equals("GET")) {
+                return cart(new JsonWriter(), cartId, engine.getCart(cartId)).toString();
+            }
+            if (path.length == 3 && path[2].equals("items") && method.equals("POST")) {
+                PosEngine.EngineCart cart = engine.addItem(cartId, parseInt(params.get("productId"), "productId"),
+                    parseInt(params.getOrDefault("qty", "1"), "qty"));
+                return cart(new JsonWriter(), cartId, cart).toString();
+            }
+            if (path.length == 4 && path[2].equals("items") && method.equals("DELETE")) {
+                return cart(new JsonWriter(), cartId, engine.removeItem(cartId, parseInt(path[3], "productId"))).toString();
+            }
+            if (path.length == 3 && path[2].equals("checkout") && method.equals("POST")) {
+                return checkout(cartId, params);
+            }
+        }
+
+        if (resource.equals("checkouts") && path.length == 2 && method.equals("GET")) {
+            return settled(path[1], engine.getCheckout(path[1]), 0);
+        }
+        if (resource.equals("sales") && path.length == 2 && path[1].equals("summary") && method.equals("GET")) {
+            return salesSummary();
+        }
+        throw new NoSuchElementException("No route for " + method + " /api/" + String.join("/", path));
+    }
+
+    private String checkout(String cartId, Map<String, String> params) throws Exception {
+        CompletableFuture<OrderResult> pending = engine.checkout(cartId, params.getOrDefault("payment", "Cash"),
+            parseInt(params.getOrDefault("staffId", "1"), "staffId"));
+        return settled(cartId, pending, checkoutWaitMillis);
+    }
+
+    // A failed order answers with the status its failure maps to, every time it is asked
+    private static String settled(String cartId, CompletableFuture<OrderResult> pending, long waitMillis) throws Exception {
+        OrderResult result;
+        try {
+            result = pending.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new CheckoutPending(cartId);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        return new JsonWriter().beginObject()
+            .name("checkoutId").value(cartId)
+            .name("status").value("committed")
+            .name("orderId").value(result.getOrderId())
+            .name("offline").value(result.isOffline())
+            .endObject().toString();
+    }
+
+    private static String pending(String cartId) {
+        return new JsonWriter().beginObject()
+            .name("checkoutId").value(cartId)
+            .name("status").value("pending")
+            .endObject().toString();
+    }
+
+    // Read under the aggregator's lock so every figure comes from the same moment
+    private String salesSummary() {
+        synchronized (salesAggregator) {
+            JsonWriter json = new JsonWriter().beginObject()
+                .name("ready").value(salesAggregator.isReady())
+                .name("todayRevenueCents").value(salesAggregator.getTodayRevenueCents())
+                .name("todayOrders").value(salesAggregator.getTodayOrderCount())
+                .name("hourlyRevenueCents").beginArray();
+            for (long cents : salesAggregator.getHourlyRevenueCents(24)) {
+                json.value(cents);
+            }
+            json.endArray().name("hourlyOrders").beginArray();
+            for (long orders : salesAggregator.getHourlyOrderCounts(24)) {
+                json.value(orders);
+            }
+            json.endArray().name("topProducts").beginArray();
+            for (int productId : salesAggregator.getTopProducts()) {
+                Product product = engine.findProduct(productId);
+                json.beginObject()
+                    .name("id").value(productId)
+                    .name("name").value(product != null ? product.getName() : "#" + productId)
+                    .name("priceCents").value(product != null ? product.getPriceCents() : 0)
+                    .name("revenueCents").value(salesAggregator.getProductRevenueCents(productId))
+                    .name("units").value(salesAggregator.getProductUnits(productId))
+                    .endObject();
+            }
+            json.endArray().name("staff").beginArray();
+            for (int staffId : salesAggregator.getStaffIds()) {
+                json.beginObject()
+                    .name("id").value(staffId)
+                    .name("revenueCents").value(salesAggregator.getStaffRevenueCents(staffId))
+                    .name("orders").value(salesAggregator.getStaffOrderCount(staffId))
+                    .endObject();
+            }
+            return json.endArray().endObject().toString();
+        }
+    }
+
+    private JsonWriter product(JsonWriter json, Product p) {
+        return json.beginObject()
+            .name("id").value(p.getProductId())
+            .name("name").value(p.getName())
+            .name("priceCents").value(p.getPriceCents())
+            .name("category").value(p.getCategoryName())
+            .name("available").value(engine.getAvailable(p.getProductId()))
+            .endObject();
+    }
+
+    private static JsonWriter cart(JsonWriter json, String cartId, PosEngine.EngineCart engineCart) {
+        synchronized (engineCart) {
+            Cart cart = engineCart.getCart();
+            json.beginObject().name("cartId").value(cartId).name("items").beginArray();
+            for (OrderItem item : cart.getLines()) {
+                json.beginObject()
+                    .name("productId").value(item.getProductId())
+                    .name("name").value(item.getName())
+                    .name("quantity").value(item.getQuantity())
+                    .name("priceCents").value(item.getPriceCents())
+                    .name("lineCents").value(item.getLineCents())
+                    .endObject();
+            }
+            return json.endArray()
+                .name("subtotalCents").value(cart.getSubtotalCents())
+                .name("taxCents").value(cart.getTaxCents())
+                .name("totalCents").value(cart.getTotalCents())
+                .endObject();
+        }
+    }
+
+    private static String conflicts(StockConflictException e) {
+        JsonWriter json = new JsonWriter().beginObject()
+            .name("error").value("Not enough stock")
+            .name("conflicts").beginArray();
+        for (StockConflict line : e.getConflicts()) {
+            json.beginObject()
+                .name("productId").value(line.getProductId())
+                .name("requested").value(line.getRequested())
+                .name("available").value(line.getAvailable())
+                .endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private static String error(String message) {
+        return new JsonWriter().beginObject().name("error").value(message).endObject().toString();
+    }
+
+    private static int parseInt(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseQuery(exchange.getRequestURI().getRawQuery(), params);
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+            parseQuery(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseQuery(String query, Map<String, String> params) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+    }
+
+    private static final class CheckoutPending extends Exception {
+        private final String cartId;
+
+        CheckoutPending(String cartId) {
+            super("Checkout still pending", null, false, false);
+            this.cartId = cartId;
+        }
+    }
+}
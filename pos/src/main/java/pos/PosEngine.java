@@ -0,0 +1,314 @@
+package pos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Catalog, carts and checkout without any Swing, for web terminals. It
+// shares this JVM's stock holds, order committer and sales aggregates with
+// any POSGridView running alongside, so a browser cart and a till can never
+// both take the last unit. Carts live in memory under random ids and hand
+// back their holds once idle for longer than the TTL.
+//
+// A checkout is kept under its cart id once submitted, so a client that
+// timed out can ask again (or retry the POST) and gets the same order
+// rather than a second one. Settled checkouts are forgotten after the TTL.
+//
+// After the first load the catalog follows the product table through the
+// same CatalogSync rounds as the till, so prices, names, deletions and
+// category renames reach web terminals without a restart.
+class PosEngine {
+    private final ConnectionPool connectionPool;
+    private final PosMetrics metrics;
+    private final StockReservations stockReservations;
+    private final CartCheckout cartCheckout;
+    private final CatalogStore catalog = new CatalogStore();
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private final Map<String, EngineCart> carts = new ConcurrentHashMap<>();
+    private final Map<String, PendingCheckout> checkouts = new ConcurrentHashMap<>();
+    private final long cartTtlMillis;
+    private final long catalogSyncMillis;
+    private volatile CatalogSync catalogSync; // null until the catalog is loaded
+    // Two threads so a sync round stuck on the database does not hold up expiry
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread thread = new Thread(r, "pos-engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PosEngine(ConnectionPool connectionPool, PosMetrics metrics, StockReservations stockReservations,
+                     OrderCommitter orderCommitter, long cartTtlMillis, long catalogSyncMillis) {
+        this.connectionPool = connectionPool;
+        this.metrics = metrics;
+        this.stockReservations = stockReservations;
+        this.cartCheckout = new CartCheckout(stockReservations, orderCommitter);
+        this.cartTtlMillis = cartTtlMillis;
+        this.catalogSyncMillis = catalogSyncMillis;
+    }
+
+    public void start() {
+        long period = Math.max(1000, cartTtlMillis / 4);
+        scheduler.scheduleWithFixedDelay(this::expireIdleCarts, period, period, TimeUnit.MILLISECONDS);
+        if (catalogSyncMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::syncCatalog, catalogSyncMillis, catalogSyncMillis,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // The watermark is read before the rows so nothing changed during the load is missed
+    public int loadCatalog() throws SQLException {
+        int rows = 0;
+        try (Connection con = connectionPool.getConnection();
+             PreparedStatement stmt = con.prepareStatement(CatalogLoader.PRODUCTS_SQL)) {
+            Timestamp watermark = CatalogLoader.readCatalogWatermark(con);
+            long refresh = stockReservations.beginRefresh();
+            stmt.setFetchSize(CatalogLoader.LOAD_CHUNK_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                CatalogStore.Batch batch = new CatalogStore.Batch();
+                while (rs.next()) {
+                    CatalogLoader.readProduct(rs, batch);
+                    rows++;
+                    if (batch.size() == CatalogLoader.LOAD_CHUNK_SIZE) {
+                        CatalogLoader.storeBatch(catalog, searchIndex, stockReservations, batch, refresh);
+                        batch = new CatalogStore.Batch();
+                    }
+                }
+                CatalogLoader.storeBatch(catalog, searchIndex, stockReservations, batch, refresh);
+            }
+            catalog.trimToSize();
+            searchIndex.trimToSize();
+            if (watermark != null) {
+                catalogSync = new CatalogSync(watermark);
+            }
+        }
+        return rows;
+    }
+
+    // One round; also run by the scheduler. Offline or transient failures
+    // leave the watermark where it was, so the next round retries.
+    void syncCatalog() {
+        CatalogSync sync = catalogSync;
+        if (sync == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (Connection con = connectionPool.getConnection()) {
+            long refresh = stockReservations.beginRefresh();
+            CatalogSync.Delta delta = sync.poll(con, catalog.snapshot());
+            if (!delta.isEmpty()) {
+                applyCatalogDelta(delta, refresh);
+            }
+        } catch (SQLException e) {
+            metrics.count("db.errors");
+        } finally {
+            metrics.timer("db.query.catalogSync").recordSince(start);
+        }
+    }
+
+    // Carts keep the name and price they were filled with; checkout commits those
+    private void applyCatalogDelta(CatalogSync.Delta delta, long refresh) {
+        CatalogLoader.storeBatch(catalog, searchIndex, stockReservations, delta.changed, refresh);
+        if (delta.removed.length > 0) {
+            catalog.removeAll(delta.removed);
+            for (int productId : delta.removed) {
+                searchIndex.remove(productId);
+                stockReservations.setOnHand(productId, 0);
+            }
+        }
+    }
+
+    public Product getProduct(int productId) {
+        Product product = findProduct(productId);
+        if (product == null) {
+            throw new NoSuchElementException("No product " + productId);
+        }
+        return product;
+    }
+
+    // Null for a product the catalog does not have (any more)
+    Product findProduct(int productId) {
+        return catalog.snapshot().get(productId);
+    }
+
+    public int getAvailable(int productId) {
+        return stockReservations.available(productId);
+    }
+
+    public List<Product> search(String text, String categoryName, int limit) {
+        SearchResult result = searchIndex.search(text.toLowerCase(), categoryName, null);
+        CatalogStore.Snapshot snapshot = catalog.snapshot();
+        List<Product> found = new ArrayList<>(Math.min(limit, result.productIds.length));
+        for (int i = 0; i < result.productIds.length && found.size() < limit; i++) {
+            Product product = snapshot.get(result.productIds[i]);
+            if (product != null) {
+                found.add(product);
+            }
+        }
+        return found;
+    }
+
+    public String createCart() {
+        String cartId = UUID.randomUUID().toString();
+        carts.put(cartId, new EngineCart(new Cart(Cart.STANDARD_TAX_BASIS_POINTS)));
+        return cartId;
+    }
+
+    // The caller reads the returned cart while holding its monitor
+    public EngineCart getCart(String cartId) {
+        EngineCart cart = carts.get(cartId);
+        if (cart == null) {
+            throw new NoSuchElementException("No cart " + cartId);
+        }
+        cart.touch();
+        return cart;
+    }
+
+    public EngineCart addItem(String cartId, int productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        Product product = getProduct(productId);
+        EngineCart cart = getCart(cartId);
+        synchronized (cart) {
+            if (cart.closed) {
+                throw new NoSuchElementException("No cart " + cartId);
+            }
+            if (!cartCheckout.add(cart.cart, productId, product.getName(), product.getPriceCents(), quantity)) {
+                throw new IllegalStateException("Only " + stockReservations.available(productId)
+                    + " of " + product.getName() + " available");
+            }
+        }
+        return cart;
+    }
+
+    public EngineCart removeItem(String cartId, int productId) {
+        EngineCart cart = getCart(cartId);
+        synchronized (cart) {
+            // Its holds now travel with the order; releasing one would let the unit sell twice
+            if (cart.closed) {
+                throw new NoSuchElementException("No cart " + cartId);
+            }
+            cartCheckout.remove(cart.cart, productId);
+        }
+        return cart;
+    }
+
+    // Holds travel with the order exactly as they do for the till's Place Order.
+    // Checking out a cart again returns the checkout already under way.
+    public CompletableFuture<OrderResult> checkout(String cartId, String paymentMethod, int staffId) {
+        switch (paymentMethod.toUpperCase()) {
+            case "CASH":
+            case "CARD":
+            case "QRCODE":
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid payment method: " + paymentMethod);
+        }
+
+        // The checkout is recorded before the cart goes, so one of the two is found
+        EngineCart cart = carts.get(cartId);
+        if (cart == null) {
+            return getCheckoutOrCart(cartId);
+        }
+        synchronized (cart) {
+            PendingCheckout existing = checkouts.get(cartId);
+            if (existing != null) {
+                return existing.result; // a concurrent retry got here first
+            }
+            if (cart.closed) {
+                throw new NoSuchElementException("No cart " + cartId);
+            }
+            if (cart.cart.isEmpty()) {
+                throw new IllegalStateException("Cart is empty");
+            }
+            OrderSnapshot order = new OrderSnapshot(cart.cart, paymentMethod, staffId);
+            PendingCheckout checkout = new PendingCheckout();
+            checkout.result = cartCheckout.placeOrder(order).whenComplete((result, error) -> {
+                if (error == null) {
+                    metrics.count("api.checkouts");
+                }
+                checkout.settledMillis = System.currentTimeMillis();
+            });
+            checkouts.put(cartId, checkout);
+            cart.closed = true;
+            carts.remove(cartId);
+            return checkout.result;
+        }
+    }
+
+    // The checkout submitted for a cart, while it is still remembered
+    public CompletableFuture<OrderResult> getCheckout(String cartId) {
+        PendingCheckout checkout = checkouts.get(cartId);
+        if (checkout == null) {
+            throw new NoSuchElementException("No checkout " + cartId);
+        }
+        return checkout.result;
+    }
+
+    private CompletableFuture<OrderResult> getCheckoutOrCart(String cartId) {
+        PendingCheckout checkout = checkouts.get(cartId);
+        if (checkout == null) {
+            throw new NoSuchElementException("No cart " + cartId);
+        }
+        return checkout.result;
+    }
+
+    private void expireIdleCarts() {
+        long cutoff = System.currentTimeMillis() - cartTtlMillis;
+        for (Map.Entry<String, EngineCart> entry : carts.entrySet()) {
+            EngineCart cart = entry.getValue();
+            synchronized (cart) {
+                if (cart.lastUsedMillis < cutoff && !cart.closed) {
+                    cart.closed = true;
+                    carts.remove(entry.getKey());
+                    cartCheckout.clear(cart.cart);
+                    metrics.count("api.cartsExpired");
+                }
+            }
+        }
+        checkouts.values().removeIf(checkout -> checkout.settledMillis != 0 && checkout.settledMillis < cutoff);
+    }
+
+    public int getCartCount() {
+        return carts.size();
+    }
+
+    private static final class PendingCheckout {
+        private volatile CompletableFuture<OrderResult> result;
+        private volatile long settledMillis; // 0 while the order is pending
+    }
+
+    static final class EngineCart {
+        private final Cart cart;
+        private volatile long lastUsedMillis = System.currentTimeMillis();
+        private boolean closed;
+
+        public EngineCart(Cart cart) {
+            this.cart = cart;
+        }
+
+        public Cart getCart() {
+            return cart;
+        }
+
+        private void touch() {
+            lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+}
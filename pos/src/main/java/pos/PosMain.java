@@ -0,0 +1,33 @@
+package pos;
+
+import java.sql.SQLException;
+
+// Headless entry point: serve the engine's HTTP API without opening a window,
+// or with "simulate" run the checkout load simulator and exit
+public final class PosMain {
+    private PosMain() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("simulate")) {
+            PosMetrics metrics = new PosMetrics();
+            ConnectionPool pool = new ConnectionPool(
+                DBConnection::getConnection,
+                Integer.getInteger("db.pool.size", 8),
+                Long.getLong("db.pool.checkoutTimeoutMs", 5000),
+                Long.getLong("db.pool.idleTimeoutMs", 300_000),
+                Integer.getInteger("db.pool.statementCacheSize", 32));
+            pool.start();
+            try {
+                LoadSimulator.fromSystemProperties(pool, metrics).run();
+                System.exit(0);
+            } catch (SQLException | InterruptedException e) {
+                System.err.println("Simulation failed: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        PosServices services = new PosServices();
+        services.start();
+        services.startApi(Integer.getInteger("api.port", 8080), true);
+    }
+}
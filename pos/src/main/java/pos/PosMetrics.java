@@ -0,0 +1,321 @@
+package pos;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+
+// Process-wide timers, counters and gauges for the terminal. Timers keep a
+// log-linear histogram (four sub-buckets per power of two, so quantiles are
+// within ~20%) in an AtomicLongArray; recording is a couple of atomic adds
+// and never allocates. Everything is published as one JMX MBean
+// (pos:type=Metrics) and, when metrics.port is set, as Prometheus text on
+// http://127.0.0.1:<port>/metrics.
+class PosMetrics implements DynamicMBean {
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    private final Map<String, LatencyTimer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, RateMeter> meters = new ConcurrentHashMap<>();
+    private ObjectName registeredName;
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    public LatencyTimer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new LatencyTimer());
+    }
+
+    public void count(String name) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).increment();
+    }
+
+    public void count(String name, long amount) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(amount);
+    }
+
+    public void mark(String name) {
+        meters.computeIfAbsent(name, k -> new RateMeter()).mark();
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public synchronized void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("pos:type=Metrics");
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e) {
+            // Already registered by another panel in this JVM
+        }
+    }
+
+    public synchronized void startHttpEndpoint(int port) {
+        if (port <= 0 || httpServer != null) {
+            return;
+        }
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            httpExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server.setExecutor(httpExecutor);
+            server.start();
+            httpServer = server;
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint disabled: " + e.getMessage());
+        }
+    }
+
+    // Unpublishes the MBean and closes the endpoint; recording keeps working
+    public synchronized void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpExecutor.shutdownNow();
+            httpServer = null;
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                // Already gone
+            }
+            registeredName = null;
+        }
+    }
+
+    // Flat name -> value view shared by JMX and the text exporter
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        timers.forEach((name, timer) -> {
+            values.put(name + ".count", timer.getCount());
+            values.put(name + ".meanMicros", timer.getMeanMicros());
+            values.put(name + ".maxMicros", timer.getMaxMicros());
+            for (double q : QUANTILES) {
+                values.put(name + ".p" + Math.round(q * 100) + "Micros", timer.getPercentileMicros(q));
+            }
+        });
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        meters.forEach((name, meter) -> values.put(name + ".perMinute", meter.getLastMinute()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        new TreeMap<>(timers).forEach((name, timer) -> {
+            String metric = promName(name) + "_seconds";
+            out.append("# TYPE ").append(metric).append(" summary\n");
+            for (double q : QUANTILES) {
+                out.append(metric).append("{quantile=\"").append(q).append("\"} ")
+                   .append(timer.getPercentileMicros(q) / 1e6).append('\n');
+            }
+            out.append(metric).append("_sum ").append(timer.getTotalNanos() / 1e9).append('\n');
+            out.append(metric).append("_count ").append(timer.getCount()).append('\n');
+        });
+        new TreeMap<>(counters).forEach((name, counter) -> {
+            String metric = promName(name) + "_total";
+            out.append("# TYPE ").append(metric).append(" counter\n");
+            out.append(metric).append(' ').append(counter.sum()).append('\n');
+        });
+        new TreeMap<>(meters).forEach((name, meter) -> {
+            String metric = promName(name) + "_per_minute";
+            out.append("# TYPE ").append(metric).append(" gauge\n");
+            out.append(metric).append(' ').append(meter.getLastMinute()).append('\n');
+        });
+        new TreeMap<>(gauges).forEach((name, gauge) -> {
+            String metric = promName(name);
+            out.append("# TYPE ").append(metric).append(" gauge\n");
+            out.append(metric).append(' ').append(gauge.getAsLong()).append('\n');
+        });
+        return out.toString();
+    }
+
+    private static String promName(String name) {
+        return "pos_" + name.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long value = snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Long> values = snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Long value = values.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("POS metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        // Rebuilt per call since timers and counters appear lazily
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : snapshot().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+        }
+        return new MBeanInfo(PosMetrics.class.getName(), "POS terminal metrics",
+            attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    public static final class LatencyTimer {
+        private static final int BUCKETS = 256;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) {
+                return;
+            }
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        // Index = 4 * floor(log2) + the two bits below the leading one
+        static int bucketOf(long nanos) {
+            if (nanos < 4) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            return exponent * 4 + (int) ((nanos >>> (exponent - 2)) & 3);
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int exponent = bucket / 4;
+            return ((5L + bucket % 4) << (exponent - 2)) - 1;
+        }
+
+        public long getCount() { return count.sum(); }
+        public long getTotalNanos() { return totalNanos.sum(); }
+        public long getMaxMicros() { return TimeUnit.NANOSECONDS.toMicros(maxNanos.get()); }
+
+        public long getMeanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / n);
+        }
+
+        public long getPercentileMicros(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return TimeUnit.NANOSECONDS.toMicros(Math.min(upperBound(i), maxNanos.get()));
+                }
+            }
+            return getMaxMicros();
+        }
+    }
+
+    // Events over the last 60 one-second slots
+    static final class RateMeter {
+        private final AtomicLongArray counts = new AtomicLongArray(60);
+        private final AtomicLongArray seconds = new AtomicLongArray(60);
+
+        public void mark() {
+            long now = System.currentTimeMillis() / 1000;
+            int slot = (int) (now % 60);
+            long stamp = seconds.get(slot);
+            if (stamp != now && seconds.compareAndSet(slot, stamp, now)) {
+                counts.set(slot, 0);
+            }
+            counts.incrementAndGet(slot);
+        }
+
+        public long getLastMinute() {
+            long now = System.currentTimeMillis() / 1000;
+            long sum = 0;
+            for (int slot = 0; slot < 60; slot++) {
+                if (now - seconds.get(slot) < 60) {
+                    sum += counts.get(slot);
+                }
+            }
+            return sum;
+        }
+    }
+}
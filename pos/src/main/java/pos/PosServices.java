@@ -0,0 +1,184 @@
+package pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+
+// The terminal's shared services, wired from system properties. Building
+// one has no side effects; threads, the journal, the metrics endpoint and
+// the API only come up in start() and go down again in stop().
+final class PosServices {
+    final PosMetrics metrics;
+    final ConnectionPool connectionPool;
+    final StockReservations stockReservations;
+    final ThumbnailCache thumbnails;
+    final CatalogSnapshotFile catalogFile;
+    final QrCodeService qrCodes;
+    final BarcodeImageReader barcodeImages;
+    final SalesAggregator salesAggregator;
+    final NotificationOutbox notificationOutbox; // null when notifications are off
+    final OrderCommitter orderCommitter;
+    final ReceiptSpooler receiptSpooler;
+
+    private static PosServices shared;
+
+    private boolean started;
+    private PosEngine engine;
+    private PosApiServer apiServer;
+    private EdtWatchdog edtWatchdog;
+
+    PosServices() {
+        metrics = new PosMetrics();
+        connectionPool = new ConnectionPool(
+            DBConnection::getConnection,
+            Integer.getInteger("db.pool.size", 8),
+            Long.getLong("db.pool.checkoutTimeoutMs", 5000),
+            Long.getLong("db.pool.idleTimeoutMs", 300_000),
+            Integer.getInteger("db.pool.statementCacheSize", 32));
+        stockReservations = new StockReservations();
+        thumbnails = new ThumbnailCache(metrics, posFile("pos.thumbnail.dir", "thumbnails"),
+            512, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), Long.getLong("thumbnail.retryMs", 30_000));
+        catalogFile = new CatalogSnapshotFile(metrics, posFile("catalog.snapshot", "catalog.snap"));
+        qrCodes = new QrCodeService(metrics, 8);
+        barcodeImages = new BarcodeImageReader();
+        salesAggregator = new SalesAggregator(connectionPool, Long.getLong("sales.pollMs", 2000));
+        notificationOutbox = NotificationOutbox.fromSystemProperties(connectionPool, metrics);
+        orderCommitter = new OrderCommitter(
+            posFile("pos.journal.file", "orders.journal"), connectionPool, metrics, salesAggregator, notificationOutbox,
+            Integer.getInteger("order.commit.maxBatch", 16),
+            Long.getLong("order.replay.intervalMs", 30_000));
+        receiptSpooler = new ReceiptSpooler(metrics,
+            ReceiptTemplate.compile(ReceiptTemplate.DEFAULT_LAYOUT, "escpos".equalsIgnoreCase(System.getProperty("receipt.format"))),
+            posFile("receipt.printer", "receipts.txt"),
+            Integer.getInteger("receipt.maxBatch", 16));
+    }
+
+    // Everything under ~/.pos unless the property names another path
+    private static File posFile(String property, String name) {
+        return new File(System.getProperty(property,
+            System.getProperty("user.home") + File.separator + ".pos" + File.separator + name));
+    }
+
+    // One started set per JVM for the tills; the API comes up with it when api.port is set
+    static synchronized PosServices shared() {
+        if (shared == null) {
+            shared = new PosServices();
+            shared.start();
+            if (Integer.getInteger("api.port", 0) > 0) {
+                shared.startApi(Integer.getInteger("api.port", 0), false);
+            }
+        }
+        return shared;
+    }
+
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        PosApiServer.disableNagle(); // before the metrics endpoint, this JVM's first HttpServer
+        connectionPool.start();
+        thumbnails.start();
+        salesAggregator.start();
+        if (notificationOutbox != null) {
+            notificationOutbox.start();
+        }
+        orderCommitter.start();
+        receiptSpooler.start();
+
+        metrics.gauge("db.pool.waiting", connectionPool::getWaitingCount);
+        metrics.gauge("db.pool.checkouts", connectionPool::getCheckoutCount);
+        metrics.gauge("db.pool.checkoutTimeouts", connectionPool::getCheckoutTimeoutCount);
+        metrics.gauge("db.pool.waitMillis", connectionPool::getTotalWaitMillis);
+        metrics.gauge("db.pool.statementCacheHits", connectionPool::getStatementCacheHits);
+        metrics.gauge("db.pool.statementCacheMisses", connectionPool::getStatementCacheMisses);
+        metrics.gauge("order.committed", orderCommitter::getCommittedCount);
+        metrics.gauge("order.failed", orderCommitter::getFailedCount);
+        metrics.gauge("order.deferred", orderCommitter::getDeferredCount);
+        metrics.gauge("order.replayed", orderCommitter::getReplayedCount);
+        metrics.gauge("order.queueDepth", orderCommitter::getQueueDepth);
+        metrics.gauge("order.journalBacklog", orderCommitter::getJournalBacklog);
+        metrics.gauge("receipt.queueDepth", receiptSpooler::getQueueDepth);
+        metrics.gauge("sales.todayRevenueCents", salesAggregator::getTodayRevenueCents);
+        metrics.gauge("sales.todayOrders", salesAggregator::getTodayOrderCount);
+        metrics.registerMBean();
+        metrics.startHttpEndpoint(Integer.getInteger("metrics.port", 0));
+    }
+
+    // Reverse order of start: the API stops taking orders before the committer drains
+    public synchronized void stop() throws InterruptedException {
+        if (!started) {
+            return;
+        }
+        started = false;
+        if (apiServer != null) {
+            apiServer.stop();
+            apiServer = null;
+        }
+        if (engine != null) {
+            engine.stop();
+            engine = null;
+        }
+        if (edtWatchdog != null) {
+            edtWatchdog.stop();
+            edtWatchdog = null;
+        }
+        metrics.stop();
+        receiptSpooler.stop();
+        orderCommitter.stop();
+        if (notificationOutbox != null) {
+            notificationOutbox.stop();
+        }
+        salesAggregator.stop();
+        barcodeImages.stop();
+        qrCodes.stop();
+        thumbnails.stop();
+        connectionPool.stop();
+    }
+
+    // Alongside a till the catalog loads in the background and the server does
+    // not hold the JVM open; headless, it loads first and keeps the JVM running.
+    public synchronized void startApi(int port, boolean headless) {
+        if (engine != null) {
+            return;
+        }
+        engine = new PosEngine(connectionPool, metrics, stockReservations, orderCommitter,
+            Long.getLong("api.cartTtlMs", 900_000), Long.getLong("catalog.sync.intervalMs", 30_000));
+        engine.start();
+        metrics.gauge("api.carts", engine::getCartCount);
+        PosEngine started = engine;
+        Runnable load = () -> {
+            try {
+                started.loadCatalog();
+            } catch (SQLException e) {
+                System.err.println("API catalog not loaded: " + e.getMessage());
+            }
+        };
+        if (headless) {
+            load.run();
+        } else {
+            Thread loader = new Thread(load, "api-catalog-load");
+            loader.setDaemon(true);
+            loader.start();
+        }
+
+        try {
+            apiServer = new PosApiServer(engine, salesAggregator, metrics, System.getProperty("api.bind", "127.0.0.1"),
+                port, Integer.getInteger("api.threads", 64), Long.getLong("api.checkoutWaitMs", 5_000));
+            apiServer.start(headless);
+        } catch (IOException e) {
+            System.err.println("POS API not started on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    // One watchdog per service set; a threshold of 0 turns it off
+    public synchronized void startEdtWatchdog() {
+        long thresholdMillis = Long.getLong("edt.stall.thresholdMs", 250);
+        if (edtWatchdog != null || thresholdMillis <= 0) {
+            return;
+        }
+        edtWatchdog = new EdtWatchdog(metrics, thresholdMillis, Long.getLong("edt.stall.sampleMs", 50),
+            posFile("edt.stall.log", "edt-stalls.log"));
+        edtWatchdog.start();
+    }
+}
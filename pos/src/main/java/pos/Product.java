@@ -0,0 +1,24 @@
+package pos;
+
+// Read-only view of one catalog row, tied to the snapshot it was taken from
+final class Product {
+    private final CatalogStore.Snapshot snapshot;
+    private final int row;
+
+    public Product(CatalogStore.Snapshot snapshot, int row) {
+        this.snapshot = snapshot;
+        this.row = row;
+    }
+
+    public int getProductId() { return snapshot.getProductId(row); }
+    public String getName() { return snapshot.getName(row); }
+    public long getPriceCents() { return snapshot.getPriceCents(row); }
+    public String getImagePath() { return snapshot.getImagePath(row); }
+    public int getStockQty() { return snapshot.getStockQty(row); }
+    public String getCategoryName() { return snapshot.getCategoryName(row); }
+
+    // Same row of the same snapshot, so every field is unchanged
+    public boolean isSameAs(Product other) {
+        return other != null && other.snapshot == snapshot && other.row == row;
+    }
+}
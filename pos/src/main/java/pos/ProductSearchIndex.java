@@ -0,0 +1,225 @@
+package pos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// Trigram postings over lower-cased product names plus one bitmap per category.
+// Slots are assigned in insertion order so results keep the catalog order.
+// Per slot only primitives are kept: the product id, a category id and the
+// name as UTF-8 in one shared byte pool, which is where matches are
+// confirmed. Ids and trigrams find their slot and postings through
+// LongIntMaps, so nothing is boxed.
+class ProductSearchIndex {
+    private int slots;
+    private int[] slotIds = new int[64];
+    private int[] slotCategories = new int[64];
+    private int[] nameStart = new int[64];
+    private int[] nameLength = new int[64];
+    private byte[] names = new byte[1024];
+    private int namesUsed;
+    private int namesLive;
+    private final LongIntMap slotsById = new LongIntMap(64);
+    private final LongIntMap trigramIds = new LongIntMap(256);
+    private BitSet[] postings = new BitSet[256];
+    private int trigramCount;
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private BitSet[] categoryBits = new BitSet[8];
+    private final BitSet live = new BitSet();
+    private int generation;
+
+    public synchronized void put(int productId, String name, String categoryName) {
+        String lowerName = name.toLowerCase();
+        int slot = slotsById.get(productId);
+        if (slot < 0) {
+            slot = slots++;
+            if (slot == slotIds.length) {
+                growSlots();
+            }
+            slotIds[slot] = productId;
+            slotsById.put(productId, slot);
+        } else {
+            unindex(slot);
+            namesLive -= nameLength[slot];
+            nameLength[slot] = 0;
+        }
+        storeName(slot, lowerName.getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i + 3 <= lowerName.length(); i++) {
+            postings(trigramKey(lowerName, i), true).set(slot);
+        }
+        int category = categoryId(categoryName);
+        slotCategories[slot] = category;
+        categoryBits[category].set(slot);
+        live.set(slot);
+        generation++;
+    }
+
+    // The slot stays reserved for the id in case the product comes back
+    public synchronized void remove(int productId) {
+        int slot = slotsById.get(productId);
+        if (slot >= 0 && live.get(slot)) {
+            unindex(slot);
+            live.clear(slot);
+            generation++;
+        }
+    }
+
+    private void unindex(int slot) {
+        String oldName = new String(names, nameStart[slot], nameLength[slot], StandardCharsets.UTF_8);
+        for (int i = 0; i + 3 <= oldName.length(); i++) {
+            BitSet bits = postings(trigramKey(oldName, i), false);
+            if (bits != null) {
+                bits.clear(slot);
+            }
+        }
+        categoryBits[slotCategories[slot]].clear(slot);
+    }
+
+    // searchText must already be lower-cased. When the previous result was
+    // computed against the same index for a shorter query contained in this
+    // one, only its matches are re-checked instead of the whole catalog.
+    public synchronized SearchResult search(String searchText, String categoryName, SearchResult previous) {
+        BitSet candidates;
+        if (previous != null && previous.generation == generation
+                && previous.categoryName.equals(categoryName)
+                && searchText.contains(previous.searchText)) {
+            candidates = (BitSet) previous.slots.clone();
+        } else if (categoryName.equals("All")) {
+            candidates = (BitSet) live.clone();
+        } else {
+            Integer category = categoryIds.get(categoryName);
+            candidates = category != null ? (BitSet) categoryBits[category].clone() : new BitSet();
+        }
+
+        for (int i = 0; i + 3 <= searchText.length() && !candidates.isEmpty(); i++) {
+            BitSet bits = postings(trigramKey(searchText, i), false);
+            if (bits == null) {
+                candidates.clear();
+            } else {
+                candidates.and(bits);
+            }
+        }
+
+        // Trigram hits are only candidates; confirm the substring match.
+        // A UTF-8 byte match is a match of whole characters.
+        if (!searchText.isEmpty()) {
+            byte[] query = searchText.getBytes(StandardCharsets.UTF_8);
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                if (!nameContains(slot, query)) {
+                    candidates.clear(slot);
+                }
+            }
+        }
+
+        int[] productIds = new int[candidates.cardinality()];
+        int n = 0;
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            productIds[n++] = slotIds[slot];
+        }
+        return new SearchResult(searchText, categoryName, candidates, productIds, generation);
+    }
+
+    private boolean nameContains(int slot, byte[] query) {
+        int start = nameStart[slot];
+        int last = start + nameLength[slot] - query.length;
+        for (int from = start; from <= last; from++) {
+            int i = 0;
+            while (i < query.length && names[from + i] == query[i]) {
+                i++;
+            }
+            if (i == query.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BitSet postings(long key, boolean create) {
+        int id = trigramIds.get(key);
+        if (id < 0) {
+            if (!create) {
+                return null;
+            }
+            id = trigramCount++;
+            if (id == postings.length) {
+                postings = Arrays.copyOf(postings, id * 2);
+            }
+            postings[id] = new BitSet();
+            trigramIds.put(key, id);
+        }
+        return postings[id];
+    }
+
+    private int categoryId(String categoryName) {
+        Integer id = categoryIds.get(categoryName);
+        if (id == null) {
+            id = categoryIds.size();
+            categoryIds.put(categoryName, id);
+            if (id == categoryBits.length) {
+                categoryBits = Arrays.copyOf(categoryBits, id * 2);
+            }
+            categoryBits[id] = new BitSet();
+        }
+        return id;
+    }
+
+    // Drops the growth headroom once a full load is in; the next put grows again
+    public synchronized void trimToSize() {
+        int capacity = Math.max(16, slots);
+        slotIds = Arrays.copyOf(slotIds, capacity);
+        slotCategories = Arrays.copyOf(slotCategories, capacity);
+        nameStart = Arrays.copyOf(nameStart, capacity);
+        nameLength = Arrays.copyOf(nameLength, capacity);
+        if (namesLive < namesUsed) {
+            compactNames(namesLive);
+        } else {
+            names = Arrays.copyOf(names, namesUsed);
+        }
+    }
+
+    // Renamed products leave their old bytes behind until half the pool is dead
+    private void storeName(int slot, byte[] name) {
+        if (namesUsed + name.length > names.length) {
+            if (namesLive < namesUsed / 2) {
+                compactNames(Math.max(1024, (namesLive + name.length) * 2));
+            } else {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, namesUsed + name.length));
+            }
+        }
+        System.arraycopy(name, 0, names, namesUsed, name.length);
+        nameStart[slot] = namesUsed;
+        nameLength[slot] = name.length;
+        namesUsed += name.length;
+        namesLive += name.length;
+    }
+
+    // A slot being renamed has length 0 by now, so its old bytes are dropped too
+    private void compactNames(int capacity) {
+        byte[] packed = new byte[capacity];
+        int used = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            System.arraycopy(names, nameStart[slot], packed, used, nameLength[slot]);
+            nameStart[slot] = used;
+            used += nameLength[slot];
+        }
+        names = packed;
+        namesUsed = used;
+    }
+
+    private void growSlots() {
+        int capacity = slotIds.length * 2;
+        slotIds = Arrays.copyOf(slotIds, capacity);
+        slotCategories = Arrays.copyOf(slotCategories, capacity);
+        nameStart = Arrays.copyOf(nameStart, capacity);
+        nameLength = Arrays.copyOf(nameLength, capacity);
+    }
+
+    private static long trigramKey(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+}
@@ -0,0 +1,110 @@
+package pos;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Encodes payment QR codes on a background thread. The module grid from
+// ZXing's Encoder is scaled straight into the bytes of a 1-bit image, with
+// the same quiet zone and padding QRCodeWriter uses, so no full-size
+// BitMatrix is built per code. Recent payloads are cached since cashiers
+// re-press the button. Every cached image has been handed to a caller that
+// may still show it, so an evicted image is left to the GC, never redrawn
+// for another code; at the till's size it is about 11 KB.
+class QrCodeService {
+    private static final int QUIET_ZONE = 4;
+
+    private final ExecutorService encoder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "qr-encoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final PosMetrics metrics;
+    private final Map<String, BufferedImage> recent;
+    private byte[] rowBuffer = new byte[0];
+
+    public QrCodeService(PosMetrics metrics, int maxEntries) {
+        this.metrics = metrics;
+        this.recent = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public CompletableFuture<BufferedImage> render(String payload, int size) {
+        String key = size + ":" + payload;
+        synchronized (recent) {
+            BufferedImage cached = recent.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        CompletableFuture<BufferedImage> result = new CompletableFuture<>();
+        encoder.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                BufferedImage image = encode(payload, size);
+                metrics.timer("qr.encode").recordSince(start);
+                synchronized (recent) {
+                    recent.put(key, image);
+                }
+                result.complete(image);
+            } catch (WriterException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    public void stop() {
+        encoder.shutdownNow();
+    }
+
+    // Only ever called on the encoder thread
+    private BufferedImage encode(String payload, int size) throws WriterException {
+        ByteMatrix modules = Encoder.encode(payload, ErrorCorrectionLevel.L).getMatrix();
+        int moduleCount = modules.getWidth();
+        int width = Math.max(size, moduleCount + QUIET_ZONE * 2);
+        int scale = width / (moduleCount + QUIET_ZONE * 2);
+        int padding = (width - moduleCount * scale) / 2;
+
+        BufferedImage image = new BufferedImage(width, width, BufferedImage.TYPE_BYTE_BINARY);
+        WritableRaster raster = image.getRaster();
+        byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int stride = ((MultiPixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        Arrays.fill(pixels, (byte) 0xFF); // palette index 1 is white
+        if (rowBuffer.length < stride) {
+            rowBuffer = new byte[stride];
+        }
+
+        // Build each module row once, then copy it into the scanlines it covers
+        for (int y = 0; y < moduleCount; y++) {
+            Arrays.fill(rowBuffer, 0, stride, (byte) 0xFF);
+            for (int x = 0; x < moduleCount; x++) {
+                if (modules.get(x, y) == 1) {
+                    for (int px = padding + x * scale, end = px + scale; px < end; px++) {
+                        rowBuffer[px >> 3] &= (byte) ~(0x80 >>> (px & 7));
+                    }
+                }
+            }
+            for (int line = padding + y * scale, end = line + scale; line < end; line++) {
+                System.arraycopy(rowBuffer, 0, pixels, line * stride, stride);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,14 @@
+package pos;
+
+import java.io.IOException;
+
+class RateLimitedException extends IOException {
+    private final long retryAfterSeconds;
+
+    public RateLimitedException(long retryAfterSeconds) {
+        super("Rate limited, retry after " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
@@ -0,0 +1,125 @@
+package pos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// Growable byte buffer reused across receipts
+final class ReceiptBuffer {
+    private static final byte[] ELLIPSIS = { '.', '.', '.' };
+
+    private byte[] bytes = new byte[4096];
+    private final byte[] digits = new byte[24];
+    private int size;
+
+    public void reset() {
+        size = 0;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    public void write(int b) {
+        ensure(1);
+        bytes[size++] = (byte) b;
+    }
+
+    public void write(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+    }
+
+    // Left-aligned and space-padded to width characters (0 for no padding)
+    public void writeText(String text, int width, boolean asciiOnly) {
+        writeChars(text, text.length(), width, asciiOnly);
+    }
+
+    // Exactly width characters; text that does not fit is cut and ends in "..."
+    public void writeColumn(String text, int width, boolean asciiOnly) {
+        if (text.length() <= width) {
+            writeChars(text, text.length(), width, asciiOnly);
+        } else {
+            writeChars(text, width - 3, 0, asciiOnly);
+            write(ELLIPSIS);
+        }
+    }
+
+    // The first length chars of text as UTF-8, or ASCII with '?' for the rest
+    private void writeChars(String text, int length, int width, boolean asciiOnly) {
+        ensure(length * 3 + width);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+            } else if (asciiOnly || Character.isSurrogate(c)) {
+                bytes[size++] = '?';
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | c >> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                bytes[size++] = (byte) (0xE0 | c >> 12);
+                bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        for (int i = length; i < width; i++) {
+            bytes[size++] = ' ';
+        }
+    }
+
+    // Right-aligned to width characters
+    public void writeNumber(long value, int width) {
+        writeDigits(value, 0, false, width);
+    }
+
+    // $12.34, right-aligned to width characters
+    public void writeMoney(long cents, int width) {
+        writeDigits(cents, 2, true, width);
+    }
+
+    // 1000 basis points -> 10%, 825 -> 8.25%
+    public void writePercent(int basisPoints) {
+        if (basisPoints % 100 == 0) {
+            writeDigits(basisPoints / 100, 0, false, 0);
+        } else {
+            writeDigits(basisPoints, 2, false, 0);
+        }
+        write('%');
+    }
+
+    // Digits are produced least significant first into a scratch array, then copied reversed
+    private void writeDigits(long value, int decimals, boolean dollar, int width) {
+        long magnitude = Math.abs(value);
+        int minimum = decimals > 0 ? decimals + 2 : 1;
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + magnitude % 10);
+            magnitude /= 10;
+            if (n == decimals) {
+                digits[n++] = '.';
+            }
+        } while (magnitude > 0 || n < minimum);
+        if (dollar) {
+            digits[n++] = '$';
+        }
+        if (value < 0) {
+            digits[n++] = '-';
+        }
+
+        ensure(Math.max(n, width));
+        for (int i = n; i < width; i++) {
+            bytes[size++] = ' ';
+        }
+        while (n > 0) {
+            bytes[size++] = digits[--n];
+        }
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+}
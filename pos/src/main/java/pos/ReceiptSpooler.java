@@ -0,0 +1,119 @@
+package pos;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prints receipts on its own thread so the till never waits for paper.
+// Whatever has queued up since the last write is rendered into one buffer
+// and written in a single open/write/close of the target, which may be a
+// printer device (e.g. /dev/usb/lp0 or a shared printer path) or a plain
+// file standing in for one. If the target is unavailable, the batch goes back
+// to the head of the queue and is retried, so receipts stay in order.
+class ReceiptSpooler {
+    private static final long RETRY_MILLIS = 2000;
+
+    private final ReceiptTemplate template;
+    private final File target;
+    private final int maxBatch;
+    private final LinkedBlockingDeque<PrintJob> queue = new LinkedBlockingDeque<>();
+    private final ReceiptBuffer buffer = new ReceiptBuffer();
+    private final PosMetrics metrics;
+    private final AtomicLong printed = new AtomicLong();
+    private Thread worker;
+
+    public ReceiptSpooler(PosMetrics metrics, ReceiptTemplate template, File target, int maxBatch) {
+        this.metrics = metrics;
+        this.template = template;
+        this.target = target;
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    public synchronized void start() {
+        if (worker == null) {
+            worker = new Thread(this::spoolLoop, "receipt-spooler");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    // Receipts still queued stay queued; a later start() prints them
+    public synchronized void stop() throws InterruptedException {
+        if (worker != null) {
+            worker.interrupt();
+            worker.join();
+            worker = null;
+        }
+    }
+
+    public void submit(String orderNumber, OrderSnapshot order) {
+        queue.addLast(new PrintJob(orderNumber, order));
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Receipts written to the target since this spooler was built
+    public long getPrintedCount() {
+        return printed.get();
+    }
+
+    private void spoolLoop() {
+        List<PrintJob> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                batch.add(queue.takeFirst());
+                queue.drainTo(batch, maxBatch - 1);
+
+                if (!print(batch)) {
+                    for (int i = batch.size() - 1; i >= 0; i--) {
+                        queue.addFirst(batch.get(i));
+                    }
+                    Thread.sleep(RETRY_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean print(List<PrintJob> batch) {
+        long start = System.nanoTime();
+        buffer.reset();
+        for (PrintJob job : batch) {
+            template.render(job.orderNumber, job.order, buffer);
+        }
+
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory()) {
+            dir.mkdirs();
+        }
+        try (OutputStream out = new FileOutputStream(target, true)) {
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            metrics.count("receipt.errors");
+            return false;
+        }
+        metrics.timer("receipt.print").recordSince(start);
+        metrics.count("receipt.printed", batch.size());
+        printed.addAndGet(batch.size());
+        return true;
+    }
+
+    private static final class PrintJob {
+        private final String orderNumber;
+        private final OrderSnapshot order;
+
+        public PrintJob(String orderNumber, OrderSnapshot order) {
+            this.orderNumber = orderNumber;
+            this.order = order;
+        }
+    }
+}
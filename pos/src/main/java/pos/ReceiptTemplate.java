@@ -0,0 +1,105 @@
+package pos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Receipt layout compiled once into literal byte runs and field slots, so
+// rendering an order is a straight copy into a reused buffer with no
+// String.format or intermediate strings. ESC/POS output wraps the text in
+// printer init and a feed-and-cut, and replaces non-ASCII with '?'.
+class ReceiptTemplate {
+    static final String DEFAULT_LAYOUT =
+        "=== ORDER RECEIPT ===\n" +
+        "Order #{order}\n\n" +
+        "Items:\n" +
+        "{items}\n" +
+        "Subtotal: {subtotal}\n" +
+        "Tax ({taxRate}): {tax}\n" +
+        "Total: {total}\n\n" +
+        "Payment Method: {payment}\n" +
+        "Thank you for your order!\n\n";
+    private static final String[] FIELDS = { "order", "items", "subtotal", "taxRate", "tax", "total", "payment" };
+    private static final int ORDER = 0, ITEMS = 1, SUBTOTAL = 2, TAX_RATE = 3, TAX = 4, TOTAL = 5, PAYMENT = 6;
+    private static final int NAME_WIDTH = 25;
+    private static final byte[] ESC_POS_INIT = { 0x1B, '@' };
+    private static final byte[] ESC_POS_FEED_AND_CUT = { 0x1B, 'd', 4, 0x1D, 'V', 1 };
+
+    // literals[i] is written before fields[i]; the last literal closes the receipt
+    private final byte[][] literals;
+    private final int[] fields;
+    private final boolean escPos;
+
+    private ReceiptTemplate(byte[][] literals, int[] fields, boolean escPos) {
+        this.literals = literals;
+        this.fields = fields;
+        this.escPos = escPos;
+    }
+
+    public static ReceiptTemplate compile(String layout, boolean escPos) {
+        List<byte[]> literals = new ArrayList<>();
+        List<Integer> fields = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = layout.indexOf('{', from)) >= 0) {
+            int close = layout.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed field at " + open + " in receipt layout");
+            }
+            int field = Arrays.asList(FIELDS).indexOf(layout.substring(open + 1, close));
+            if (field < 0) {
+                throw new IllegalArgumentException("Unknown receipt field " + layout.substring(open, close + 1));
+            }
+            literals.add(layout.substring(from, open).getBytes(StandardCharsets.UTF_8));
+            fields.add(field);
+            from = close + 1;
+        }
+        literals.add(layout.substring(from).getBytes(StandardCharsets.UTF_8));
+
+        int[] fieldArray = new int[fields.size()];
+        for (int i = 0; i < fieldArray.length; i++) {
+            fieldArray[i] = fields.get(i);
+        }
+        return new ReceiptTemplate(literals.toArray(new byte[0][]), fieldArray, escPos);
+    }
+
+    public void render(String orderNumber, OrderSnapshot order, ReceiptBuffer out) {
+        if (escPos) {
+            out.write(ESC_POS_INIT);
+        }
+        for (int i = 0; i < fields.length; i++) {
+            out.write(literals[i]);
+            switch (fields[i]) {
+                case ORDER: out.writeText(orderNumber, 0, escPos); break;
+                case ITEMS: writeItems(order, out); break;
+                case SUBTOTAL: out.writeMoney(order.getSubtotalCents(), 0); break;
+                case TAX_RATE: out.writePercent(order.getTaxRateBasisPoints()); break;
+                case TAX: out.writeMoney(order.getTaxCents(), 0); break;
+                case TOTAL: out.writeMoney(order.getTotalCents(), 0); break;
+                case PAYMENT: out.writeText(order.getPaymentMethod(), 0, escPos); break;
+            }
+        }
+        out.write(literals[fields.length]);
+        if (escPos) {
+            out.write(ESC_POS_FEED_AND_CUT);
+        }
+    }
+
+    // One "name qty x $price" line per item, as the old dialog laid them out.
+    // Indexed, since the unmodifiable list's iterator is the only allocation left
+    private void writeItems(OrderSnapshot order, ReceiptBuffer out) {
+        List<OrderItem> items = order.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            out.writeColumn(item.getName(), NAME_WIDTH, escPos);
+            out.write(' ');
+            out.writeNumber(item.getQuantity(), 2);
+            out.write(' ');
+            out.write('x');
+            out.write(' ');
+            out.writeMoney(item.getPriceCents(), 7);
+            out.write('\n');
+        }
+    }
+}
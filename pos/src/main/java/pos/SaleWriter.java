@@ -0,0 +1,211 @@
+package pos;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The SQL behind a committed sale: sale rows, their lines and the stock decrement.
+// Every call runs inside the caller's transaction.
+final class SaleWriter {
+    private SaleWriter() {
+    }
+
+    static String toPaymentColumn(String paymentMethod) throws SQLException {
+        switch(paymentMethod.toUpperCase()) {
+            case "CASH": return "CASH";
+            case "CARD":
+            case "CREDIT CARD":
+            case "DEBIT CARD": return "CARD";
+            case "QR":
+            case "QR CODE":
+            case "QRCODE": return "QRCODE";
+            default: throw new SQLException("Invalid payment method: " + paymentMethod);
+        }
+    }
+
+    // Ids per UPDATE or SELECT, keeping well under the server's placeholder limit
+    static final int ROWS_PER_STATEMENT = 500;
+
+    // Every statement text here is fixed or padded to one of these sizes, so a
+    // batch of any size reuses a handful of entries in the pool's 32-entry
+    // per-connection statement cache instead of pushing out one per size.
+    private static final int[] SIZE_BUCKETS = { 1, 8, 64, ROWS_PER_STATEMENT };
+    // Pads IN lists and CASE arms; no product has it, so row counts are unaffected
+    private static final int NO_PRODUCT = -1;
+
+    static int bucket(int rows) {
+        for (int size : SIZE_BUCKETS) {
+            if (rows <= size) {
+                return size;
+            }
+        }
+        throw new IllegalArgumentException(rows + " rows exceed " + ROWS_PER_STATEMENT);
+    }
+
+    // "(?, ?), (?, ?), ..." for a multi-row VALUES clause or an IN list
+    static String valuesClause(int rows, String row) {
+        StringBuilder sql = new StringBuilder(rows * (row.length() + 2));
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(row);
+        }
+        return sql.toString();
+    }
+
+    // Inserts go out as a JDBC batch of one single-row statement, so there is
+    // a single statement text whatever the batch size. With
+    // rewriteBatchedStatements (on in the default db.url) Connector/J sends the
+    // batch as multi-row INSERTs in one round trip. The driver reports a
+    // generated key per row; if it ever reports fewer, the batch fails and the
+    // committer retries the orders one at a time.
+    static int[] createOrderRecords(Connection con, List<OrderSnapshot> orders) throws SQLException {
+        int[] saleIds = new int[orders.size()];
+        String sql = "INSERT INTO sale (sale_date, payment_method, total_amount, staff_id) " +
+                     "VALUES (CURRENT_TIMESTAMP, ?, ?, ?)";
+
+        try (PreparedStatement stmt = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (OrderSnapshot order : orders) {
+                stmt.setString(1, toPaymentColumn(order.getPaymentMethod()));
+                stmt.setBigDecimal(2, BigDecimal.valueOf(order.getTotalCents(), 2));
+                stmt.setInt(3, order.getStaffId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                int i = 0;
+                while (rs.next() && i < saleIds.length) {
+                    saleIds[i++] = rs.getInt(1);
+                }
+                if (i != saleIds.length) {
+                    throw new SQLException("Failed to create order record");
+                }
+            }
+        }
+        return saleIds;
+    }
+
+    // Every line of every order in the batch, sent the same way as the sales
+    static void addOrderItems(Connection con, List<OrderSnapshot> orders, int[] saleIds) throws SQLException {
+        String sql = "INSERT INTO sale_details (qty, unit_price, pid, sale_id) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = con.prepareStatement(sql)) {
+            for (int i = 0; i < orders.size(); i++) {
+                for (OrderItem item : orders.get(i).getItems()) {
+                    stmt.setInt(1, item.getQuantity());
+                    stmt.setBigDecimal(2, BigDecimal.valueOf(item.getPriceCents(), 2));
+                    stmt.setInt(3, item.getProductId());
+                    stmt.setInt(4, saleIds[i]);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // One UPDATE per ROWS_PER_STATEMENT products in the batch:
+    //   stock_qty = stock_qty - CASE id WHEN ? THEN ? ... END WHERE id IN (...)
+    // With enforceStock the same CASE guards stock_qty, so a short product is
+    // simply not updated and the row count comes back low; every line that
+    // matched no row is then reported back as a conflict. Ids are sorted so
+    // terminals always lock product rows in the same order.
+    static void updateProductStocksInDB(Connection con, List<OrderSnapshot> orders, boolean enforceStock) throws SQLException {
+        Map<Integer, Integer> demand = new TreeMap<>();
+        Map<Integer, String> names = new HashMap<>();
+        for (OrderSnapshot order : orders) {
+            for (OrderItem item : order.getItems()) {
+                demand.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                names.put(item.getProductId(), item.getName());
+            }
+        }
+        if (demand.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(demand.entrySet());
+        int updated = 0;
+        for (int from = 0; from < entries.size(); from += ROWS_PER_STATEMENT) {
+            List<Map.Entry<Integer, Integer>> chunk = entries.subList(from, Math.min(entries.size(), from + ROWS_PER_STATEMENT));
+            int rows = bucket(chunk.size());
+            String caseClause = "CASE id" + " WHEN ? THEN ?".repeat(rows) + " END";
+            String sql = "UPDATE product SET stock_qty = stock_qty - " + caseClause
+                       + " WHERE id IN (" + valuesClause(rows, "?") + ")"
+                       + (enforceStock ? " AND stock_qty >= " + caseClause : "");
+
+            try (PreparedStatement stmt = con.prepareStatement(sql)) {
+                int p = bindDemand(stmt, 1, chunk, rows);
+                p = bindIds(stmt, p, chunk, rows);
+                if (enforceStock) {
+                    bindDemand(stmt, p, chunk, rows);
+                }
+                updated += stmt.executeUpdate();
+            }
+        }
+
+        if (enforceStock && updated < demand.size()) {
+            // Some rows were decremented and some not; undo them before reading true levels
+            con.rollback();
+            throw new StockConflictException(readConflicts(con, entries, names));
+        }
+    }
+
+    // WHEN id THEN quantity for each entry, then padding arms that match nothing
+    private static int bindDemand(PreparedStatement stmt, int p, List<Map.Entry<Integer, Integer>> chunk,
+                                  int rows) throws SQLException {
+        for (Map.Entry<Integer, Integer> entry : chunk) {
+            stmt.setInt(p++, entry.getKey());
+            stmt.setInt(p++, entry.getValue());
+        }
+        for (int i = chunk.size(); i < rows; i++) {
+            stmt.setInt(p++, NO_PRODUCT);
+            stmt.setInt(p++, 0);
+        }
+        return p;
+    }
+
+    private static int bindIds(PreparedStatement stmt, int p, List<Map.Entry<Integer, Integer>> chunk,
+                               int rows) throws SQLException {
+        for (Map.Entry<Integer, Integer> entry : chunk) {
+            stmt.setInt(p++, entry.getKey());
+        }
+        for (int i = chunk.size(); i < rows; i++) {
+            stmt.setInt(p++, NO_PRODUCT);
+        }
+        return p;
+    }
+
+    private static List<StockConflict> readConflicts(Connection con, List<Map.Entry<Integer, Integer>> demand,
+                                                     Map<Integer, String> names) throws SQLException {
+        Map<Integer, Integer> onHand = new HashMap<>();
+        for (int from = 0; from < demand.size(); from += ROWS_PER_STATEMENT) {
+            List<Map.Entry<Integer, Integer>> chunk = demand.subList(from, Math.min(demand.size(), from + ROWS_PER_STATEMENT));
+            int rows = bucket(chunk.size());
+            String sql = "SELECT id, stock_qty FROM product WHERE id IN (" + valuesClause(rows, "?") + ")";
+
+            try (PreparedStatement stmt = con.prepareStatement(sql)) {
+                bindIds(stmt, 1, chunk, rows);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        onHand.put(rs.getInt(1), Math.max(0, rs.getInt(2)));
+                    }
+                }
+            }
+        }
+
+        List<StockConflict> conflicts = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : demand) {
+            int available = onHand.getOrDefault(entry.getKey(), 0);
+            if (available < entry.getValue()) {
+                conflicts.add(new StockConflict(entry.getKey(), names.get(entry.getKey()), entry.getValue(), available));
+            }
+        }
+        return conflicts;
+    }
+}
@@ -0,0 +1,436 @@
+package pos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+// Rolling sales figures for the dashboard, kept in memory instead of
+// re-aggregating sale/sale_details on every request. Revenue and order counts
+// sit in a ring of hourly buckets covering the last week; per-product and
+// per-staff totals (and the top products by revenue) cover the current day
+// and restart at midnight.
+//
+// The figures come from the sale table, not from this terminal's own commits,
+// so every terminal's dashboard shows the whole store. A background thread
+// rebuilds the state once and then tails new sale ids; a local commit only
+// wakes it early. Sale ids are handed out when a transaction inserts, not when
+// it commits, so an id below the watermark can still appear later: such gaps
+// are looked for again until they are old enough to have been rolled back.
+class SalesAggregator {
+    private static final int HOURS = 7 * 24;
+    private static final int TOP_K = 10;
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private static final int FETCH_SIZE = 500;
+    // No sale transaction stays open this long
+    private static final long GAP_TIMEOUT_MILLIS = 60_000;
+    // Bounds the gaps tracked after a jump in ids (a rebuild, a large rollback)
+    private static final int MAX_GAP_SPAN = 1_000;
+
+    private static final String NEW_SALES_SQL =
+        "SELECT s.id, s.sale_date, s.total_amount, s.staff_id, d.pid, d.qty, d.unit_price " +
+        "FROM sale s LEFT JOIN sale_details d ON d.sale_id = s.id WHERE s.id > ? ORDER BY s.id";
+
+    private final ConnectionPool connectionPool;
+    private final long pollMillis;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private State state = new State();
+    private boolean rebuilding = true;
+    private boolean wakeRequested;
+    private Thread worker;
+
+    // Only touched by the worker thread
+    private long watermark;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>(); // sale id -> when it was first missed
+
+    public SalesAggregator(ConnectionPool connectionPool, long pollMillis) {
+        this.connectionPool = connectionPool;
+        this.pollMillis = pollMillis;
+    }
+
+    public synchronized void start() {
+        if (worker == null) {
+            worker = new Thread(this::pollLoop, "sales-aggregator");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        Thread stopping;
+        synchronized (this) {
+            stopping = worker;
+            worker = null;
+        }
+        if (stopping != null) {
+            stopping.interrupt();
+            stopping.join();
+        }
+    }
+
+    // Called after a local sale commits so the dashboard does not wait for the next poll
+    public void wake() {
+        synchronized (this) {
+            wakeRequested = true;
+            notifyAll();
+        }
+    }
+
+    // Until the first rebuild succeeds it is retried on every poll
+    private void pollLoop() {
+        boolean built = false;
+        while (true) {
+            try {
+                if (built) {
+                    catchUp();
+                } else {
+                    rebuild();
+                    built = true;
+                }
+            } catch (SQLException e) {
+                System.err.println("Sales aggregates not updated: " + e.getMessage());
+            }
+            try {
+                synchronized (this) {
+                    if (!wakeRequested) {
+                        wait(pollMillis);
+                    }
+                    wakeRequested = false;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void rebuild() throws SQLException {
+        State built = new State();
+        long now = System.currentTimeMillis();
+        Timestamp weekStart = new Timestamp(weekStartMillis(now));
+        Timestamp dayStart = Timestamp.valueOf(LocalDate.now(zone).atStartOfDay());
+        long maxId;
+        List<Long> recentIds = new ArrayList<>();
+
+        try (Connection con = connectionPool.getConnection()) {
+            // MAX(id) and the rows it bounds must come from one snapshot. With
+            // autocommit each statement sees whatever has committed by then, so a
+            // sale committing in between would be counted here and again by catchUp.
+            int isolation = con.getTransactionIsolation();
+            con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            con.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = con.prepareStatement("SELECT MAX(id) FROM sale");
+                     ResultSet rs = stmt.executeQuery()) {
+                    maxId = rs.next() ? rs.getLong(1) : 0;
+                }
+
+                String sales = "SELECT sale_date, total_amount, staff_id FROM sale WHERE id <= ? AND sale_date >= ?";
+                try (PreparedStatement stmt = con.prepareStatement(sales)) {
+                    stmt.setLong(1, maxId);
+                    stmt.setTimestamp(2, weekStart);
+                    stmt.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            long at = rs.getTimestamp(1).getTime();
+                            built.addSale(at, epochDay(at), Money.toCents(rs.getBigDecimal(2)), rs.getInt(3));
+                        }
+                    }
+                }
+
+                String items = "SELECT d.pid, d.qty, d.unit_price FROM sale_details d JOIN sale s ON d.sale_id = s.id " +
+                               "WHERE s.id <= ? AND s.sale_date >= ?";
+                try (PreparedStatement stmt = con.prepareStatement(items)) {
+                    stmt.setLong(1, maxId);
+                    stmt.setTimestamp(2, dayStart);
+                    stmt.setFetchSize(FETCH_SIZE);
+                    long today = epochDay(now);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            int qty = rs.getInt(2);
+                            built.addItem(today, rs.getInt(1), qty, Money.toCents(rs.getBigDecimal(3)) * qty);
+                        }
+                    }
+                }
+
+                // Ids just below the watermark that are not visible yet may still commit
+                try (PreparedStatement stmt = con.prepareStatement("SELECT id FROM sale WHERE id > ? AND id <= ? ORDER BY id")) {
+                    stmt.setLong(1, maxId - MAX_GAP_SPAN);
+                    stmt.setLong(2, maxId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            recentIds.add(rs.getLong(1));
+                        }
+                    }
+                }
+                con.commit();
+            } finally {
+                con.setAutoCommit(true);
+                con.setTransactionIsolation(isolation);
+            }
+        }
+
+        // MAX(id) came from the same snapshot, so the last recent id is the watermark
+        watermark = Math.max(0, maxId - MAX_GAP_SPAN);
+        gaps.clear();
+        for (long id : recentIds) {
+            advanceTo(id, now);
+        }
+
+        synchronized (this) {
+            state = built;
+            rebuilding = false;
+        }
+    }
+
+    // Applies sales above the watermark and any gap that has since committed
+    private void catchUp() throws SQLException {
+        long now = System.currentTimeMillis();
+        long floor = gaps.isEmpty() ? watermark : Math.min(watermark, gaps.firstKey() - 1);
+        List<FetchedSale> fetched = new ArrayList<>();
+        try (Connection con = connectionPool.getConnection();
+             PreparedStatement stmt = con.prepareStatement(NEW_SALES_SQL)) {
+            stmt.setLong(1, floor);
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                FetchedSale sale = null;
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (sale == null || sale.id != id) {
+                        sale = new FetchedSale(id, rs.getTimestamp(2).getTime(),
+                            Money.toCents(rs.getBigDecimal(3)), rs.getInt(4));
+                        fetched.add(sale);
+                    }
+                    int productId = rs.getInt(5);
+                    if (!rs.wasNull()) {
+                        int qty = rs.getInt(6);
+                        sale.items.add(new OrderItem(productId, null, Money.toCents(rs.getBigDecimal(7)), qty));
+                    }
+                }
+            }
+        }
+
+        List<FetchedSale> fresh = new ArrayList<>(fetched.size());
+        for (FetchedSale sale : fetched) {
+            if (sale.id > watermark) {
+                advanceTo(sale.id, now);
+                fresh.add(sale);
+            } else if (gaps.remove(sale.id) != null) {
+                fresh.add(sale);
+            }
+        }
+        for (Iterator<Long> it = gaps.values().iterator(); it.hasNext(); ) {
+            if (now - it.next() > GAP_TIMEOUT_MILLIS) {
+                it.remove(); // rolled back, or committed long ago without us seeing it
+            }
+        }
+
+        if (!fresh.isEmpty()) {
+            long weekStart = weekStartMillis(now);
+            synchronized (this) {
+                for (FetchedSale sale : fresh) {
+                    if (sale.epochMillis >= weekStart) {
+                        apply(state, sale);
+                    }
+                }
+            }
+        }
+    }
+
+    // Ids skipped on the way up to a newly seen one become gaps
+    private void advanceTo(long id, long now) {
+        for (long missing = Math.max(watermark + 1, id - MAX_GAP_SPAN); missing < id; missing++) {
+            gaps.put(missing, now);
+        }
+        watermark = id;
+    }
+
+    private void apply(State target, FetchedSale sale) {
+        long day = epochDay(sale.epochMillis);
+        target.addSale(sale.epochMillis, day, sale.totalCents, sale.staffId);
+        for (OrderItem item : sale.items) {
+            target.addItem(day, item.getProductId(), item.getQuantity(), item.getLineCents());
+        }
+    }
+
+    private static long weekStartMillis(long nowMillis) {
+        return (nowMillis / HOUR_MILLIS - HOURS + 1) * HOUR_MILLIS;
+    }
+
+    private long epochDay(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    public synchronized boolean isReady() {
+        return !rebuilding;
+    }
+
+    // Day totals read as empty once midnight has passed without a sale
+    private State current() {
+        state.rollTo(epochDay(System.currentTimeMillis()));
+        return state;
+    }
+
+    // Revenue per hour for the last n hours, oldest first; the last entry is the current hour
+    public synchronized long[] getHourlyRevenueCents(int hours) {
+        return state.hourly(state.hourRevenueCents, Math.min(hours, HOURS), System.currentTimeMillis());
+    }
+
+    public synchronized long[] getHourlyOrderCounts(int hours) {
+        return state.hourly(state.hourOrders, Math.min(hours, HOURS), System.currentTimeMillis());
+    }
+
+    public synchronized long getTodayRevenueCents() {
+        return current().dayRevenueCents;
+    }
+
+    public synchronized long getTodayOrderCount() {
+        return current().dayOrders;
+    }
+
+    // Product ids by today's revenue, highest first
+    public synchronized int[] getTopProducts() {
+        State today = current();
+        return Arrays.copyOf(today.topProducts, today.topCount);
+    }
+
+    public synchronized long getProductRevenueCents(int productId) {
+        return current().productRevenueCents.get(productId);
+    }
+
+    public synchronized long getProductUnits(int productId) {
+        return current().productUnits.get(productId);
+    }
+
+    public synchronized int[] getStaffIds() {
+        return current().staffRevenueCents.keys();
+    }
+
+    public synchronized long getStaffRevenueCents(int staffId) {
+        return current().staffRevenueCents.get(staffId);
+    }
+
+    public synchronized long getStaffOrderCount(int staffId) {
+        return current().staffOrders.get(staffId);
+    }
+
+    private static final class FetchedSale {
+        private final long id;
+        private final long epochMillis;
+        private final long totalCents;
+        private final int staffId;
+        private final List<OrderItem> items = new ArrayList<>(4);
+
+        FetchedSale(long id, long epochMillis, long totalCents, int staffId) {
+            this.id = id;
+            this.epochMillis = epochMillis;
+            this.totalCents = totalCents;
+            this.staffId = staffId;
+        }
+    }
+
+    private static final class State {
+        private final long[] hourRevenueCents = new long[HOURS];
+        private final long[] hourOrders = new long[HOURS];
+        private final long[] hourOfSlot = new long[HOURS];
+        private long day = Long.MIN_VALUE;
+        private long dayRevenueCents;
+        private long dayOrders;
+        private IntLongMap productRevenueCents = new IntLongMap(256);
+        private IntLongMap productUnits = new IntLongMap(256);
+        private IntLongMap staffRevenueCents = new IntLongMap(16);
+        private IntLongMap staffOrders = new IntLongMap(16);
+        private final int[] topProducts = new int[TOP_K];
+        private int topCount;
+
+        private void addSale(long epochMillis, long day, long totalCents, int staffId) {
+            long hour = epochMillis / HOUR_MILLIS;
+            int slot = (int) (hour % HOURS);
+            if (hourOfSlot[slot] != hour) {
+                // Slot last held a week-old hour; reuse it
+                hourOfSlot[slot] = hour;
+                hourRevenueCents[slot] = 0;
+                hourOrders[slot] = 0;
+            }
+            hourRevenueCents[slot] += totalCents;
+            hourOrders[slot]++;
+
+            if (rollTo(day)) {
+                dayRevenueCents += totalCents;
+                dayOrders++;
+                staffRevenueCents.add(staffId, totalCents);
+                staffOrders.add(staffId, 1);
+            }
+        }
+
+        private void addItem(long day, int productId, int quantity, long lineCents) {
+            if (rollTo(day)) {
+                productUnits.add(productId, quantity);
+                updateTop(productId, productRevenueCents.add(productId, lineCents));
+            }
+        }
+
+        // Starts a new day when needed; false for a sale from an earlier day
+        private boolean rollTo(long saleDay) {
+            if (saleDay < day) {
+                return false;
+            }
+            if (saleDay > day) {
+                day = saleDay;
+                dayRevenueCents = 0;
+                dayOrders = 0;
+                productRevenueCents = new IntLongMap(256);
+                productUnits = new IntLongMap(256);
+                staffRevenueCents = new IntLongMap(16);
+                staffOrders = new IntLongMap(16);
+                topCount = 0;
+            }
+            return true;
+        }
+
+        // Revenue only grows within a day, so a product can only move up the list
+        private void updateTop(int productId, long revenueCents) {
+            int pos = -1;
+            for (int i = 0; i < topCount; i++) {
+                if (topProducts[i] == productId) {
+                    pos = i;
+                    break;
+                }
+            }
+            if (pos < 0) {
+                if (topCount < TOP_K) {
+                    pos = topCount++;
+                } else if (revenueCents > productRevenueCents.get(topProducts[TOP_K - 1])) {
+                    pos = TOP_K - 1;
+                } else {
+                    return;
+                }
+                topProducts[pos] = productId;
+            }
+            while (pos > 0 && productRevenueCents.get(topProducts[pos - 1]) < revenueCents) {
+                topProducts[pos] = topProducts[pos - 1];
+                topProducts[--pos] = productId;
+            }
+        }
+
+        private long[] hourly(long[] values, int hours, long nowMillis) {
+            long[] out = new long[hours];
+            long currentHour = nowMillis / HOUR_MILLIS;
+            for (int i = 0; i < hours; i++) {
+                long hour = currentHour - (hours - 1 - i);
+                int slot = (int) (hour % HOURS);
+                out[i] = hourOfSlot[slot] == hour ? values[slot] : 0;
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package pos;
+
+import java.util.BitSet;
+
+final class SearchResult {
+    final String searchText;
+    final String categoryName;
+    final BitSet slots;
+    final int[] productIds;
+    final int generation;
+
+    public SearchResult(String searchText, String categoryName, BitSet slots, int[] productIds, int generation) {
+        this.searchText = searchText;
+        this.categoryName = categoryName;
+        this.slots = slots;
+        this.productIds = productIds;
+        this.generation = generation;
+    }
+}
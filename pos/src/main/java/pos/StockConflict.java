@@ -0,0 +1,20 @@
+package pos;
+
+final class StockConflict {
+    private final int productId;
+    private final String name;
+    private final int requested;
+    private final int available;
+
+    public StockConflict(int productId, String name, int requested, int available) {
+        this.productId = productId;
+        this.name = name;
+        this.requested = requested;
+        this.available = available;
+    }
+
+    public int getProductId() { return productId; }
+    public String getName() { return name; }
+    public int getRequested() { return requested; }
+    public int getAvailable() { return available; }
+}
@@ -0,0 +1,15 @@
+package pos;
+
+import java.sql.SQLException;
+import java.util.List;
+
+class StockConflictException extends SQLException {
+    private final List<StockConflict> conflicts;
+
+    public StockConflictException(List<StockConflict> conflicts) {
+        super("Insufficient stock for " + conflicts.size() + " line(s)");
+        this.conflicts = conflicts;
+    }
+
+    public List<StockConflict> getConflicts() { return conflicts; }
+}
@@ -0,0 +1,139 @@
+package pos;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-product on-hand and held counts shared by every cart in this JVM.
+// A hold only succeeds while on-hand minus held stays non-negative, so two
+// carts can never both take the last unit. Locks are striped by product id
+// so clicks on different products do not contend; each stripe keeps its own
+// primitive id -> level table, so a hold on a known product allocates nothing.
+//
+// Counts read from the database race with this terminal's own sales: an
+// order can commit after the read but settle here before the count is
+// applied, and adopting the count would hand those units out again. So a
+// read takes a ticket from beginRefresh() first, and refresh() takes off
+// whatever was sold here since that ticket. A sale the read already saw is
+// then taken off twice; the count runs low until the next change to that
+// product, which never oversells.
+class StockReservations {
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public StockReservations() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripeFor(int productId) {
+        return stripes[(productId & 0x7fffffff) % STRIPES];
+    }
+
+    // For counts that already account for this terminal's sales, e.g. zero
+    // for a deleted product or the count a failed commit just read
+    public void setOnHand(int productId, int onHand) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            stripe.levelFor(productId).onHand = onHand;
+        }
+    }
+
+    // Take before reading counts from the database, and pass to refresh()
+    public long beginRefresh() {
+        return refreshes.incrementAndGet();
+    }
+
+    public void refresh(int productId, int onHand, long ticket) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            Level level = stripe.levelFor(productId);
+            if (level.soldSinceRefresh > ticket) {
+                // A later read began before a sale here and will bring a newer count
+                return;
+            }
+            level.onHand = level.soldSinceRefresh == ticket ? onHand - level.soldSince : onHand;
+        }
+    }
+
+    public boolean hold(int productId, int quantity) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            Level level = stripe.get(productId);
+            if (level == null || level.onHand - level.held < quantity) {
+                return false;
+            }
+            level.held += quantity;
+            return true;
+        }
+    }
+
+    public void release(int productId, int quantity) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            Level level = stripe.get(productId);
+            if (level != null) {
+                level.held = Math.max(0, level.held - quantity);
+            }
+        }
+    }
+
+    // The held units were sold
+    public void commit(int productId, int quantity) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            Level level = stripe.get(productId);
+            if (level != null) {
+                level.onHand -= quantity;
+                level.held = Math.max(0, level.held - quantity);
+                long ticket = refreshes.get();
+                if (level.soldSinceRefresh != ticket) {
+                    level.soldSinceRefresh = ticket;
+                    level.soldSince = 0;
+                }
+                level.soldSince += quantity;
+            }
+        }
+    }
+
+    public int available(int productId) {
+        Stripe stripe = stripeFor(productId);
+        synchronized (stripe) {
+            Level level = stripe.get(productId);
+            return level == null ? 0 : Math.max(0, level.onHand - level.held);
+        }
+    }
+
+    // Guarded by its own monitor
+    private static final class Stripe {
+        private final LongIntMap slots = new LongIntMap(16);
+        private Level[] levels = new Level[16];
+
+        Level get(int productId) {
+            int slot = slots.get(productId);
+            return slot < 0 ? null : levels[slot];
+        }
+
+        Level levelFor(int productId) {
+            Level level = get(productId);
+            if (level == null) {
+                int slot = slots.size();
+                if (slot == levels.length) {
+                    levels = Arrays.copyOf(levels, slot * 2);
+                }
+                level = levels[slot] = new Level();
+                slots.put(productId, slot);
+            }
+            return level;
+        }
+    }
+
+    private static final class Level {
+        int onHand;
+        int held;
+        long soldSinceRefresh; // the newest ticket when soldSince started counting
+        int soldSince;
+    }
+}
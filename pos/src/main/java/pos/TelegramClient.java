@@ -0,0 +1,55 @@
+package pos;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Bot API sendMessage. The base URL is a parameter so a local stub server
+// can stand in for api.telegram.org; errors never include the URL, which
+// carries the token.
+class TelegramClient implements NotificationClient {
+    private static final Pattern RETRY_AFTER = Pattern.compile("\"retry_after\"\\s*:\\s*(\\d+)");
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final URI endpoint;
+    private final String chatId;
+
+    public TelegramClient(String baseUrl, String token, String chatId) {
+        this.endpoint = URI.create(baseUrl + "/bot" + token + "/sendMessage");
+        this.chatId = chatId;
+    }
+
+    @Override
+    public void send(String text) throws IOException {
+        String form = "chat_id=" + URLEncoder.encode(chatId, StandardCharsets.UTF_8)
+            + "&text=" + URLEncoder.encode(text, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+            .timeout(Duration.ofSeconds(15))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form))
+            .build();
+
+        HttpResponse<String> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending notification");
+        }
+
+        if (response.statusCode() == 429) {
+            Matcher retry = RETRY_AFTER.matcher(response.body());
+            throw new RateLimitedException(retry.find() ? Long.parseLong(retry.group(1)) : 30);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Telegram sendMessage returned HTTP " + response.statusCode());
+        }
+    }
+}
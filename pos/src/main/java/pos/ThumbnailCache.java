@@ -0,0 +1,222 @@
+package pos;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+// Scales product images on background threads. Thumbnails are kept in a bounded
+// in-memory LRU and written to disk keyed by source path and mtime, so later
+// starts read the pre-scaled PNG instead of decoding the original again.
+// A missing or undecodable image caches the "No Image" placeholder; a read
+// that fails with an IOException (a share that dropped, a file still being
+// copied) only shows it, and the image is tried again after retryAfter.
+class ThumbnailCache {
+    static final int THUMBNAIL_WIDTH = 150;
+    static final int THUMBNAIL_HEIGHT = 120;
+    public static final ImageIcon LOADING_ICON = createPlaceholder("Loading...");
+    public static final ImageIcon NO_IMAGE_ICON = createPlaceholder("No Image");
+
+    private final PosMetrics metrics;
+    private final File diskDir;
+    private final int threads;
+    private final long retryAfterMillis;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Map<String, ImageIcon> memory;
+    private final Map<String, List<Consumer<ImageIcon>>> pending = new HashMap<>();
+    private final Map<String, Long> failedUntil = new HashMap<>(); // transient failures, not retried before then
+    private final LinkedBlockingDeque<String> queue = new LinkedBlockingDeque<>();
+
+    public ThumbnailCache(PosMetrics metrics, File diskDir, int maxEntries, int threads, long retryAfterMillis) {
+        this.metrics = metrics;
+        this.diskDir = diskDir;
+        this.threads = threads;
+        this.retryAfterMillis = retryAfterMillis;
+        this.memory = new LinkedHashMap<String, ImageIcon>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized void start() {
+        if (!workers.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::decodeLoop, "thumbnail-decoder-" + i);
+            worker.setDaemon(true);
+            worker.setPriority(Thread.NORM_PRIORITY - 1);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    public synchronized void stop() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        workers.clear();
+    }
+
+    public synchronized ImageIcon getIfCached(String imgPath) {
+        return memory.get(imgPath);
+    }
+
+    // onReady runs on the EDT
+    public synchronized void load(String imgPath, Consumer<ImageIcon> onReady) {
+        ImageIcon cached = memory.get(imgPath);
+        if (cached != null) {
+            SwingUtilities.invokeLater(() -> onReady.accept(cached));
+            return;
+        }
+        if (recentlyFailed(imgPath)) {
+            SwingUtilities.invokeLater(() -> onReady.accept(NO_IMAGE_ICON));
+            return;
+        }
+
+        List<Consumer<ImageIcon>> waiting = pending.get(imgPath);
+        if (waiting == null) {
+            waiting = new ArrayList<>();
+            pending.put(imgPath, waiting);
+            queue.offerFirst(imgPath);
+        } else if (queue.remove(imgPath)) {
+            // Queued by a prefetch; a visible card now needs it first
+            queue.offerFirst(imgPath);
+        }
+        waiting.add(onReady);
+    }
+
+    public synchronized void prefetch(String imgPath) {
+        if (!memory.containsKey(imgPath) && !pending.containsKey(imgPath) && !recentlyFailed(imgPath)) {
+            pending.put(imgPath, new ArrayList<>());
+            queue.offerLast(imgPath);
+        }
+    }
+
+    private boolean recentlyFailed(String imgPath) {
+        Long until = failedUntil.get(imgPath);
+        if (until == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() < until) {
+            return true;
+        }
+        failedUntil.remove(imgPath);
+        return false;
+    }
+
+    private void decodeLoop() {
+        while (true) {
+            String imgPath;
+            try {
+                imgPath = queue.takeFirst();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            ImageIcon icon;
+            boolean retry = false;
+            long start = System.nanoTime();
+            try {
+                icon = decode(imgPath);
+                metrics.timer("image.decode").recordSince(start);
+            } catch (IOException e) {
+                metrics.count("image.errors");
+                icon = NO_IMAGE_ICON;
+                retry = true;
+            } catch (RuntimeException e) {
+                // A decoder choking on the file's contents; reading it again will not help
+                metrics.count("image.errors");
+                icon = NO_IMAGE_ICON;
+            }
+
+            List<Consumer<ImageIcon>> waiting;
+            synchronized (this) {
+                if (retry) {
+                    failedUntil.put(imgPath, System.currentTimeMillis() + retryAfterMillis);
+                } else {
+                    memory.put(imgPath, icon);
+                }
+                waiting = pending.remove(imgPath);
+            }
+            if (waiting != null && !waiting.isEmpty()) {
+                ImageIcon ready = icon;
+                SwingUtilities.invokeLater(() -> waiting.forEach(callback -> callback.accept(ready)));
+            }
+        }
+    }
+
+    // IOException means the read failed and may work later; a missing file or
+    // one no ImageIO reader understands returns the placeholder
+    ImageIcon decode(String imgPath) throws IOException {
+        File source = new File(imgPath);
+        if (!source.isFile()) {
+            return NO_IMAGE_ICON;
+        }
+
+        File cachedFile = new File(diskDir, UUID.nameUUIDFromBytes(imgPath.getBytes(StandardCharsets.UTF_8))
+                + "-" + source.lastModified() + ".png");
+        if (cachedFile.isFile()) {
+            try {
+                BufferedImage cached = ImageIO.read(cachedFile);
+                if (cached != null) {
+                    return new ImageIcon(cached);
+                }
+            } catch (IOException e) {
+                // fall back to the original, which rewrites the thumbnail
+            }
+        }
+
+        BufferedImage original = ImageIO.read(source);
+        if (original == null) {
+            return NO_IMAGE_ICON;
+        }
+
+        BufferedImage scaled = new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = scaled.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(original, 0, 0, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, null);
+        g2.dispose();
+
+        // Write to a temp file first so a crash never leaves a truncated thumbnail behind
+        if (diskDir.isDirectory() || diskDir.mkdirs()) {
+            File temp = new File(diskDir, cachedFile.getName() + ".tmp");
+            try {
+                if (ImageIO.write(scaled, "png", temp) && !temp.renameTo(cachedFile)) {
+                    temp.delete();
+                }
+            } catch (IOException e) {
+                temp.delete(); // the thumbnail is still good, it is only scaled again next start
+            }
+        }
+        return new ImageIcon(scaled);
+    }
+
+    private static ImageIcon createPlaceholder(String text) {
+        BufferedImage placeholder = new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = placeholder.createGraphics();
+        g2.setPaint(Color.LIGHT_GRAY);
+        g2.fillRect(0, 0, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        g2.setPaint(Color.BLACK);
+        g2.drawString(text, 50, 60);
+        g2.dispose();
+        return new ImageIcon(placeholder);
+    }
+}
@@ -0,0 +1,36 @@
+package pos;
+
+import java.util.concurrent.TimeUnit;
+
+// Allows ratePerMinute sends on average with bursts of up to capacity
+final class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    public TokenBucket(int ratePerMinute, int capacity) {
+        this.tokensPerNano = Math.max(1, ratePerMinute) / 60e9;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryTake()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    // 0 when a token was taken, otherwise how long until one is due
+    private synchronized long tryTake() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
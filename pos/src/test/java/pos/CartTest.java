@@ -0,0 +1,78 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class CartTest {
+    // The price changed between two scans of the same product
+    @Test
+    void subtotalMatchesLinesAfterPriceChange() {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        cart.add(1, "Apple", 100, 2);
+        cart.add(1, "Apple", 150, 1);
+
+        OrderItem line = cart.getLine(0);
+        assertEquals(3, line.getQuantity());
+        assertEquals(300, line.getLineCents());
+        assertEquals(line.getLineCents(), cart.getSubtotalCents());
+
+        cart.remove(1);
+        assertEquals(0, cart.getSubtotalCents());
+    }
+
+    @Test
+    void totalsAreKeptInCents() {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        cart.add(1, "Apple", 199, 3);
+        cart.add(2, "Pear", 250, 1);
+
+        assertEquals(847, cart.getSubtotalCents());
+        assertEquals(85, cart.getTaxCents());
+        assertEquals(932, cart.getTotalCents());
+    }
+
+    // The order table and the receipt show lines as they were rung up
+    @Test
+    void removeKeepsTheOrderOfTheOtherLines() {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        cart.add(1, "Apple", 100, 1);
+        cart.add(2, "Pear", 100, 1);
+        cart.add(3, "Plum", 100, 1);
+        cart.add(4, "Fig", 100, 1);
+
+        cart.remove(2);
+        assertEquals(1, cart.getLine(0).getProductId());
+        assertEquals(3, cart.getLine(1).getProductId());
+        assertEquals(4, cart.getLine(2).getProductId());
+        assertEquals(2, cart.indexOf(4));
+    }
+
+    // Enough lines that the row table grows and removals shift probe runs
+    @Test
+    void rowsStayFindableAfterRemovals() {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        for (int productId = 1; productId <= 200; productId++) {
+            cart.add(productId * 1_000, "Item " + productId, 100, 1);
+        }
+        for (int productId = 1; productId <= 200; productId += 3) {
+            cart.remove(productId * 1_000);
+        }
+
+        assertEquals(133, cart.size());
+        for (int productId = 1; productId <= 200; productId++) {
+            int row = cart.indexOf(productId * 1_000);
+            if (productId % 3 == 1) {
+                assertEquals(-1, row);
+            } else {
+                assertEquals(productId * 1_000, cart.getLine(row).getProductId());
+            }
+        }
+        assertEquals(13_300, cart.getSubtotalCents());
+
+        cart.clear();
+        assertEquals(-1, cart.indexOf(2_000));
+        cart.add(2_000, "Item 2", 100, 1);
+        assertEquals(0, cart.indexOf(2_000));
+    }
+}
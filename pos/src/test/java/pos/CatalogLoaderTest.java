@@ -0,0 +1,62 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import org.junit.jupiter.api.Test;
+
+class CatalogLoaderTest {
+    @Test
+    void barcodesAreKeyedByNumericValue() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int apple = db.addProduct("Apple", 100, 10, db.addCategory("Food"));
+            db.execute("UPDATE product SET barcode = ' 036000291452 ' WHERE id = " + apple);
+            try (Connection con = db.open()) {
+                LongIntMap barcodes = CatalogLoader.readBarcodes(con);
+                assertEquals(1, barcodes.size());
+                assertEquals(apple, barcodes.get(LongIntMap.parse("0036000291452")));
+            }
+        }
+    }
+
+    // Only a schema without the column means "no barcodes"; other errors are retried
+    @Test
+    void onlyAMissingBarcodeColumnReadsAsNone() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            db.execute("ALTER TABLE product DROP COLUMN barcode");
+            try (Connection con = db.open()) {
+                assertNull(CatalogLoader.readBarcodes(con));
+            }
+
+            db.execute("DROP TABLE product");
+            try (Connection con = db.open()) {
+                assertThrows(SQLException.class, () -> CatalogLoader.readBarcodes(con));
+            }
+        }
+    }
+
+    @Test
+    void watermarkIsMissingOnlyWithoutTheColumn() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            try (Connection con = db.open()) {
+                assertEquals(new Timestamp(0), CatalogLoader.readCatalogWatermark(con)); // empty catalog
+                db.addProduct("Apple", 100, 10, db.addCategory("Food"));
+                assertNotNull(CatalogLoader.readCatalogWatermark(con));
+            }
+
+            Connection closed = db.open();
+            closed.close();
+            assertThrows(SQLException.class, () -> CatalogLoader.readCatalogWatermark(closed));
+
+            db.execute("ALTER TABLE product DROP COLUMN updated_at");
+            try (Connection con = db.open()) {
+                assertNull(CatalogLoader.readCatalogWatermark(con));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CatalogSnapshotFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresWhatWasWritten() {
+        File file = dir.resolve("catalog.snap").toFile();
+        CatalogStore source = new CatalogStore();
+        CatalogStore.Snapshot written = source.putAll(batch(1, 3, "Apple"));
+        Timestamp watermark = Timestamp.valueOf("2026-01-02 03:04:05.678");
+        new CatalogSnapshotFile(new PosMetrics(), file).write(written, watermark);
+
+        CatalogStore restoredStore = new CatalogStore();
+        CatalogSnapshotFile.Restored restored = new CatalogSnapshotFile(new PosMetrics(), file).read(restoredStore);
+
+        assertNotNull(restored);
+        assertEquals(watermark, restored.watermark);
+        assertEquals(3, restored.snapshot.size());
+        assertEquals("Apple 2", restored.snapshot.get(2).getName());
+        assertEquals(250, restored.snapshot.get(2).getPriceCents());
+        assertEquals("Food", restored.snapshot.get(3).getCategoryName());
+        assertEquals(restored.snapshot, restoredStore.snapshot());
+    }
+
+    // Reading no longer leaves a mapping behind, so the same instance can
+    // replace the file it just read (a mapped file cannot be replaced on Windows)
+    @Test
+    void fileReadAtStartupCanBeReplaced() {
+        File file = dir.resolve("catalog.snap").toFile();
+        CatalogStore source = new CatalogStore();
+        new CatalogSnapshotFile(new PosMetrics(), file).write(source.putAll(batch(1, 2, "Apple")), null);
+
+        CatalogSnapshotFile snapshotFile = new CatalogSnapshotFile(new PosMetrics(), file);
+        CatalogStore store = new CatalogStore();
+        assertNotNull(snapshotFile.read(store));
+        snapshotFile.write(store.putAll(batch(3, 1, "Pear")), null);
+
+        CatalogSnapshotFile.Restored reread = new CatalogSnapshotFile(new PosMetrics(), file).read(new CatalogStore());
+        assertEquals(3, reread.snapshot.size());
+        assertEquals("Pear 3", reread.snapshot.get(3).getName());
+    }
+
+    @Test
+    void damagedFileIsIgnored() throws IOException {
+        File file = dir.resolve("catalog.snap").toFile();
+        new CatalogSnapshotFile(new PosMetrics(), file).write(new CatalogStore().putAll(batch(1, 5, "Apple")), null);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(raw.length() - 3);
+            raw.write(0x7F);
+        }
+
+        PosMetrics metrics = new PosMetrics();
+        CatalogStore store = new CatalogStore();
+        assertNull(new CatalogSnapshotFile(metrics, file).read(store));
+        assertEquals(0, store.snapshot().size());
+        assertEquals(1L, metrics.snapshot().get("catalog.snapshotCorrupt"));
+    }
+
+    private static CatalogStore.Batch batch(int firstId, int count, String name) {
+        CatalogStore.Batch batch = new CatalogStore.Batch();
+        for (int id = firstId; id < firstId + count; id++) {
+            batch.add(id, name + " " + id, 125L * id, "images/" + id + ".jpg", 10 + id, "Food");
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,116 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogStoreTest {
+    // Names are stored as dictionary words and numbers; they must read back exactly
+    @Test
+    void namesAndImagePathsReadBackExactly() {
+        String[] names = {
+            "Coca-Cola Zero 330ml", "Milo 007 Edition", "Pack 0 of 10", "Serial 12345678901234567890",
+            "Kopi  O  kosong ", "Mì gói Hảo Hảo 75g", "", "9", "Nasi Lemak 1.5L x 2", " leading space"
+        };
+        CatalogStore store = new CatalogStore();
+        CatalogStore.Batch batch = new CatalogStore.Batch();
+        for (int i = 0; i < names.length; i++) {
+            batch.add(i + 1, names[i], 100, "C:/images/product_" + (i + 1) + "_0" + i + ".jpg", 5, "Food");
+        }
+        store.putAll(batch);
+        CatalogStore.Snapshot snapshot = store.trimToSize();
+
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], snapshot.get(i + 1).getName());
+            assertEquals("C:/images/product_" + (i + 1) + "_0" + i + ".jpg", snapshot.get(i + 1).getImagePath());
+        }
+    }
+
+    @Test
+    void keepsNegativeStockAndLargePrices() {
+        CatalogStore store = new CatalogStore();
+        CatalogStore.Batch batch = new CatalogStore.Batch();
+        batch.add(1, "Gold bar", 9_000_000_000_00L, "images/gold.jpg", -3, "Vault");
+        batch.add(2, "Gum", 1, "images/gum.jpg", Integer.MAX_VALUE, "Snacks");
+        CatalogStore.Snapshot snapshot = store.putAll(batch);
+
+        assertEquals(9_000_000_000_00L, snapshot.get(1).getPriceCents());
+        assertEquals(-3, snapshot.get(1).getStockQty());
+        assertEquals(Integer.MAX_VALUE, snapshot.get(2).getStockQty());
+        assertEquals("Snacks", snapshot.get(2).getCategoryName());
+    }
+
+    // Ids past the first out-of-order one are found through the slot table
+    @Test
+    void findsIdsThatArriveOutOfOrder() {
+        CatalogStore store = new CatalogStore();
+        CatalogStore.Batch batch = new CatalogStore.Batch();
+        for (int id = 1; id <= 50; id++) {
+            batch.add(id, "Item " + id, id, "images/" + id + ".jpg", id, "Food");
+        }
+        batch.add(7_000, "Late", 1, "images/late.jpg", 1, "Food");
+        batch.add(-4, "Negative", 2, "images/neg.jpg", 1, "Food");
+        batch.add(60, "Between", 3, "images/60.jpg", 1, "Food");
+        CatalogStore.Snapshot snapshot = store.putAll(batch);
+
+        for (int id = 1; id <= 50; id++) {
+            assertEquals("Item " + id, snapshot.get(id).getName());
+        }
+        assertEquals("Negative", snapshot.get(-4).getName());
+        assertEquals("Between", snapshot.get(60).getName());
+        assertNull(snapshot.get(61));
+    }
+
+    // Readers keep what they were given while the writer rewrites and removes rows
+    @Test
+    void publishedSnapshotsDoNotChange() {
+        CatalogStore store = new CatalogStore();
+        CatalogStore.Batch batch = new CatalogStore.Batch();
+        for (int id = 1; id <= 100; id++) {
+            batch.add(id, "Tea " + id, 100 + id, "images/tea_" + id + ".jpg", 10, "Drinks");
+        }
+        CatalogStore.Snapshot before = store.putAll(batch);
+
+        CatalogStore.Batch changed = new CatalogStore.Batch();
+        changed.add(10, "Green tea 10", 999_999, "images/green_10.jpg", -1, "Tea");
+        changed.add(101, "Coffee", 300, "images/coffee.jpg", 4, "Drinks");
+        CatalogStore.Snapshot rewritten = store.putAll(changed);
+        CatalogStore.Snapshot after = store.removeAll(new int[] { 1, 10, 55 });
+
+        assertEquals("Tea 10", before.get(10).getName());
+        assertEquals(110, before.get(10).getPriceCents());
+        assertEquals("images/tea_10.jpg", before.get(10).getImagePath());
+        assertEquals(100, before.size());
+        assertEquals("Green tea 10", rewritten.get(10).getName());
+        assertEquals(-1, rewritten.get(10).getStockQty());
+        assertEquals("Tea", rewritten.get(10).getCategoryName());
+        assertEquals(98, after.size());
+        assertNull(after.get(10));
+        assertEquals("Tea 56", after.get(56).getName());
+        assertEquals("Coffee", after.get(101).getName());
+        assertEquals(2, after.getProductId(0));
+    }
+
+    // Enough rewrites to compact the text pool, then a trim, then more rows
+    @Test
+    void manyRewritesKeepTheLatestText() {
+        CatalogStore store = new CatalogStore();
+        for (int round = 0; round < 20; round++) {
+            CatalogStore.Batch batch = new CatalogStore.Batch();
+            for (int id = 1; id <= 200; id++) {
+                batch.add(id, "Round " + round + " item " + id, id, "images/r" + round + "_" + id + ".jpg", round, "Food");
+            }
+            store.putAll(batch);
+        }
+        store.trimToSize();
+        CatalogStore.Batch more = new CatalogStore.Batch();
+        more.add(201, "New word here", 1, "images/new.jpg", 1, "Food");
+        CatalogStore.Snapshot snapshot = store.putAll(more);
+
+        assertEquals(201, snapshot.size());
+        assertEquals("Round 19 item 150", snapshot.get(150).getName());
+        assertEquals("images/r19_150.jpg", snapshot.get(150).getImagePath());
+        assertEquals("New word here", snapshot.get(201).getName());
+    }
+}
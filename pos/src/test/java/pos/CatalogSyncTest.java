@@ -0,0 +1,118 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import org.junit.jupiter.api.Test;
+
+class CatalogSyncTest {
+    private static final Timestamp T0 = Timestamp.valueOf("2026-03-01 10:00:00");
+
+    // A transaction stamped before the watermark commits after it moved on
+    @Test
+    void lateCommitInsideTheOverlapIsPickedUp() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int apple = db.addProduct("Apple", 100, 10, food);
+            int pear = db.addProduct("Pear", 200, 10, food);
+            stamp(db, "1", T0);
+            CatalogStore store = new CatalogStore();
+            CatalogSync sync = new CatalogSync(T0);
+            apply(store, sync, db); // first round re-reads the overlap once
+
+            db.execute("UPDATE product SET price = 1.50, updated_at = TIMESTAMP '2026-03-01 10:00:10' WHERE id = " + apple);
+            CatalogSync.Delta first = apply(store, sync, db);
+            assertEquals(1, first.changed.size());
+            assertEquals(Timestamp.valueOf("2026-03-01 10:00:10"), sync.getWatermark());
+
+            db.execute("UPDATE product SET price = 2.50, updated_at = TIMESTAMP '2026-03-01 10:00:05' WHERE id = " + pear);
+            CatalogSync.Delta late = apply(store, sync, db);
+            assertEquals(1, late.changed.size());
+            assertEquals(pear, late.changed.getProductId(0));
+            assertEquals(250, store.snapshot().get(pear).getPriceCents());
+
+            // Nothing moved, so rows inside the overlap are not handed out again
+            assertTrue(apply(store, sync, db).isEmpty());
+        }
+    }
+
+    @Test
+    void deletedProductsAreRemoved() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int apple = db.addProduct("Apple", 100, 10, food);
+            int pear = db.addProduct("Pear", 200, 10, food);
+            int plum = db.addProduct("Plum", 300, 10, food);
+            stamp(db, "1", T0);
+            CatalogStore store = new CatalogStore();
+            CatalogSync sync = new CatalogSync(T0);
+            apply(store, sync, db);
+            assertEquals(3, store.snapshot().size());
+
+            db.execute("DELETE FROM product WHERE id = " + pear);
+            CatalogSync.Delta delta = apply(store, sync, db);
+            assertArrayEquals(new int[] { pear }, delta.removed);
+            assertEquals(2, store.snapshot().size());
+            assertNull(store.snapshot().get(pear));
+            assertEquals("Apple", store.snapshot().get(apple).getName());
+            assertEquals("Plum", store.snapshot().get(plum).getName());
+        }
+    }
+
+    // Renaming a category does not touch product.updated_at
+    @Test
+    void renamedCategoryIsPropagated() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int drinks = db.addCategory("Drinks");
+            int apple = db.addProduct("Apple", 100, 10, food);
+            int cola = db.addProduct("Cola", 150, 10, drinks);
+            stamp(db, "1", T0);
+            CatalogStore store = new CatalogStore();
+            CatalogSync sync = new CatalogSync(T0);
+            apply(store, sync, db);
+
+            db.execute("UPDATE category SET name = 'Fruit' WHERE id = " + food);
+            CatalogSync.Delta delta = apply(store, sync, db);
+            assertEquals(1, delta.changed.size());
+            assertEquals("Fruit", store.snapshot().get(apple).getCategoryName());
+            assertEquals("Drinks", store.snapshot().get(cola).getCategoryName());
+        }
+    }
+
+    // A terminal restored from an old snapshot has not seen the rename happen
+    @Test
+    void renameWhileDownIsPropagatedOnTheFirstRound() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Fruit");
+            int apple = db.addProduct("Apple", 100, 10, food);
+            stamp(db, "1", T0);
+            CatalogStore store = new CatalogStore();
+            CatalogStore.Batch saved = new CatalogStore.Batch();
+            saved.add(apple, "Apple", 100, "apple.jpg", 10, "Food");
+            store.putAll(saved);
+
+            CatalogSync sync = new CatalogSync(new Timestamp(T0.getTime() + 2 * CatalogSync.OVERLAP_MILLIS));
+            apply(store, sync, db);
+            assertEquals("Fruit", store.snapshot().get(apple).getCategoryName());
+        }
+    }
+
+    private static void stamp(TestDatabase db, String where, Timestamp at) throws SQLException {
+        db.execute("UPDATE product SET updated_at = TIMESTAMP '" + at + "' WHERE " + where);
+    }
+
+    private static CatalogSync.Delta apply(CatalogStore store, CatalogSync sync, TestDatabase db) throws SQLException {
+        try (Connection con = db.open()) {
+            CatalogSync.Delta delta = sync.poll(con, store.snapshot());
+            store.putAll(delta.changed);
+            store.removeAll(delta.removed);
+            return delta;
+        }
+    }
+}
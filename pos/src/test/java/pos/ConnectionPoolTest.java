@@ -0,0 +1,138 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.jdbc.JdbcPreparedStatement;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+    @Test
+    void neverUnwrapsToThePhysicalConnection() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            ConnectionPool pool = pool(db, 1);
+            try (Connection con = pool.getConnection();
+                 PreparedStatement stmt = con.prepareStatement("SELECT COUNT(*) FROM product");
+                 Statement plain = con.createStatement()) {
+                assertSame(con, con.unwrap(Connection.class));
+                assertFalse(con.isWrapperFor(JdbcConnection.class));
+                assertThrows(SQLException.class, () -> con.unwrap(JdbcConnection.class));
+                assertThrows(SQLException.class, () -> stmt.unwrap(JdbcPreparedStatement.class));
+                assertSame(con, stmt.getConnection());
+                assertSame(con, plain.getConnection());
+                assertSame(con, con.getMetaData().getConnection());
+                assertThrows(SQLException.class, () -> con.getMetaData().unwrap(JdbcConnection.class));
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+
+    // The next borrower gets the same physical connection and the same cached statement
+    @Test
+    void statementsStopWorkingWhenTheirCheckoutEnds() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            db.addProduct("Apple", 100, 5, food);
+            ConnectionPool pool = pool(db, 1);
+            try {
+                Connection first = pool.getConnection();
+                PreparedStatement cached = first.prepareStatement("SELECT stock_qty FROM product WHERE id = ?");
+                Statement plain = first.createStatement();
+                first.close();
+
+                try (Connection second = pool.getConnection();
+                     PreparedStatement stmt = second.prepareStatement("SELECT stock_qty FROM product WHERE id = ?")) {
+                    assertEquals(1, pool.getStatementCacheHits());
+                    assertTrue(cached.isClosed());
+                    assertTrue(plain.isClosed());
+                    assertThrows(SQLException.class, () -> cached.setInt(1, 1));
+                    assertThrows(SQLException.class, () -> cached.executeQuery());
+                    assertThrows(SQLException.class, () -> plain.executeQuery("SELECT 1"));
+                    cached.close(); // a late close must not give the borrower's statement back
+
+                    stmt.setInt(1, 1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        assertEquals(5, rs.getInt(1));
+                    }
+                }
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+
+    @Test
+    void closedStatementIsRefusedWithinTheSameCheckout() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            ConnectionPool pool = pool(db, 1);
+            try (Connection con = pool.getConnection()) {
+                PreparedStatement stmt = con.prepareStatement("SELECT COUNT(*) FROM product");
+                stmt.close();
+                assertThrows(SQLException.class, stmt::executeQuery);
+                try (PreparedStatement again = con.prepareStatement("SELECT COUNT(*) FROM product");
+                     ResultSet rs = again.executeQuery()) {
+                    rs.next();
+                    assertEquals(0, rs.getInt(1));
+                }
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+
+    // Work done through a plain statement is rolled back like any other
+    @Test
+    void uncommittedWorkIsRolledBackOnReturn() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            ConnectionPool pool = pool(db, 1);
+            try {
+                try (Connection con = pool.getConnection()) {
+                    con.setAutoCommit(false);
+                    Statement stmt = con.createStatement();
+                    stmt.executeUpdate("INSERT INTO product (name, price, stock_qty, CatID) VALUES ('Pear', 1, 1, " + food + ")");
+                }
+                try (Connection con = pool.getConnection()) {
+                    assertTrue(con.getAutoCommit());
+                }
+                assertEquals(0, db.queryLong("SELECT COUNT(*) FROM product"));
+                assertEquals(1, pool.getConnectionsOpened());
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+
+    @Test
+    void timesOutWhenEveryConnectionIsOut() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            ConnectionPool pool = new ConnectionPool(db::open, 1, 50, 60_000, 8);
+            pool.start();
+            Connection held = pool.getConnection();
+            try {
+                assertThrows(SQLException.class, pool::getConnection);
+                assertEquals(1, pool.getCheckoutTimeoutCount());
+            } finally {
+                held.close();
+                pool.stop();
+            }
+        }
+    }
+
+    private static ConnectionPool pool(TestDatabase db, int size) {
+        ConnectionPool pool = new ConnectionPool(db::open, size, 1000, 60_000, 8);
+        pool.start();
+        return pool;
+    }
+}
@@ -0,0 +1,43 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+
+class DBConnectionTest {
+    @Test
+    void installedFactoryServesConnections() throws SQLException {
+        try (TestDatabase db = TestDatabase.install()) {
+            int category = db.addCategory("Food");
+            db.addProduct("Apple", 299, 50, category);
+
+            try (Connection con = DBConnection.getConnection();
+                 PreparedStatement stmt = con.prepareStatement("SELECT name, stock_qty FROM product");
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                assertEquals("Apple", rs.getString(1));
+                assertEquals(50, rs.getInt(2));
+            }
+        }
+    }
+
+    @Test
+    void resetGoesBackToSystemProperties() {
+        DBConnection.setConnectionFactory(null);
+        String previous = System.setProperty("db.url", "jdbc:none:nothing");
+        try {
+            assertThrows(SQLException.class, DBConnection::getConnection);
+        } finally {
+            if (previous == null) {
+                System.clearProperty("db.url");
+            } else {
+                System.setProperty("db.url", previous);
+            }
+        }
+    }
+}
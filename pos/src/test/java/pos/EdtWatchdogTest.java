@@ -0,0 +1,78 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EdtWatchdogTest {
+    private static final Pattern STALL = Pattern.compile("EDT stall (\\d+) ms");
+
+    @TempDir
+    Path dir;
+
+    // The whole dispatch counts, not just the part after a heartbeat was posted
+    @Test
+    void blockedDispatchIsReportedWithItsStack() throws Exception {
+        PosMetrics metrics = new PosMetrics();
+        File log = dir.resolve("edt-stalls.log").toFile();
+        EdtWatchdog watchdog = new EdtWatchdog(metrics, 100, 10, log);
+        watchdog.start();
+        try {
+            SwingUtilities.invokeAndWait(() -> block(400));
+            waitForStalls(metrics, 1);
+        } finally {
+            watchdog.stop();
+        }
+
+        String report = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+        Matcher m = STALL.matcher(report);
+        assertTrue(m.find(), report);
+        long millis = Long.parseLong(m.group(1));
+        assertTrue(millis >= 400 && millis < 1_000, report);
+        assertTrue(report.contains("EdtWatchdogTest.block"), report);
+    }
+
+    @Test
+    void shortDispatchesAreNotStalls() throws Exception {
+        PosMetrics metrics = new PosMetrics();
+        File log = dir.resolve("edt-stalls.log").toFile();
+        EdtWatchdog watchdog = new EdtWatchdog(metrics, 200, 10, log);
+        watchdog.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                SwingUtilities.invokeAndWait(() -> block(30));
+            }
+            Thread.sleep(100);
+        } finally {
+            watchdog.stop();
+        }
+        assertEquals(0, metrics.snapshot().getOrDefault("edt.stalls", 0L));
+        assertFalse(log.exists());
+    }
+
+    private static void block(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitForStalls(PosMetrics metrics, long stalls) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (metrics.snapshot().getOrDefault("edt.stalls", 0L) < stalls && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(stalls, metrics.snapshot().getOrDefault("edt.stalls", 0L));
+    }
+}
@@ -0,0 +1,81 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Component;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+
+// Key events are fed straight to the dispatcher on the EDT with made-up
+// timestamps, so the flush timer cannot fire in the middle of a burst
+class KeyboardWedgeScannerTest {
+    private final JPanel panel = new JPanel();
+    private final JTextField field = new JTextField();
+    private final List<String> scans = new ArrayList<>();
+    private final KeyboardWedgeScanner scanner = new KeyboardWedgeScanner(panel, 6, 40, scans::add);
+
+    KeyboardWedgeScannerTest() {
+        panel.add(field);
+    }
+
+    @Test
+    void fastBurstEndingInEnterIsAScan() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            assertTrue(type(field, "4006381333931", 1_000, 5));
+            assertTrue(enter(field, 1_070));
+            assertTrue(scanner.dispatchKeyEvent(typed(field, '\n', 1_070))); // the Enter's own KEY_TYPED
+        });
+        assertEquals(List.of("4006381333931"), scans);
+    }
+
+    @Test
+    void shortOrSlowRunsAreTyping() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            type(field, "12345", 1_000, 5);
+            assertFalse(enter(field, 1_030));
+
+            // Long enough, but a person's pace
+            type(field, "4006381333931", 2_000, 150);
+            assertFalse(enter(field, 4_000));
+
+            // Fast, but the Enter came too late after the last digit
+            type(field, "4006381333931", 5_000, 5);
+            assertFalse(enter(field, 5_200));
+        });
+        assertTrue(scans.isEmpty());
+    }
+
+    @Test
+    void keysOutsideThePanelAreLeftAlone() throws Exception {
+        JTextField elsewhere = new JTextField();
+        SwingUtilities.invokeAndWait(() -> {
+            assertFalse(type(elsewhere, "4006381333931", 1_000, 5));
+            assertFalse(enter(elsewhere, 1_070));
+        });
+        assertTrue(scans.isEmpty());
+    }
+
+    // True when every keystroke was held back
+    private boolean type(Component source, String digits, long when, long gap) {
+        boolean held = true;
+        for (int i = 0; i < digits.length(); i++) {
+            held &= scanner.dispatchKeyEvent(typed(source, digits.charAt(i), when + i * gap));
+        }
+        return held;
+    }
+
+    private boolean enter(Component source, long when) {
+        return scanner.dispatchKeyEvent(new KeyEvent(source, KeyEvent.KEY_PRESSED, when, 0, KeyEvent.VK_ENTER, '\n'));
+    }
+
+    private static KeyEvent typed(Component source, char c, long when) {
+        return new KeyEvent(source, KeyEvent.KEY_TYPED, when, 0, KeyEvent.VK_UNDEFINED, c);
+    }
+}
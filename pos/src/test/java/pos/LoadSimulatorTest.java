@@ -0,0 +1,41 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class LoadSimulatorTest {
+    // Each terminal thinks it has the whole stock; the database settles who sold it
+    @Test
+    void terminalsCompetingForScarceStockNeverOversell() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            for (int i = 0; i < 10; i++) {
+                db.addProduct("Product " + i, 100 + i, 25, food);
+            }
+            ConnectionPool pool = new ConnectionPool(db::open, 4, 5000, 60_000, 32);
+            pool.start();
+            ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            try {
+                LoadSimulator simulator = new LoadSimulator(pool, new PosMetrics(), 4, 1_500, 3, 10, 2, 1.0, 0, 1, 7, 16,
+                    new PrintStream(printed, true, StandardCharsets.UTF_8));
+                LoadSimulator.Result result = simulator.run();
+
+                assertTrue(result.checkouts > 0);
+                assertTrue(result.stockConflicts > 0);
+                assertEquals(0, result.failures);
+                assertEquals(0, result.oversoldRows);
+                assertEquals(0, result.driftRows);
+                assertEquals(250 - db.queryLong("SELECT SUM(stock_qty) FROM product"), result.units);
+                assertEquals(result.checkouts, db.queryLong("SELECT COUNT(*) FROM sale"));
+                assertTrue(printed.toString(StandardCharsets.UTF_8).contains("stock row locks"));
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+}
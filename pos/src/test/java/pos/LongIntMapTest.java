@@ -0,0 +1,51 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LongIntMapTest {
+    // Random puts and removes over a small key range, so probe runs collide,
+    // grow and get shifted back; every key must agree with a HashMap
+    @Test
+    void matchesHashMapUnderChurn() {
+        LongIntMap map = new LongIntMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) * 1_000_003L;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long k = 0; k < 2_000; k++) {
+            long key = k * 1_000_003L;
+            assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(0));
+    }
+
+    @Test
+    void parsesGtinsAsNumbers() {
+        // UPC-A and its zero-padded EAN-13 are the same item
+        assertEquals(LongIntMap.parse("036000291452"), LongIntMap.parse("0036000291452"));
+        assertEquals(36000291452L, LongIntMap.parse("036000291452"));
+        assertEquals(999_999_999_999_999_999L, LongIntMap.parse("999999999999999999"));
+
+        assertEquals(LongIntMap.EMPTY, LongIntMap.parse(""));
+        assertEquals(LongIntMap.EMPTY, LongIntMap.parse("1234567890123456789"));
+        assertEquals(LongIntMap.EMPTY, LongIntMap.parse("12A4"));
+        assertEquals(LongIntMap.EMPTY, LongIntMap.parse("-1234"));
+    }
+}
@@ -0,0 +1,67 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class NotificationOutboxTest {
+    @Test
+    void outboxTableIsCreatedOutsideTheSaleTransaction() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int product = db.addProduct("Apple", 299, 10, db.addCategory("Food"));
+            List<Boolean> ddlAutoCommit = new ArrayList<>();
+            ConnectionPool pool = new ConnectionPool(() -> recordingDdl(db.open(), ddlAutoCommit), 2, 1000, 60_000, 8);
+            PosMetrics metrics = new PosMetrics();
+            NotificationOutbox outbox = new NotificationOutbox(pool, metrics, null, new TokenBucket(20, 3), 20, 5000, 0);
+            OrderCommitter committer = new OrderCommitter(null, pool, metrics, null, outbox, 16, 30_000);
+            committer.start();
+            try {
+                Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+                cart.add(product, "Apple", 299, 1);
+                int saleId = committer.submit(new OrderSnapshot(cart, "Cash", 1)).get(10, TimeUnit.SECONDS).getOrderId();
+
+                assertEquals(saleId, db.queryLong("SELECT sale_id FROM pos_notification_outbox"));
+                assertTrue(ddlAutoCommit.size() >= 2);
+                assertTrue(ddlAutoCommit.stream().allMatch(Boolean::booleanValue), "DDL ran inside a transaction");
+            } finally {
+                committer.stop();
+            }
+        }
+    }
+
+    // Notes the connection's auto-commit mode whenever a CREATE TABLE runs on it
+    private static Connection recordingDdl(Connection physical, List<Boolean> ddlAutoCommit) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                Object result = invoke(physical, method, args);
+                if (method.getName().equals("createStatement")) {
+                    Statement statement = (Statement) result;
+                    return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { Statement.class },
+                        (statementProxy, statementMethod, statementArgs) -> {
+                            if (statementArgs != null && statementArgs.length > 0
+                                    && String.valueOf(statementArgs[0]).startsWith("CREATE TABLE")) {
+                                ddlAutoCommit.add(physical.getAutoCommit());
+                            }
+                            return invoke(statement, statementMethod, statementArgs);
+                        });
+                }
+                return result;
+            });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OrderCommitterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void offlineOrderIsReplayedAfterRestart() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int product = db.addProduct("Apple", 299, 100, db.addCategory("Food"));
+            AtomicBoolean up = new AtomicBoolean(false);
+            ConnectionPool pool = pool(db, up);
+            File journal = dir.resolve("orders.journal").toFile();
+
+            OrderCommitter offline = committer(journal, pool, 30_000);
+            offline.start();
+            OrderResult result = offline.submit(order(product, 3)).get(10, TimeUnit.SECONDS);
+            offline.stop();
+            assertTrue(result.isOffline());
+            assertEquals(0, db.queryLong("SELECT COUNT(*) FROM sale"));
+
+            up.set(true);
+            OrderCommitter restarted = committer(journal, pool, 30_000);
+            restarted.start();
+            try {
+                waitFor(() -> restarted.getJournalBacklog() == 0);
+                assertEquals(1, db.queryLong("SELECT COUNT(*) FROM sale"));
+                assertEquals(97, db.queryLong("SELECT stock_qty FROM product WHERE id = " + product));
+            } finally {
+                restarted.stop();
+            }
+        }
+    }
+
+    @Test
+    void replayRunsWhileTheQueueIsBusy() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int product = db.addProduct("Apple", 299, 10_000, db.addCategory("Food"));
+            AtomicBoolean up = new AtomicBoolean(false);
+            OrderCommitter committer = committer(dir.resolve("orders.journal").toFile(), pool(db, up), 100);
+            committer.start();
+            try {
+                assertTrue(committer.submit(order(product, 1)).get(10, TimeUnit.SECONDS).isOffline());
+                up.set(true);
+
+                // Never idle for a whole replay interval
+                long deadline = System.currentTimeMillis() + 1_000;
+                int live = 0;
+                CompletableFuture<OrderResult> last = null;
+                while (System.currentTimeMillis() < deadline) {
+                    last = committer.submit(order(product, 1));
+                    live++;
+                    Thread.sleep(10);
+                }
+                assertFalse(last.get(10, TimeUnit.SECONDS).isOffline());
+
+                assertEquals(0, committer.getJournalBacklog());
+                assertEquals(1, committer.getReplayedCount());
+                assertEquals(live + 1, db.queryLong("SELECT COUNT(*) FROM sale"));
+            } finally {
+                committer.stop();
+            }
+        }
+    }
+
+    @Test
+    void orderAppliedBeforeCrashIsNotDuplicated() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int product = db.addProduct("Apple", 299, 100, db.addCategory("Food"));
+            ConnectionPool pool = pool(db, new AtomicBoolean(true));
+            OrderSnapshot order = order(product, 2);
+
+            OrderCommitter first = committer(dir.resolve("first.journal").toFile(), pool, 30_000);
+            first.start();
+            first.submit(order).get(10, TimeUnit.SECONDS);
+            first.stop();
+
+            // The sale committed but its done record never reached the disk
+            File crashed = dir.resolve("crashed.journal").toFile();
+            OrderJournal journal = OrderJournal.open(crashed);
+            journal.append(Collections.singletonList(order));
+            journal.close();
+
+            OrderCommitter restarted = committer(crashed, pool, 30_000);
+            restarted.start();
+            try {
+                waitFor(() -> restarted.getJournalBacklog() == 0);
+                assertEquals(1, db.queryLong("SELECT COUNT(*) FROM sale"));
+                assertEquals(98, db.queryLong("SELECT stock_qty FROM product WHERE id = " + product));
+            } finally {
+                restarted.stop();
+            }
+        }
+    }
+
+    // A deadlock is not an outage: the order must not be reported offline
+    // and replayed later without the stock check
+    @Test
+    void deadlockIsRetriedOnlineWithTheStockCheck() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int product = db.addProduct("Apple", 299, 5, db.addCategory("Food"));
+            AtomicInteger deadlocks = new AtomicInteger(1);
+            AtomicInteger winnerTakes = new AtomicInteger(0);
+            ConnectionPool pool = new ConnectionPool(() -> deadlockOnCommit(db.open(), deadlocks, () ->
+                    db.execute("UPDATE product SET stock_qty = stock_qty - " + winnerTakes.get() + " WHERE id = " + product)),
+                    4, 1000, 60_000, 32);
+            OrderCommitter committer = committer(dir.resolve("orders.journal").toFile(), pool, 100);
+            committer.start();
+            try {
+                OrderResult result = committer.submit(order(product, 3)).get(10, TimeUnit.SECONDS);
+                assertFalse(result.isOffline());
+                assertEquals(2, db.queryLong("SELECT stock_qty FROM product WHERE id = " + product));
+
+                // The other till wins the deadlock and takes the last units
+                deadlocks.set(1);
+                winnerTakes.set(2);
+                ExecutionException rejected = assertThrows(ExecutionException.class,
+                        () -> committer.submit(order(product, 1)).get(10, TimeUnit.SECONDS));
+                assertTrue(rejected.getCause() instanceof StockConflictException);
+                Thread.sleep(300); // a replay would have applied it by now
+                assertEquals(0, db.queryLong("SELECT stock_qty FROM product WHERE id = " + product));
+                assertEquals(1, db.queryLong("SELECT COUNT(*) FROM sale"));
+                assertEquals(0, committer.getJournalBacklog());
+            } finally {
+                committer.stop();
+            }
+        }
+    }
+
+    // While the counter is positive commit rolls back, lets the winner run
+    // and fails as the deadlock victim
+    private static Connection deadlockOnCommit(Connection physical, AtomicInteger deadlocks, SqlAction winner) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("commit") && deadlocks.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                        physical.rollback();
+                        winner.run();
+                        throw new SQLTransactionRollbackException("Deadlock found when trying to get lock", "40001");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private static ConnectionPool pool(TestDatabase db, AtomicBoolean up) {
+        return new ConnectionPool(() -> {
+            if (!up.get()) {
+                throw new SQLTransientConnectionException("Communications link failure", "08S01");
+            }
+            return db.open();
+        }, 4, 1000, 60_000, 32);
+    }
+
+    private static OrderCommitter committer(File journal, ConnectionPool pool, long replayIntervalMillis) {
+        return new OrderCommitter(journal, pool, new PosMetrics(), null, null, 16, replayIntervalMillis);
+    }
+
+    private static OrderSnapshot order(int productId, int quantity) {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        cart.add(productId, "Apple", 299, quantity);
+        return new OrderSnapshot(cart, "Cash", 1);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
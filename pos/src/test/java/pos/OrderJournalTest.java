@@ -0,0 +1,214 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OrderJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void pendingOrdersSurviveReopen() throws IOException {
+        File file = dir.resolve("orders.journal").toFile();
+        OrderSnapshot first = order(1, 2);
+        OrderSnapshot second = order(2, 1);
+
+        OrderJournal journal = OrderJournal.open(file);
+        journal.append(Arrays.asList(first, second));
+        journal.markDone(Collections.singletonList(first));
+        journal.close();
+
+        OrderJournal reopened = OrderJournal.open(file);
+        assertEquals(Collections.singletonList(second.getJournalId()), ids(reopened.pendingOrders()));
+        assertEquals(1, reopened.pendingOrders().get(0).getItems().get(0).getQuantity());
+        reopened.close();
+    }
+
+    @Test
+    void drainedJournalIsCompacted() throws IOException {
+        File file = dir.resolve("orders.journal").toFile();
+        OrderSnapshot order = order(1, 1);
+
+        OrderJournal journal = OrderJournal.open(file);
+        journal.append(Collections.singletonList(order));
+        journal.markDone(Collections.singletonList(order));
+        journal.close();
+
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    void tornTailIsCutOnOpen() throws IOException {
+        File file = dir.resolve("orders.journal").toFile();
+        OrderSnapshot kept = order(1, 1);
+        OrderSnapshot torn = order(2, 1);
+
+        OrderJournal journal = OrderJournal.open(file);
+        journal.append(Collections.singletonList(kept));
+        long keptEnd = file.length();
+        journal.append(Collections.singletonList(torn));
+        journal.close();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 5); // crash part way through the second record
+        }
+
+        OrderJournal reopened = OrderJournal.open(file);
+        assertEquals(Collections.singletonList(kept.getJournalId()), ids(reopened.pendingOrders()));
+        assertEquals(keptEnd, file.length());
+
+        // Appends after recovery land right behind the last good record
+        OrderSnapshot next = order(3, 1);
+        reopened.append(Collections.singletonList(next));
+        reopened.close();
+        assertEquals(Arrays.asList(kept.getJournalId(), next.getJournalId()), pendingIds(file));
+    }
+
+    @Test
+    void corruptRecordEndsRecovery() throws IOException {
+        File file = dir.resolve("orders.journal").toFile();
+        OrderSnapshot good = order(1, 1);
+
+        OrderJournal journal = OrderJournal.open(file);
+        journal.append(Collections.singletonList(good));
+        long goodEnd = file.length();
+        journal.append(Collections.singletonList(order(2, 1)));
+        journal.close();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(raw.length() - 1);
+            int last = raw.read();
+            raw.seek(raw.length() - 1);
+            raw.write(last ^ 0xFF); // checksum no longer matches
+        }
+
+        OrderJournal reopened = OrderJournal.open(file);
+        assertEquals(Collections.singletonList(good.getJournalId()), ids(reopened.pendingOrders()));
+        assertEquals(goodEnd, file.length());
+        reopened.close();
+    }
+
+    @Test
+    void failedFsyncLeavesNoPartialRecord() throws IOException {
+        File file = dir.resolve("orders.journal").toFile();
+        OrderSnapshot before = order(1, 1);
+        OrderSnapshot lost = order(2, 1);
+        OrderSnapshot after = order(3, 1);
+
+        FailingChannel channel = new FailingChannel(FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        OrderJournal journal = OrderJournal.open(channel);
+        journal.append(Collections.singletonList(before));
+        long beforeEnd = file.length();
+
+        channel.failNextForce = true;
+        assertThrows(IOException.class, () -> journal.append(Collections.singletonList(lost)));
+        assertEquals(beforeEnd, file.length());
+        assertEquals(Collections.singletonList(before.getJournalId()), ids(journal.pendingOrders()));
+
+        journal.append(Collections.singletonList(after));
+        journal.close();
+        assertEquals(Arrays.asList(before.getJournalId(), after.getJournalId()), pendingIds(file));
+    }
+
+    @Test
+    void failedWriteLeavesNoPartialRecord() throws IOException {
+        File file = dir.resolve("orders.journal").toFile();
+        OrderSnapshot before = order(1, 1);
+
+        FailingChannel channel = new FailingChannel(FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        OrderJournal journal = OrderJournal.open(channel);
+        journal.append(Collections.singletonList(before));
+        long beforeEnd = file.length();
+
+        channel.shortWriteThenFail = true;
+        assertThrows(IOException.class, () -> journal.append(Collections.singletonList(order(2, 1))));
+        assertEquals(beforeEnd, file.length());
+        journal.close();
+    }
+
+    private static OrderSnapshot order(int productId, int quantity) {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        cart.add(productId, "Product " + productId, 250, quantity);
+        return new OrderSnapshot(cart, "Cash", 1);
+    }
+
+    private static List<String> pendingIds(File file) throws IOException {
+        OrderJournal journal = OrderJournal.open(file);
+        try {
+            return ids(journal.pendingOrders());
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static List<String> ids(List<OrderSnapshot> orders) {
+        return orders.stream().map(OrderSnapshot::getJournalId).collect(Collectors.toList());
+    }
+
+    // Delegates to a real channel and fails the next force or the next write on request
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private boolean failNextForce;
+        private boolean shortWriteThenFail;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (shortWriteThenFail) {
+                shortWriteThenFail = false;
+                ByteBuffer half = src.duplicate();
+                half.limit(src.position() + src.remaining() / 2);
+                int written = delegate.write(half);
+                src.position(src.position() + written);
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failNextForce) {
+                failNextForce = false;
+                throw new IOException("fsync failed");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return delegate.read(dsts, offset, length); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return delegate.write(srcs, offset, length); }
+        @Override public long position() throws IOException { return delegate.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException { delegate.position(newPosition); return this; }
+        @Override public long size() throws IOException { return delegate.size(); }
+        @Override public FileChannel truncate(long size) throws IOException { delegate.truncate(size); return this; }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { return delegate.transferFrom(src, position, count); }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+        @Override public int write(ByteBuffer src, long position) throws IOException { return delegate.write(src, position); }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return delegate.map(mode, position, size); }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+        @Override protected void implCloseChannel() throws IOException { delegate.close(); }
+    }
+}
@@ -0,0 +1,235 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PosApiServerTest {
+    private static final Pattern CART_ID = Pattern.compile("\"cartId\":\"([^\"]+)\"");
+    private static final Pattern ORDER_ID = Pattern.compile("\"orderId\":(\\d+)");
+
+    @TempDir
+    Path dir;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    // Many clients race for less stock than they ask for; every unit is sold once
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int apple = db.addProduct("Apple", 100, 150, db.addCategory("Food"));
+            try (Api api = new Api(db, dir, 30_000)) {
+                int clients = 16;
+                int checkoutsPerClient = 20;
+                AtomicInteger sold = new AtomicInteger();
+                AtomicInteger refused = new AtomicInteger();
+                AtomicInteger failed = new AtomicInteger();
+                ExecutorService pool = Executors.newFixedThreadPool(clients);
+                List<Future<?>> running = new ArrayList<>();
+                for (int c = 0; c < clients; c++) {
+                    running.add(pool.submit(() -> {
+                        for (int i = 0; i < checkoutsPerClient; i++) {
+                            String cartId = cartId(send(api, "POST", "/api/carts"));
+                            HttpResponse<String> added = send(api, "POST",
+                                "/api/carts/" + cartId + "/items?productId=" + apple + "&qty=1");
+                            if (added.statusCode() == 409) {
+                                refused.incrementAndGet();
+                                continue;
+                            }
+                            HttpResponse<String> paid = send(api, "POST", "/api/carts/" + cartId + "/checkout?payment=Cash");
+                            if (paid.statusCode() == 200) {
+                                sold.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> client : running) {
+                    client.get(60, TimeUnit.SECONDS);
+                }
+                pool.shutdown();
+
+                assertEquals(0, failed.get());
+                assertEquals(150, sold.get());
+                assertEquals(clients * checkoutsPerClient - 150, refused.get());
+                assertEquals(150, db.queryLong("SELECT COUNT(*) FROM sale"));
+                assertEquals(0, db.queryLong("SELECT stock_qty FROM product WHERE id = " + apple));
+            }
+        }
+    }
+
+    @Test
+    void repeatedCheckoutReturnsTheSameOrder() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int apple = db.addProduct("Apple", 100, 10, db.addCategory("Food"));
+            try (Api api = new Api(db, dir, 30_000)) {
+                String cartId = cartId(send(api, "POST", "/api/carts"));
+                send(api, "POST", "/api/carts/" + cartId + "/items?productId=" + apple + "&qty=2");
+
+                String first = orderId(send(api, "POST", "/api/carts/" + cartId + "/checkout"));
+                String again = orderId(send(api, "POST", "/api/carts/" + cartId + "/checkout"));
+                String status = orderId(send(api, "GET", "/api/checkouts/" + cartId));
+
+                assertEquals(first, again);
+                assertEquals(first, status);
+                assertEquals(1, db.queryLong("SELECT COUNT(*) FROM sale"));
+                assertEquals(8, db.queryLong("SELECT stock_qty FROM product WHERE id = " + apple));
+            }
+        }
+    }
+
+    // The committer is not running, so the order stays pending past the wait
+    @Test
+    void slowCheckoutIsAcceptedWithAStatusUrl() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int apple = db.addProduct("Apple", 100, 10, db.addCategory("Food"));
+            try (Api api = new Api(db, dir, 50, false)) {
+                String cartId = cartId(send(api, "POST", "/api/carts"));
+                send(api, "POST", "/api/carts/" + cartId + "/items?productId=" + apple + "&qty=1");
+
+                HttpResponse<String> accepted = send(api, "POST", "/api/carts/" + cartId + "/checkout");
+                assertEquals(202, accepted.statusCode());
+                String location = accepted.headers().firstValue("Location").orElseThrow();
+                assertEquals("/api/checkouts/" + cartId, location);
+                assertEquals(202, send(api, "GET", location).statusCode());
+
+                api.committer.start();
+                String orderId = orderId(send(api, "POST", "/api/carts/" + cartId + "/checkout"));
+                assertEquals(orderId, orderId(send(api, "GET", location)));
+                assertEquals(1, db.queryLong("SELECT COUNT(*) FROM sale"));
+            }
+        }
+    }
+
+    // The remove found the cart just before a checkout closed it
+    @Test
+    void removeFromACheckedOutCartKeepsTheHold() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int apple = db.addProduct("Apple", 100, 10, db.addCategory("Food"));
+            try (Api api = new Api(db, dir, 30_000, false)) {
+                String cartId = api.engine.createCart();
+                PosEngine.EngineCart cart = api.engine.addItem(cartId, apple, 2);
+                FutureTask<Object> remove = new FutureTask<>(() -> api.engine.removeItem(cartId, apple));
+                Thread remover = new Thread(remove);
+                synchronized (cart) {
+                    remover.start();
+                    while (remover.getState() != Thread.State.BLOCKED) {
+                        Thread.sleep(1);
+                    }
+                    api.engine.checkout(cartId, "Cash", 1);
+                }
+
+                ExecutionException e = assertThrows(ExecutionException.class, () -> remove.get(10, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof NoSuchElementException);
+                assertEquals(8, api.engine.getAvailable(apple));
+            }
+        }
+    }
+
+    @Test
+    void engineFollowsCatalogChanges() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int apple = db.addProduct("Apple", 100, 10, food);
+            int pear = db.addProduct("Pear", 200, 10, food);
+            db.execute("UPDATE product SET updated_at = TIMESTAMP '2026-03-01 10:00:00'");
+            try (Api api = new Api(db, dir, 30_000)) {
+                api.engine.syncCatalog(); // the first round re-reads the overlap
+
+                db.execute("UPDATE product SET price = 1.25, stock_qty = 4 WHERE id = " + apple);
+                db.execute("DELETE FROM product WHERE id = " + pear);
+                api.engine.syncCatalog();
+
+                assertEquals(125, api.engine.getProduct(apple).getPriceCents());
+                assertEquals(4, api.engine.getAvailable(apple));
+                assertEquals(404, send(api, "GET", "/api/products/" + pear).statusCode());
+                assertEquals("[]", send(api, "GET", "/api/products?q=pear").body());
+            }
+        }
+    }
+
+    private HttpResponse<String> send(Api api, String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + api.server.getPort() + path))
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String cartId(HttpResponse<String> response) {
+        return find(CART_ID, response);
+    }
+
+    private static String orderId(HttpResponse<String> response) {
+        assertEquals(200, response.statusCode(), response.body());
+        return find(ORDER_ID, response);
+    }
+
+    private static String find(Pattern pattern, HttpResponse<String> response) {
+        Matcher m = pattern.matcher(response.body());
+        assertTrue(m.find(), response.body());
+        return m.group(1);
+    }
+
+    // Engine, committer and server on a private pool, with no sales aggregator
+    private static final class Api implements AutoCloseable {
+        final ConnectionPool pool;
+        final OrderCommitter committer;
+        final PosEngine engine;
+        final PosApiServer server;
+
+        Api(TestDatabase db, Path dir, long checkoutWaitMillis) throws Exception {
+            this(db, dir, checkoutWaitMillis, true);
+        }
+
+        Api(TestDatabase db, Path dir, long checkoutWaitMillis, boolean startCommitter) throws Exception {
+            PosMetrics metrics = new PosMetrics();
+            pool = new ConnectionPool(db::open, 8, 5000, 60_000, 32);
+            pool.start();
+            committer = new OrderCommitter(dir.resolve("orders.journal").toFile(), pool, metrics, null, null, 16, 30_000);
+            if (startCommitter) {
+                committer.start();
+            }
+            engine = new PosEngine(pool, metrics, new StockReservations(), committer, 60_000, 0);
+            engine.loadCatalog();
+            engine.start();
+            PosApiServer.disableNagle();
+            server = new PosApiServer(engine, null, metrics, "127.0.0.1", 0, 16, checkoutWaitMillis);
+            server.start(false);
+        }
+
+        @Override
+        public void close() {
+            try {
+                server.stop();
+                engine.stop();
+                committer.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PosMetricsTest {
+    // Every value lands in a bucket whose upper bound is at most 25% above it
+    @Test
+    void bucketsCoverEveryValueTightly() {
+        for (long n = 0; n < 100_000; n++) {
+            assertBucketFits(n);
+        }
+        for (long n = 100_000; n > 0 && n < Long.MAX_VALUE / 2; n = n * 3 / 2) {
+            assertBucketFits(n - 1);
+            assertBucketFits(n);
+            assertBucketFits(n + 1);
+        }
+        assertBucketFits(Long.MAX_VALUE);
+
+        // Bounds are exact: one past a bucket's bound starts the next bucket
+        for (int bucket = 8; bucket < 251; bucket++) {
+            long bound = PosMetrics.LatencyTimer.upperBound(bucket);
+            assertEquals(bucket, PosMetrics.LatencyTimer.bucketOf(bound));
+            assertEquals(bucket + 1, PosMetrics.LatencyTimer.bucketOf(bound + 1));
+        }
+    }
+
+    @Test
+    void percentilesComeFromTheHistogram() {
+        PosMetrics.LatencyTimer timer = new PosMetrics.LatencyTimer();
+        assertEquals(0, timer.getPercentileMicros(0.5));
+        for (int micros = 1; micros <= 1000; micros++) {
+            timer.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        timer.record(-1); // a clock step backwards is ignored
+
+        assertEquals(1000, timer.getCount());
+        assertEquals(500, timer.getMeanMicros());
+        assertEquals(1000, timer.getMaxMicros());
+        long p50 = timer.getPercentileMicros(0.5);
+        assertTrue(p50 >= 500 && p50 <= 625, "p50 " + p50);
+        long p90 = timer.getPercentileMicros(0.9);
+        assertTrue(p90 >= 900 && p90 <= 1000, "p90 " + p90);
+        assertEquals(1000, timer.getPercentileMicros(0.99)); // capped at the max seen
+    }
+
+    @Test
+    void rateMeterCountsTheLastMinute() {
+        PosMetrics.RateMeter meter = new PosMetrics.RateMeter();
+        assertEquals(0, meter.getLastMinute());
+        for (int i = 0; i < 5; i++) {
+            meter.mark();
+        }
+        assertEquals(5, meter.getLastMinute());
+    }
+
+    @Test
+    void prometheusTextHasOneFamilyPerMetric() {
+        PosMetrics metrics = new PosMetrics();
+        metrics.timer("db.commit").record(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.count("db.errors");
+        metrics.count("db.errors", 2);
+        metrics.mark("order.placed");
+        metrics.gauge("order.queueDepth", () -> 7);
+
+        String text = metrics.toPrometheusText();
+        assertTrue(text.contains("# TYPE pos_db_commit_seconds summary\n"
+                + "pos_db_commit_seconds{quantile=\"0.5\"} 0.002\n"), text);
+        assertTrue(text.contains("pos_db_commit_seconds_sum 0.002\npos_db_commit_seconds_count 1\n"), text);
+        assertTrue(text.contains("# TYPE pos_db_errors_total counter\npos_db_errors_total 3\n"), text);
+        assertTrue(text.contains("# TYPE pos_order_placed_per_minute gauge\npos_order_placed_per_minute 1\n"), text);
+        assertTrue(text.contains("# TYPE pos_order_queueDepth gauge\npos_order_queueDepth 7\n"), text);
+    }
+
+    private static void assertBucketFits(long n) {
+        int bucket = PosMetrics.LatencyTimer.bucketOf(n);
+        long bound = PosMetrics.LatencyTimer.upperBound(bucket);
+        assertTrue(bound >= n && bound - n <= n / 4, n + " in bucket " + bucket + " up to " + bound);
+    }
+}
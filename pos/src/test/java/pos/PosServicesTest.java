@@ -0,0 +1,81 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PosServicesTest {
+    private static final String[] PATH_PROPERTIES = {
+        "pos.journal.file", "catalog.snapshot", "pos.thumbnail.dir", "receipt.printer", "edt.stall.log"
+    };
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void pointFilesAtTempDir() {
+        for (String property : PATH_PROPERTIES) {
+            System.setProperty(property, dir.resolve(property).toString());
+        }
+    }
+
+    @AfterEach
+    void clearProperties() {
+        for (String property : PATH_PROPERTIES) {
+            System.clearProperty(property);
+        }
+    }
+
+    @Test
+    void constructingStartsNothing() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            new PosServices();
+
+            assertFalse(threadRunning("order-committer"));
+            assertFalse(threadRunning("receipt-spooler"));
+            assertFalse(new File(System.getProperty("pos.journal.file")).exists());
+            assertEquals(0, db.queryLong("SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'pos_order_journal'"));
+        }
+    }
+
+    @Test
+    void startCommitsOrdersAndStopReleasesThreads() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int product = db.addProduct("Apple", 299, 10, db.addCategory("Food"));
+            PosServices services = new PosServices();
+            services.start();
+            try {
+                assertTrue(new File(System.getProperty("pos.journal.file")).exists());
+
+                Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+                cart.add(product, "Apple", 299, 3);
+                OrderResult result = services.orderCommitter.submit(new OrderSnapshot(cart, "Cash", 1))
+                    .get(10, TimeUnit.SECONDS);
+
+                assertFalse(result.isOffline());
+                assertEquals(7, db.queryLong("SELECT stock_qty FROM product WHERE id = " + product));
+            } finally {
+                services.stop();
+            }
+            assertFalse(threadRunning("order-committer"));
+            assertFalse(threadRunning("receipt-spooler"));
+        }
+    }
+
+    private static boolean threadRunning(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
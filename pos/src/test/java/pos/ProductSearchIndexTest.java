@@ -0,0 +1,62 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ProductSearchIndexTest {
+    @Test
+    void matchesSubstringsInCatalogOrder() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.put(3, "Cold Brew Coffee", "Beverages");
+        index.put(1, "Crème brûlée", "Bakery");
+        index.put(2, "Coffee Cake", "Bakery");
+
+        assertArrayEquals(new int[] { 3, 1, 2 }, index.search("", "All", null).productIds);
+        assertArrayEquals(new int[] { 3, 2 }, index.search("coffee", "All", null).productIds);
+        assertArrayEquals(new int[] { 2 }, index.search("coffee", "Bakery", null).productIds);
+        assertArrayEquals(new int[] { 1 }, index.search("brûl", "All", null).productIds);
+        // Shorter than a trigram, so only the confirm step filters
+        assertArrayEquals(new int[] { 3, 2 }, index.search("co", "All", null).productIds);
+        assertArrayEquals(new int[0], index.search("coffee", "Dairy", null).productIds);
+    }
+
+    @Test
+    void narrowingReusesThePreviousResultUntilTheIndexChanges() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.put(1, "Oat Milk", "Dairy");
+        index.put(2, "Oat Bar", "Snacks");
+
+        SearchResult oat = index.search("oat", "All", null);
+        assertArrayEquals(new int[] { 1 }, index.search("oat m", "All", oat).productIds);
+
+        index.put(3, "Oat Muffin", "Bakery");
+        assertArrayEquals(new int[] { 1, 3 }, index.search("oat m", "All", oat).productIds);
+    }
+
+    @Test
+    void renamesAndRemovesDropTheOldEntries() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (int id = 1; id <= 200; id++) {
+            index.put(id, "Original " + id, "Food");
+        }
+        // Enough renames to force the name pool to compact
+        for (int round = 0; round < 5; round++) {
+            for (int id = 1; id <= 200; id++) {
+                index.put(id, "Renamed " + round + " item " + id, id % 2 == 0 ? "Food" : "Frozen");
+            }
+        }
+        index.remove(107);
+        index.trimToSize();
+
+        assertArrayEquals(new int[0], index.search("original", "All", null).productIds);
+        assertArrayEquals(new int[] { 105 }, index.search("renamed 4 item 105", "All", null).productIds);
+        assertArrayEquals(new int[0], index.search("renamed 4 item 107", "All", null).productIds);
+        assertArrayEquals(new int[] { 199 }, index.search("item 199", "Frozen", null).productIds);
+        assertArrayEquals(new int[0], index.search("item 199", "Food", null).productIds);
+
+        // A removed id comes back in its old slot
+        index.put(107, "Returned", "Food");
+        assertArrayEquals(new int[] { 107 }, index.search("returned", "Food", null).productIds);
+    }
+}
@@ -0,0 +1,59 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class QrCodeServiceTest {
+    // Same pixels as QRCodeWriter, and images evicted from the cache keep
+    // them, since a dialog may still be showing one
+    @Test
+    void drawsWhatQrCodeWriterDraws() throws Exception {
+        QrCodeService service = new QrCodeService(new PosMetrics(), 2);
+        try {
+            List<String> payloads = new ArrayList<>();
+            List<BufferedImage> images = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                String payload = "POS Payment\nAmount: RM " + (i * 7) + ".50\nDate: 2026-10-18";
+                BufferedImage image = service.render(payload, 300).join();
+                assertMatches(new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 300, 300), image);
+                payloads.add(payload);
+                images.add(image);
+            }
+            for (int i = 0; i < payloads.size(); i++) {
+                assertMatches(new QRCodeWriter().encode(payloads.get(i), BarcodeFormat.QR_CODE, 300, 300), images.get(i));
+            }
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    void repeatedPayloadComesFromTheCache() {
+        QrCodeService service = new QrCodeService(new PosMetrics(), 8);
+        try {
+            BufferedImage first = service.render("POS Payment\nAmount: RM 12.00", 300).join();
+            assertSame(first, service.render("POS Payment\nAmount: RM 12.00", 300).join());
+        } finally {
+            service.stop();
+        }
+    }
+
+    private static void assertMatches(BitMatrix expected, BufferedImage image) {
+        assertEquals(expected.getWidth(), image.getWidth());
+        assertEquals(expected.getHeight(), image.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y) & 0xFFFFFF;
+                assertEquals(expected.get(x, y) ? 0 : 0xFFFFFF, rgb, "pixel " + x + "," + y);
+            }
+        }
+    }
+}
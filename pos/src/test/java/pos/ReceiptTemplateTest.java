@@ -0,0 +1,36 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ReceiptTemplateTest {
+    // Names longer than the column are cut to it and end in "..."
+    @Test
+    void itemNamesFillTheColumn() throws IOException {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        cart.add(1, "Organic Free Range Large Brown Eggs", 499, 2);
+        cart.add(2, "Crème brûlée", 350, 1);
+        OrderSnapshot order = new OrderSnapshot(cart, "Cash", 1);
+
+        assertEquals("Organic Free Range Lar...  2 x   $4.99\n" +
+                     "Crème brûlée               1 x   $3.50\n",
+                render(ReceiptTemplate.compile("{items}", false), order, StandardCharsets.UTF_8));
+        // ESC/POS: init, the lines with '?' for non-ASCII, then feed and cut
+        assertEquals("\u001B@Organic Free Range Lar...  2 x   $4.99\n" +
+                     "Cr?me br?l?e               1 x   $3.50\n\u001Bd\u0004\u001DV\u0001",
+                render(ReceiptTemplate.compile("{items}", true), order, StandardCharsets.US_ASCII));
+    }
+
+    private static String render(ReceiptTemplate template, OrderSnapshot order, Charset charset) throws IOException {
+        ReceiptBuffer buffer = new ReceiptBuffer();
+        template.render("T1-000001", order, buffer);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        return out.toString(charset);
+    }
+}
@@ -0,0 +1,106 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SaleWriterTest {
+    @Test
+    void batchWritesSalesLinesAndStock() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int apple = db.addProduct("Apple", 100, 50, food);
+            int pear = db.addProduct("Pear", 200, 50, food);
+            List<OrderSnapshot> orders = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                orders.add(order(new int[] { apple, pear }, 1 + i));
+            }
+
+            try (Connection con = db.open()) {
+                con.setAutoCommit(false);
+                int[] saleIds = SaleWriter.createOrderRecords(con, orders);
+                SaleWriter.addOrderItems(con, orders, saleIds);
+                SaleWriter.updateProductStocksInDB(con, orders, true);
+                con.commit();
+
+                for (int i = 1; i < saleIds.length; i++) {
+                    assertTrue(saleIds[i] > saleIds[i - 1]);
+                }
+                assertEquals(3, db.queryLong("SELECT qty FROM sale_details WHERE pid = " + apple
+                    + " AND sale_id = " + saleIds[2]));
+            }
+            assertEquals(5, db.queryLong("SELECT COUNT(*) FROM sale"));
+            assertEquals(10, db.queryLong("SELECT COUNT(*) FROM sale_details"));
+            assertEquals(35, db.queryLong("SELECT stock_qty FROM product WHERE id = " + apple));
+            assertEquals(35, db.queryLong("SELECT stock_qty FROM product WHERE id = " + pear));
+        }
+    }
+
+    // Three products pad to eight CASE arms; the padding must not count as a match
+    @Test
+    void shortProductIsReportedThroughPadding() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int apple = db.addProduct("Apple", 100, 50, food);
+            int pear = db.addProduct("Pear", 200, 1, food);
+            int plum = db.addProduct("Plum", 300, 50, food);
+            List<OrderSnapshot> orders = List.of(order(new int[] { apple, pear, plum }, 2));
+
+            try (Connection con = db.open()) {
+                con.setAutoCommit(false);
+                StockConflictException e = assertThrows(StockConflictException.class,
+                    () -> SaleWriter.updateProductStocksInDB(con, orders, true));
+                assertEquals(1, e.getConflicts().size());
+                assertEquals(pear, e.getConflicts().get(0).getProductId());
+                assertEquals(1, e.getConflicts().get(0).getAvailable());
+            }
+            assertEquals(50, db.queryLong("SELECT stock_qty FROM product WHERE id = " + apple));
+        }
+    }
+
+    // Commit batches of every size from 1 to 40 share a few statement texts
+    @Test
+    void batchSizesReuseCachedStatements() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int[] products = new int[40];
+            for (int i = 0; i < products.length; i++) {
+                products[i] = db.addProduct("Product " + i, 100, 1_000, food);
+            }
+            ConnectionPool pool = new ConnectionPool(db::open, 1, 1000, 60_000, 32);
+            pool.start();
+            try {
+                for (int size = 1; size <= products.length; size++) {
+                    List<OrderSnapshot> orders = new ArrayList<>();
+                    for (int i = 0; i < size; i++) {
+                        orders.add(order(new int[] { products[i] }, 1));
+                    }
+                    try (Connection con = pool.getConnection()) {
+                        con.setAutoCommit(false);
+                        int[] saleIds = SaleWriter.createOrderRecords(con, orders);
+                        SaleWriter.addOrderItems(con, orders, saleIds);
+                        SaleWriter.updateProductStocksInDB(con, orders, true);
+                        con.commit();
+                    }
+                }
+                // Two inserts plus the update padded to 1, 8 and 64 ids
+                assertEquals(5, pool.getStatementCacheMisses());
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+
+    private static OrderSnapshot order(int[] productIds, int quantity) {
+        Cart cart = new Cart(Cart.STANDARD_TAX_BASIS_POINTS);
+        for (int productId : productIds) {
+            cart.add(productId, "Product " + productId, 100, quantity);
+        }
+        return new OrderSnapshot(cart, "Cash", 1);
+    }
+}
@@ -0,0 +1,117 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+class SalesAggregatorTest {
+    @Test
+    void rebuildCountsEarlierSalesOnce() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            insertSale(db, 1, "5.00", 7);
+            insertSale(db, 2, "2.50", 7);
+            ConnectionPool pool = pool(db);
+            SalesAggregator aggregator = new SalesAggregator(pool, 20);
+            aggregator.start();
+            try {
+                waitFor(aggregator::isReady);
+                // Several polls over the same rows must not add them again
+                for (int i = 0; i < 5; i++) {
+                    aggregator.wake();
+                    Thread.sleep(30);
+                }
+                assertEquals(2, aggregator.getTodayOrderCount());
+                assertEquals(750, aggregator.getTodayRevenueCents());
+                assertEquals(750, aggregator.getStaffRevenueCents(7));
+
+                // The rebuild's transaction does not leak into the pooled connection
+                try (Connection con = pool.getConnection()) {
+                    assertTrue(con.getAutoCommit());
+                    assertEquals(Connection.TRANSACTION_READ_COMMITTED, con.getTransactionIsolation());
+                }
+            } finally {
+                aggregator.stop();
+                pool.stop();
+            }
+        }
+    }
+
+    // Another terminal's committer writes the sale; this terminal's dashboard sees it
+    @Test
+    void salesFromOtherTerminalsAreCounted() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int apple = db.addProduct("Apple", 299, 100, db.addCategory("Food"));
+            ConnectionPool pool = pool(db);
+            SalesAggregator aggregator = new SalesAggregator(pool, 20);
+            OrderCommitter otherTerminal = new OrderCommitter(null, pool(db), new PosMetrics(), null, null, 16, 30_000);
+            aggregator.start();
+            otherTerminal.start();
+            try {
+                waitFor(aggregator::isReady);
+                Cart cart = new Cart(0);
+                cart.add(apple, "Apple", 299, 3);
+                otherTerminal.submit(new OrderSnapshot(cart, "Cash", 4)).get(10, TimeUnit.SECONDS);
+
+                waitFor(() -> aggregator.getTodayOrderCount() == 1);
+                assertEquals(897, aggregator.getTodayRevenueCents());
+                assertEquals(3, aggregator.getProductUnits(apple));
+                assertArrayEquals(new int[] { apple }, aggregator.getTopProducts());
+            } finally {
+                otherTerminal.stop();
+                aggregator.stop();
+                pool.stop();
+            }
+        }
+    }
+
+    // Sale 2 got its id before sale 3 but commits after sale 3 has been seen
+    @Test
+    void saleCommittingBelowTheWatermarkIsCounted() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            ConnectionPool pool = pool(db);
+            SalesAggregator aggregator = new SalesAggregator(pool, 20);
+            aggregator.start();
+            try {
+                waitFor(aggregator::isReady);
+                insertSale(db, 1, "1.00", 1);
+                waitFor(() -> aggregator.getTodayOrderCount() == 1);
+                insertSale(db, 3, "3.00", 1);
+                waitFor(() -> aggregator.getTodayOrderCount() == 2);
+
+                insertSale(db, 2, "2.00", 1);
+                waitFor(() -> aggregator.getTodayOrderCount() == 3);
+                aggregator.wake();
+                Thread.sleep(50);
+                assertEquals(3, aggregator.getTodayOrderCount());
+                assertEquals(600, aggregator.getTodayRevenueCents());
+            } finally {
+                aggregator.stop();
+                pool.stop();
+            }
+        }
+    }
+
+    private static void insertSale(TestDatabase db, int id, String total, int staffId) throws Exception {
+        db.execute("INSERT INTO sale (id, sale_date, payment_method, total_amount, staff_id) " +
+                   "VALUES (" + id + ", CURRENT_TIMESTAMP, 'Cash', " + total + ", " + staffId + ")");
+    }
+
+    private static ConnectionPool pool(TestDatabase db) {
+        ConnectionPool pool = new ConnectionPool(db::open, 4, 1000, 60_000, 32);
+        pool.start();
+        return pool;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
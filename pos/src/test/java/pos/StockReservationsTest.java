@@ -0,0 +1,152 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StockReservationsTest {
+    @TempDir
+    Path dir;
+
+    // The database was read before an order committed there and settled here
+    @Test
+    void refreshTakesOffSalesSettledAfterTheRead() {
+        StockReservations reservations = new StockReservations();
+        reservations.setOnHand(1, 10);
+        assertTrue(reservations.hold(1, 2));
+
+        long ticket = reservations.beginRefresh();
+        int read = 10;
+        reservations.commit(1, 2);
+        reservations.refresh(1, read, ticket);
+
+        assertEquals(8, reservations.available(1));
+    }
+
+    @Test
+    void refreshAdoptsCountsAfterEarlierSales() {
+        StockReservations reservations = new StockReservations();
+        reservations.setOnHand(1, 10);
+        assertTrue(reservations.hold(1, 3));
+        reservations.commit(1, 3);
+        assertTrue(reservations.hold(1, 1));
+
+        reservations.refresh(1, 5, reservations.beginRefresh()); // another till sold two
+
+        assertEquals(4, reservations.available(1));
+    }
+
+    // A newer read is under way and will bring a count that includes the sale
+    @Test
+    void olderRefreshDoesNotOverwriteANewerOne() {
+        StockReservations reservations = new StockReservations();
+        reservations.setOnHand(1, 10);
+        long older = reservations.beginRefresh();
+        long newer = reservations.beginRefresh();
+        assertTrue(reservations.hold(1, 4));
+        reservations.commit(1, 4);
+
+        reservations.refresh(1, 10, older);
+        assertEquals(6, reservations.available(1));
+        reservations.refresh(1, 10, newer); // read before the order reached the database
+        assertEquals(6, reservations.available(1));
+    }
+
+    // Sync rounds run back to back while carts sell out the stock. The
+    // terminal is the only seller, so every unit it offers is really there:
+    // no checkout may hit a stock conflict.
+    @Test
+    void syncDuringCheckoutsNeverOffersStockThatIsGone() throws Exception {
+        try (TestDatabase db = TestDatabase.install()) {
+            int food = db.addCategory("Food");
+            int[] products = new int[4];
+            for (int i = 0; i < products.length; i++) {
+                products[i] = db.addProduct("Product " + i, 100, 150, food);
+            }
+            PosMetrics metrics = new PosMetrics();
+            ConnectionPool pool = new ConnectionPool(db::open, 8, 5000, 60_000, 32);
+            pool.start();
+            OrderCommitter committer = new OrderCommitter(dir.resolve("orders.journal").toFile(), pool, metrics,
+                null, null, 4, 30_000);
+            committer.start();
+            PosEngine engine = new PosEngine(pool, metrics, new StockReservations(), committer, 60_000, 0);
+            ExecutorService threads = Executors.newFixedThreadPool(9);
+            try {
+                engine.loadCatalog();
+                AtomicBoolean selling = new AtomicBoolean(true);
+                AtomicInteger conflicts = new AtomicInteger();
+                AtomicInteger failures = new AtomicInteger();
+                Future<?> syncing = threads.submit(() -> {
+                    while (selling.get()) {
+                        engine.syncCatalog();
+                    }
+                });
+                List<Future<?>> tills = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    Random random = new Random(t);
+                    tills.add(threads.submit(() -> {
+                        while (!soldOut(engine, products)) {
+                            String cartId = engine.createCart();
+                            try {
+                                engine.addItem(cartId, products[random.nextInt(products.length)], 1 + random.nextInt(2));
+                            } catch (IllegalStateException refused) {
+                                continue;
+                            }
+                            try {
+                                engine.checkout(cartId, "Cash", 1).join();
+                            } catch (CompletionException e) {
+                                if (e.getCause() instanceof StockConflictException) {
+                                    conflicts.incrementAndGet();
+                                } else {
+                                    failures.incrementAndGet();
+                                }
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> till : tills) {
+                    till.get(120, TimeUnit.SECONDS);
+                }
+                selling.set(false);
+                syncing.get(30, TimeUnit.SECONDS);
+
+                assertEquals(0, failures.get());
+                assertEquals(0, conflicts.get());
+                for (int productId : products) {
+                    long left = db.queryLong("SELECT stock_qty FROM product WHERE id = " + productId);
+                    long sold = db.queryLong("SELECT COALESCE(SUM(qty), 0) FROM sale_details WHERE pid = " + productId);
+                    assertEquals(150, left + sold);
+                    assertTrue(engine.getAvailable(productId) <= left);
+                }
+            } finally {
+                threads.shutdownNow();
+                engine.stop();
+                committer.stop();
+                pool.stop();
+            }
+        }
+    }
+
+    private static boolean soldOut(PosEngine engine, int[] products) {
+        for (int productId : products) {
+            if (engine.getAvailable(productId) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package pos;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A private in-memory H2 database in MySQL mode with the POS schema, installed
+// as DBConnection's source for the duration of a test.
+final class TestDatabase implements AutoCloseable {
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    private final String url;
+    private final Connection keepAlive;
+
+    private TestDatabase() throws SQLException {
+        url = "jdbc:h2:mem:pos" + NEXT.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        keepAlive = DriverManager.getConnection(url);
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE category (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL)");
+            stmt.executeUpdate("CREATE TABLE product (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(200) NOT NULL, " +
+                    "price DECIMAL(10, 2) NOT NULL, image VARCHAR(200), stock_qty INT NOT NULL, CatID INT, " +
+                    "barcode VARCHAR(32), " +
+                    "updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3))");
+            stmt.executeUpdate("CREATE TABLE sale (id INT AUTO_INCREMENT PRIMARY KEY, sale_date TIMESTAMP NOT NULL, " +
+                    "payment_method VARCHAR(10) NOT NULL, total_amount DECIMAL(10, 2) NOT NULL, staff_id INT NOT NULL)");
+            stmt.executeUpdate("CREATE TABLE sale_details (id INT AUTO_INCREMENT PRIMARY KEY, qty INT NOT NULL, " +
+                    "unit_price DECIMAL(10, 2) NOT NULL, pid INT NOT NULL, sale_id INT NOT NULL)");
+        }
+    }
+
+    // Fresh schema, and DBConnection now hands out connections to it
+    static TestDatabase install() throws SQLException {
+        TestDatabase db = new TestDatabase();
+        DBConnection.setConnectionFactory(db::open);
+        return db;
+    }
+
+    Connection open() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+
+    int addCategory(String name) throws SQLException {
+        try (PreparedStatement stmt = keepAlive.prepareStatement("INSERT INTO category (name) VALUES (?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, name);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    int addProduct(String name, long priceCents, int stockQty, int categoryId) throws SQLException {
+        try (PreparedStatement stmt = keepAlive.prepareStatement(
+                "INSERT INTO product (name, price, image, stock_qty, CatID) VALUES (?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, name);
+            stmt.setBigDecimal(2, java.math.BigDecimal.valueOf(priceCents, 2));
+            stmt.setString(3, name.toLowerCase().replace(' ', '_') + ".jpg");
+            stmt.setInt(4, stockQty);
+            stmt.setInt(5, categoryId);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    long queryLong(String sql) throws SQLException {
+        try (Statement stmt = keepAlive.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    void execute(String sql) throws SQLException {
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        DBConnection.setConnectionFactory(null);
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            keepAlive.close();
+        }
+    }
+}
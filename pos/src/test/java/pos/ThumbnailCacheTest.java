@@ -0,0 +1,79 @@
+package pos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThumbnailCacheTest {
+    @TempDir
+    Path dir;
+
+    // The first read hits a dropped share; the image shows once it is back
+    @Test
+    void transientReadFailureIsRetried() throws Exception {
+        File image = dir.resolve("apple.png").toFile();
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", image);
+        AtomicInteger reads = new AtomicInteger();
+        ThumbnailCache cache = new ThumbnailCache(new PosMetrics(), dir.resolve("thumbs").toFile(), 16, 1, 50) {
+            @Override
+            ImageIcon decode(String imgPath) throws IOException {
+                if (reads.incrementAndGet() == 1) {
+                    throw new IOException("The network path was not found");
+                }
+                return super.decode(imgPath);
+            }
+        };
+        cache.start();
+        try {
+            assertSame(ThumbnailCache.NO_IMAGE_ICON, load(cache, image.getPath()));
+            assertNull(cache.getIfCached(image.getPath()));
+            assertSame(ThumbnailCache.NO_IMAGE_ICON, load(cache, image.getPath())); // not read again yet
+            assertEquals(1, reads.get());
+
+            Thread.sleep(60);
+            ImageIcon loaded = load(cache, image.getPath());
+            assertNotSame(ThumbnailCache.NO_IMAGE_ICON, loaded);
+            assertEquals(ThumbnailCache.THUMBNAIL_WIDTH, loaded.getIconWidth());
+            assertSame(loaded, cache.getIfCached(image.getPath()));
+        } finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    void missingAndUndecodableImagesKeepThePlaceholder() throws Exception {
+        File garbage = dir.resolve("broken.jpg").toFile();
+        Files.writeString(garbage.toPath(), "not an image");
+        String missing = dir.resolve("missing.jpg").toString();
+        ThumbnailCache cache = new ThumbnailCache(new PosMetrics(), dir.resolve("thumbs").toFile(), 16, 1, 50);
+        cache.start();
+        try {
+            assertSame(ThumbnailCache.NO_IMAGE_ICON, load(cache, missing));
+            assertSame(ThumbnailCache.NO_IMAGE_ICON, load(cache, garbage.getPath()));
+            assertSame(ThumbnailCache.NO_IMAGE_ICON, cache.getIfCached(missing));
+            assertSame(ThumbnailCache.NO_IMAGE_ICON, cache.getIfCached(garbage.getPath()));
+        } finally {
+            cache.stop();
+        }
+    }
+
+    private static ImageIcon load(ThumbnailCache cache, String imgPath) throws Exception {
+        CompletableFuture<ImageIcon> ready = new CompletableFuture<>();
+        cache.load(imgPath, ready::complete);
+        return ready.get(5, TimeUnit.SECONDS);
+    }
+}